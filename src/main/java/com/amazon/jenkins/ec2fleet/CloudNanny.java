@@ -60,9 +60,14 @@ public class CloudNanny extends PeriodicWork {
             try {
                 // Update the cluster states
                 final FleetStateStats stats = fleetCloud.update();
+                final ScaleOutLimiter limiter = fleetCloud.getScaleOutLimiter();
+                final boolean limited = fleetCloud.getScaleOutUnitsPerMinute() > 0 && limiter != null;
+                final double hourlyBurn = fleetCloud.getHourlyBurn();
                 info.add(new EC2FleetStatusInfo(
                         fleetCloud.getFleet(), stats.getState(), fleetCloud.getLabelString(),
-                        stats.getNumActive(), stats.getNumDesired()));
+                        stats.getNumActive(), stats.getNumDesired(),
+                        limited ? Math.max(0, limiter.getTokens()) : -1, limited ? limiter.getDeferredUnits() : 0,
+                        hourlyBurn > 0 ? hourlyBurn : -1));
             } catch (Exception e) {
                 // could bad configuration or real exception, we can't do too much here
                 LOGGER.log(Level.INFO, String.format("Error during fleet %s stats update", fleetCloud.name), e);
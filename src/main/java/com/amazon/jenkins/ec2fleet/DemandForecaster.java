@@ -0,0 +1,191 @@
+package com.amazon.jenkins.ec2fleet;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Forecast queue length per label to provision capacity before it's requested.
+ * <p>
+ * For each label keeps:
+ * <ul>
+ * <li>EWMA of queue length, used when nothing is known about time of day</li>
+ * <li>daily seasonal profile, EWMA of queue length per {@link DemandForecaster#SLOT_MSEC} slot of day,
+ * so periodic load like merge waves at the top of hour or nightly batch runs are predicted one day later</li>
+ * </ul>
+ * Memory is fixed per label and amount of labels is limited by {@link DemandForecaster#MAX_LABELS},
+ * least recently observed label is dropped first.
+ * <p>
+ * Each forecast is checked when its target slot comes, absolute and signed error are accumulated
+ * as forecast quality metrics, shown on page of {@link EC2FleetCloud}.
+ *
+ * @see ForecastProvisionStrategy
+ */
+@SuppressWarnings("WeakerAccess")
+@ThreadSafe
+public class DemandForecaster {
+
+    static final long SLOT_MSEC = TimeUnit.MINUTES.toMillis(5);
+    static final int SLOTS = (int) (TimeUnit.DAYS.toMillis(1) / SLOT_MSEC);
+    static final int MAX_LABELS = 500;
+
+    private static final double LEVEL_ALPHA = 0.2;
+    private static final double SEASONAL_ALPHA = 0.3;
+
+    private static final class Series {
+        private double level;
+        private boolean initialized;
+
+        private final double[] seasonal = new double[SLOTS];
+        private final boolean[] seasonalKnown = new boolean[SLOTS];
+        /**
+         * Index of last slot updated by observation, used to update seasonal only once per slot
+         */
+        private long lastSlot = -1;
+
+        private final double[] forecasts = new double[SLOTS];
+        /**
+         * Absolute slot (time / slot size) for which forecast was made, <code>-1</code> if none
+         */
+        private final long[] forecastTargets = new long[SLOTS];
+
+        private Series() {
+            Arrays.fill(forecastTargets, -1);
+        }
+    }
+
+    private final Map<String, Series> series = new LinkedHashMap<String, Series>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, Series> eldest) {
+            return size() > MAX_LABELS;
+        }
+    };
+
+    private long errorCount;
+    private double absoluteErrorSum;
+    private double errorSum;
+
+    /**
+     * @param label       label expression or empty string for unlabeled demand
+     * @param queueLength current queue length
+     * @param now         current time in msec
+     */
+    public synchronized void observe(final String label, final int queueLength, final long now) {
+        Series s = series.get(label);
+        if (s == null) {
+            s = new Series();
+            series.put(label, s);
+        }
+
+        if (!s.initialized) {
+            s.level = queueLength;
+            s.initialized = true;
+        } else {
+            s.level += LEVEL_ALPHA * (queueLength - s.level);
+        }
+
+        final long absoluteSlot = now / SLOT_MSEC;
+        if (absoluteSlot != s.lastSlot) {
+            s.lastSlot = absoluteSlot;
+            final int slot = slotOf(now);
+
+            // check forecast made for this slot, first observation in slot is actual value
+            if (s.forecastTargets[slot] == absoluteSlot) {
+                final double error = queueLength - s.forecasts[slot];
+                errorCount++;
+                absoluteErrorSum += Math.abs(error);
+                errorSum += error;
+            }
+            s.forecastTargets[slot] = -1;
+
+            if (s.seasonalKnown[slot]) {
+                s.seasonal[slot] += SEASONAL_ALPHA * (queueLength - s.seasonal[slot]);
+            } else {
+                s.seasonal[slot] = queueLength;
+                s.seasonalKnown[slot] = true;
+            }
+        }
+    }
+
+    /**
+     * @param label     label expression or empty string for unlabeled demand
+     * @param now       current time in msec
+     * @param horizonMs how far ahead to predict, usually time to get new node online
+     * @return predicted queue length, <code>0</code> if label never observed
+     */
+    public synchronized int forecast(final String label, final long now, final long horizonMs) {
+        final Series s = series.get(label);
+        if (s == null || !s.initialized) return 0;
+
+        final long absoluteSlot = (now + horizonMs) / SLOT_MSEC;
+        final int slot = slotOf(now + horizonMs);
+        final double prediction = predict(s, slot);
+
+        // remember only first forecast for slot to not bias error to closest predictions,
+        // skip slot which is already observed
+        if (absoluteSlot > s.lastSlot && s.forecastTargets[slot] != absoluteSlot) {
+            s.forecastTargets[slot] = absoluteSlot;
+            s.forecasts[slot] = prediction;
+        }
+        return (int) Math.round(prediction);
+    }
+
+    /**
+     * Same as {@link DemandForecaster#forecast(String, long, long)} but not checked later for error metrics,
+     * used by decisions which don't act on forecast directly.
+     */
+    public synchronized int peek(final String label, final long now, final long horizonMs) {
+        final Series s = series.get(label);
+        if (s == null || !s.initialized) return 0;
+        return (int) Math.round(predict(s, slotOf(now + horizonMs)));
+    }
+
+    /**
+     * @return observed labels
+     */
+    public synchronized List<String> getLabels() {
+        return new ArrayList<>(series.keySet());
+    }
+
+    public synchronized int getLabelCount() {
+        return series.size();
+    }
+
+    public synchronized long getErrorCount() {
+        return errorCount;
+    }
+
+    /**
+     * @return mean absolute error of checked forecasts in jobs
+     */
+    public synchronized double getMeanAbsoluteError() {
+        return errorCount == 0 ? 0 : absoluteErrorSum / errorCount;
+    }
+
+    /**
+     * @return mean signed error, positive when actual demand is higher than forecasted (under provision)
+     */
+    public synchronized double getBias() {
+        return errorCount == 0 ? 0 : errorSum / errorCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "labels " + series.size() + ", checked forecasts " + errorCount
+                + ", mae " + String.format("%.2f", getMeanAbsoluteError())
+                + ", bias " + String.format("%.2f", getBias());
+    }
+
+    private static double predict(final Series s, final int slot) {
+        return s.seasonalKnown[slot] ? s.seasonal[slot] : s.level;
+    }
+
+    private static int slotOf(final long time) {
+        return (int) ((time / SLOT_MSEC) % SLOTS);
+    }
+
+}
@@ -0,0 +1,58 @@
+package com.amazon.jenkins.ec2fleet;
+
+import javax.annotation.Nonnull;
+import java.util.PriorityQueue;
+
+/**
+ * Estimate how many queued tasks cannot start on existing executors within boot horizon, time
+ * which new node needs to get online. Such tasks are real capacity shortfall, others will start
+ * on executors which are free or will be free before new node could take them.
+ * <p>
+ * Simulates queue in order: each task takes the executor which frees first, task keeps executor for its
+ * estimated duration. Executors which are free, connecting or planned are free now, busy executors
+ * free after their estimated remaining time. Unknown duration or remaining time (negative value) means
+ * executor never frees within horizon, so without history estimation equals to plain queue length minus
+ * available executors.
+ *
+ * @see NoDelayProvisionStrategy
+ */
+@SuppressWarnings("WeakerAccess")
+public class DurationAwareDemandEstimator {
+
+    /**
+     * @param queuedDurations     estimated duration of queued tasks in queue order, msec, negative if unknown
+     * @param availableExecutors  idle, connecting and planned executors
+     * @param busyRemaining       estimated remaining time of busy executors, msec, negative if unknown
+     * @param horizon             time to get new node online, msec
+     * @return amount of tasks which cannot start within horizon
+     */
+    public static int estimate(@Nonnull final long[] queuedDurations, final int availableExecutors,
+                               @Nonnull final long[] busyRemaining, final long horizon) {
+        // time when each executor is free, only executors which free within horizon matter
+        final PriorityQueue<Long> freeAt = new PriorityQueue<>();
+        for (int i = 0; i < Math.max(0, availableExecutors); i++) {
+            // no reason to track more executors than tasks
+            if (freeAt.size() >= queuedDurations.length) break;
+            freeAt.add(0L);
+        }
+        for (final long remaining : busyRemaining) {
+            if (remaining >= 0 && remaining <= horizon) freeAt.add(remaining);
+        }
+
+        int shortfall = 0;
+        for (final long duration : queuedDurations) {
+            final Long start = freeAt.poll();
+            if (start == null) {
+                shortfall++;
+                continue;
+            }
+
+            if (duration >= 0) {
+                final long end = start + duration;
+                if (end <= horizon) freeAt.add(end);
+            }
+        }
+        return shortfall;
+    }
+
+}
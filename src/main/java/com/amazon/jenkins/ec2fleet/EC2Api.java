@@ -7,12 +7,16 @@ import com.amazonaws.services.ec2.AmazonEC2Client;
 import com.amazonaws.services.ec2.model.AmazonEC2Exception;
 import com.amazonaws.services.ec2.model.DescribeInstancesRequest;
 import com.amazonaws.services.ec2.model.DescribeInstancesResult;
+import com.amazonaws.services.ec2.model.DescribeSpotPriceHistoryRequest;
+import com.amazonaws.services.ec2.model.DescribeSpotPriceHistoryResult;
 import com.amazonaws.services.ec2.model.Instance;
 import com.amazonaws.services.ec2.model.InstanceStateName;
 import com.amazonaws.services.ec2.model.Reservation;
+import com.amazonaws.services.ec2.model.SpotPrice;
 import com.amazonaws.services.ec2.model.TerminateInstancesRequest;
 import com.cloudbees.jenkins.plugins.awscredentials.AWSCredentialsHelper;
 import com.cloudbees.jenkins.plugins.awscredentials.AmazonWebServicesCredentials;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import jenkins.model.Jenkins;
@@ -21,6 +25,7 @@ import org.apache.commons.lang.StringUtils;
 import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -40,6 +45,13 @@ public class EC2Api {
 
     private static final int BATCH_SIZE = 900;
 
+    private static final Map<String, String> SPOT_PRODUCTS = ImmutableMap.of(
+            "Linux/UNIX", SpotPriceCache.LINUX,
+            "Linux/UNIX (Amazon VPC)", SpotPriceCache.LINUX,
+            "Windows", SpotPriceCache.WINDOWS,
+            "Windows (Amazon VPC)", SpotPriceCache.WINDOWS
+    );
+
     private static final String NOT_FOUND_ERROR_CODE = "InvalidInstanceID.NotFound";
     private static final Pattern INSTANCE_ID_PATTERN = Pattern.compile("(i-[0-9a-zA-Z]+)");
 
@@ -145,6 +157,50 @@ public class EC2Api {
         }
     }
 
+    /**
+     * Current spot price, only Linux and Windows platforms are loaded as other platforms are not
+     * distinguished by {@link Instance#getPlatform()}
+     *
+     * @param ec2           client
+     * @param instanceTypes instance types
+     * @return hourly price by {@link SpotPriceCache#key(String, String, String)}
+     */
+    public Map<String, Double> describeSpotPrices(final AmazonEC2 ec2, final Set<String> instanceTypes) {
+        final Map<String, Double> prices = new HashMap<>();
+        // don't do actual call if no data
+        if (instanceTypes.isEmpty()) return prices;
+
+        // start time now returns only current price for each zone, type and product
+        final DescribeSpotPriceHistoryRequest request = new DescribeSpotPriceHistoryRequest()
+                .withInstanceTypes(instanceTypes)
+                .withProductDescriptions(SPOT_PRODUCTS.keySet())
+                .withStartTime(new Date());
+        final Map<String, Date> timestamps = new HashMap<>();
+        DescribeSpotPriceHistoryResult result;
+        do {
+            result = ec2.describeSpotPriceHistory(request);
+            request.setNextToken(result.getNextToken());
+
+            for (final SpotPrice price : result.getSpotPriceHistory()) {
+                final String key = SpotPriceCache.key(price.getAvailabilityZone(), price.getInstanceType(),
+                        SPOT_PRODUCTS.get(price.getProductDescription()));
+                final Date previous = timestamps.get(key);
+                // keep latest price
+                if (price.getSpotPrice() == null) continue;
+                if (previous != null && price.getTimestamp() != null && previous.after(price.getTimestamp())) {
+                    continue;
+                }
+                try {
+                    prices.put(key, Double.parseDouble(price.getSpotPrice()));
+                    timestamps.put(key, price.getTimestamp());
+                } catch (final NumberFormatException e) {
+                    // ignore price which we can't parse
+                }
+            }
+        } while (StringUtils.isNotEmpty(result.getNextToken()));
+        return prices;
+    }
+
     public AmazonEC2 connect(final String awsCredentialsId, final String regionName, final String endpoint) {
         final AmazonWebServicesCredentials credentials = AWSCredentialsHelper.getCredentials(awsCredentialsId, Jenkins.getInstance());
         final AmazonEC2Client client =
@@ -1,5 +1,6 @@
 package com.amazon.jenkins.ec2fleet;
 
+import com.amazonaws.services.ec2.model.Instance;
 import hudson.model.Action;
 import hudson.model.Actionable;
 import hudson.model.Executor;
@@ -25,6 +26,9 @@ import java.util.logging.Logger;
  * <p>
  * This is optional feature, it's enabled by default, but could be disabled by
  * {@link EC2FleetCloud#isDisableTaskResubmit()}
+ * <p>
+ * Tasks are resubmitted by {@link ResubmitCoordinator} together with tasks of other nodes lost in
+ * the same interruption wave.
  *
  * @see EC2FleetNode
  * @see EC2FleetNodeComputer
@@ -36,12 +40,6 @@ public class EC2FleetAutoResubmitComputerLauncher extends DelegatingComputerLaun
     private static final Level LOG_LEVEL = Level.INFO;
     private static final Logger LOGGER = Logger.getLogger(EC2FleetAutoResubmitComputerLauncher.class.getName());
 
-    /**
-     * Delay which will be applied when job {@link Queue#scheduleInternal(Queue.Task, int, List)}
-     * rescheduled after offline
-     */
-    private static final int RESCHEDULE_QUIET_PERIOD_SEC = 10;
-
     public EC2FleetAutoResubmitComputerLauncher(final ComputerLauncher launcher) {
         super(launcher);
     }
@@ -91,9 +89,19 @@ public class EC2FleetAutoResubmitComputerLauncher extends DelegatingComputerLaun
             LOGGER.log(LOG_LEVEL, "Unexpected " + computer.getDisplayName()
                     + " termination,  resubmit");
 
+            // instance is already gone, use last known description
+            final EC2FleetNode node = ((EC2FleetNodeComputer) computer).getNode();
+            final Instance instance = node == null ? null : cloud.getDescribedInstance(node.getNodeName());
+            final String instanceType = EC2FleetCloud.getInstanceType(instance);
+            final String availabilityZone = EC2FleetCloud.getAvailabilityZone(instance);
+            final InterruptionStatistics statistics = cloud.getInterruptionStatistics();
+
             for (Executor executor : executors) {
                 if (executor.getCurrentExecutable() != null) {
-                    executor.interrupt(Result.ABORTED, new EC2TerminationCause(computer.getDisplayName()));
+                    final long elapsed = executor.getElapsedTime();
+                    executor.interrupt(Result.ABORTED, new EC2TerminationCause(
+                            computer.getDisplayName(), instanceType, availabilityZone, elapsed));
+                    if (statistics != null) statistics.recordAborted(instanceType, availabilityZone, elapsed);
 
                     final Queue.Executable executable = executor.getCurrentExecutable();
                     // if executor is not idle
@@ -101,12 +109,16 @@ public class EC2FleetAutoResubmitComputerLauncher extends DelegatingComputerLaun
                         final SubTask subTask = executable.getParent();
                         final Queue.Task task = subTask.getOwnerTask();
 
-                        List<Action> actions = new ArrayList<>();
+                        final List<Action> actions = new ArrayList<>();
                         if (executable instanceof Actionable) {
-                            actions = ((Actionable) executable).getActions();
+                            actions.addAll(((Actionable) executable).getActions());
                         }
+                        // run could be resubmitted already, keep only marker of last loss
+                        actions.remove(new ResubmittedAction());
+                        actions.add(new ResubmittedAction(cloud.name, instanceType, availabilityZone));
 
-                        Queue.getInstance().schedule2(task, RESCHEDULE_QUIET_PERIOD_SEC, actions);
+                        // tasks of nodes lost together are resubmitted together
+                        ResubmitCoordinator.submit(cloud.name, computer.getDisplayName(), task, actions, elapsed);
                         LOGGER.log(LOG_LEVEL, "Unexpected " + computer.getDisplayName()
                                 + " termination, resubmit " + task + " with actions " + actions);
                     }
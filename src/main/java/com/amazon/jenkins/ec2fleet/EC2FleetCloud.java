@@ -15,8 +15,10 @@ import com.amazonaws.services.ec2.model.Region;
 import com.amazonaws.services.ec2.model.SpotFleetRequestConfig;
 import com.cloudbees.jenkins.plugins.awscredentials.AWSCredentialsHelper;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.SettableFuture;
 import hudson.Extension;
+import hudson.ExtensionList;
 import hudson.model.Computer;
 import hudson.model.Descriptor;
 import hudson.model.Label;
@@ -35,19 +37,26 @@ import org.apache.commons.lang.StringUtils;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
 import org.springframework.util.ObjectUtils;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -66,6 +75,27 @@ public class EC2FleetCloud extends Cloud {
     private static final int DEFAULT_INIT_ONLINE_TIMEOUT_SEC = 3 * 60;
     private static final int DEFAULT_INIT_ONLINE_CHECK_INTERVAL_SEC = 15;
 
+    /**
+     * Max time to wait for fleet to provide capacity for planned node, after that planned node
+     * will be expired so Jenkins stops to count it as coming capacity
+     */
+    private static final int PLANNED_NODE_TIMEOUT_SEC = 10 * 60;
+
+    /**
+     * After this amount of failed updates in a row cloud is not used for provision, till next successful update
+     */
+    private static final int MAX_UPDATE_FAILURES = 3;
+
+    /**
+     * How often unchanged state is stored by {@link FleetStateSnapshot}
+     */
+    private static final long SNAPSHOT_INTERVAL_MSEC = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * Launch within this time after termination is counted as churn
+     */
+    static final long CHURN_WINDOW_MSEC = TimeUnit.MINUTES.toMillis(10);
+
     private static final SimpleFormatter sf = new SimpleFormatter();
     private static final Logger LOGGER = Logger.getLogger(EC2FleetCloud.class.getName());
 
@@ -136,6 +166,53 @@ public class EC2FleetCloud extends Cloud {
      */
     private final boolean noDelayProvision;
 
+    /**
+     * Amount of idle online executors which cloud keeps regardless of queue, <code>null</code> or
+     * <code>0</code> to disable
+     */
+    private final Integer warmPoolSize;
+
+    /**
+     * Max capacity units added per minute, <code>null</code> or <code>0</code> for unlimited
+     *
+     * @see ScaleOutLimiter
+     */
+    private final Integer scaleOutUnitsPerMinute;
+
+    /**
+     * Max capacity units added at once after quiet period, <code>null</code> or <code>0</code> to use
+     * {@link EC2FleetCloud#scaleOutUnitsPerMinute}
+     */
+    private final Integer scaleOutBurst;
+
+    /**
+     * Idle timeout in seconds, when set it's used instead of {@link EC2FleetCloud#idleMinutes}
+     *
+     * @see IdleDeadlineScheduler
+     */
+    private final Integer idleSeconds;
+
+    /**
+     * Seconds after scale out when idle nodes are not terminated, <code>null</code> or <code>0</code> to disable
+     */
+    private final Integer scaleInCooldownSec;
+
+    /**
+     * Seconds from launch when instance is not terminated, <code>null</code> or <code>0</code> to disable
+     */
+    private final Integer minInstanceLifetimeSec;
+
+    /**
+     * Name of {@link ScaleInPolicy}, <code>null</code> for {@link ScaleInPolicy#ANY}
+     */
+    private final String scaleInPolicy;
+
+    /**
+     * Don't terminate idle nodes which are needed by queue and forecast demand of cloud,
+     * see {@link EC2FleetCloud#getPendingDemand(long)}
+     */
+    private final boolean keepIdleForDemand;
+
     /**
      * {@link EC2FleetCloud#update()} updating this field, this is one thread
      * related to {@link CloudNanny}. At the same time {@link IdleRetentionStrategy}
@@ -148,11 +225,156 @@ public class EC2FleetCloud extends Cloud {
      */
     private transient FleetStateStats stats;
 
+    /**
+     * <code>true</code> when {@link EC2FleetCloud#stats} was restored from {@link FleetStateSnapshot}
+     * after restart and not yet confirmed by {@link EC2FleetCloud#update()}
+     */
+    private transient boolean statsStale;
+
+    private transient long lastSnapshotTime;
+
+    private transient int lastSnapshotNumDesired;
+
+    /**
+     * Incremented under lock of cloud for each taken snapshot
+     */
+    private transient long snapshotVersion;
+
+    /**
+     * Serialize disk writes of {@link FleetStateSnapshot}
+     */
+    private transient Object snapshotLock;
+
+    /**
+     * Version of last stored snapshot, guarded by {@link EC2FleetCloud#snapshotLock}
+     */
+    private transient long savedSnapshotVersion;
+
     private transient int toAdd;
 
     private transient Set<String> instanceIdsToTerminate;
 
-    private transient Set<NodeProvisioner.PlannedNode> plannedNodesCache;
+    /**
+     * Instances which were removed from fleet target capacity and requested to terminate,
+     * but could still be described by EC2 as part of fleet. Used by {@link EC2FleetCloud#update()}
+     * to not add them back as new nodes and to retry termination if EC2 didn't accept it.
+     */
+    private transient Set<String> terminatingInstanceIds;
+
+    /**
+     * Serialize modification of fleet target capacity between {@link EC2FleetCloud#update()}
+     * and {@link EC2FleetTerminationWorker}, we don't use <code>this</code> to not block
+     * {@link EC2FleetCloud#provision(Label, int)} during EC2 API call.
+     */
+    private transient Object capacityLock;
+
+    /**
+     * Incremented each time when plugin modify target capacity, to detect that state
+     * read by {@link EC2FleetCloud#update()} could be older than local one.
+     */
+    private transient long capacityVersion;
+
+    private transient FleetCapacityCoordinator capacityCoordinator;
+
+    /**
+     * Used only by {@link EC2FleetCloud#update()} which is called by one thread {@link CloudNanny}
+     */
+    private transient FleetReconciler reconciler;
+
+    private transient PlannedNodeQueue plannedNodes;
+
+    /**
+     * Time from {@link EC2FleetCloud#provision(Label, int)} to node online for planned nodes
+     */
+    private transient LatencyHistogram provisionLatency;
+
+    /**
+     * Idle online executors found by last {@link EC2FleetCloud#update()}, reduced by each scheduled
+     * termination to not terminate warm pool or executors needed by demand till next update
+     */
+    private transient int idleExecutors;
+
+    /**
+     * Demand of cloud found by last {@link EC2FleetCloud#update()} when {@link EC2FleetCloud#keepIdleForDemand}
+     * is enabled, cached as it's too expensive to find for each termination
+     */
+    private transient int pendingDemand;
+
+    /**
+     * Built by {@link EC2FleetCloud#update()} from instance types of launched instances,
+     * <code>null</code> before first update
+     */
+    private transient WeightedCapacityModel capacityModel;
+
+    private transient int updateFailures;
+
+    /**
+     * Created on first {@link EC2FleetCloud#canProvision(Label)}
+     */
+    private transient volatile LabelMatcher labelMatcher;
+
+    private transient ProvisioningTrace provisioningTrace;
+
+    private transient ScaleOutLimiter scaleOutLimiter;
+
+    private transient LabelDemandLedger labelDemandLedger;
+
+    private transient SpotPriceCache spotPriceCache;
+
+    /**
+     * Nodes created for fleet instances
+     */
+    private transient long launchedNodes;
+
+    /**
+     * Nodes removed because instance disappeared without termination by plugin, like Spot interruption
+     */
+    private transient long interruptedNodes;
+
+    /**
+     * Tasks which got executor online before they entered queue
+     */
+    private transient long warmPoolHits;
+
+    /**
+     * Tasks which waited for executor to come online
+     */
+    private transient long warmPoolMisses;
+
+    /**
+     * Time of last capacity increase by {@link EC2FleetCloud#provision(Label, int)} or warm pool
+     */
+    private transient long lastScaleOutTime;
+
+    /**
+     * Fleet instances described by last {@link EC2FleetCloud#update()}, replaced as whole
+     */
+    private transient Map<String, Instance> describedInstances;
+
+    /**
+     * Launched and interrupted nodes and lost build time by instance type and zone,
+     * see {@link EC2FleetCloud#interruptedNodes}
+     */
+    private transient InterruptionStatistics interruptionStatistics;
+
+    /**
+     * Weight of instances which got spot interruption notice and replacement was requested,
+     * kept till instance is terminated, so target could be decreased by its weight even if
+     * instance is not described anymore
+     */
+    private transient Map<String, Double> interruptedWeights;
+
+    /**
+     * Times of terminations in last {@link EC2FleetCloud#CHURN_WINDOW_MSEC}, oldest first
+     */
+    private transient ArrayDeque<Long> recentTerminations;
+
+    /**
+     * Capacity units launched within {@link EC2FleetCloud#CHURN_WINDOW_MSEC} after termination
+     */
+    private transient long churnCount;
+
+    private transient long rejectedTerminations;
 
     @DataBoundConstructor
     public EC2FleetCloud(final String name,
@@ -178,7 +400,15 @@ public class EC2FleetCloud extends Cloud {
                          final Integer initOnlineCheckIntervalSec,
                          final boolean scaleExecutorsByWeight,
                          final Integer cloudStatusIntervalSec,
-                         final boolean noDelayProvision) {
+                         final boolean noDelayProvision,
+                         final Integer warmPoolSize,
+                         final Integer scaleOutUnitsPerMinute,
+                         final Integer scaleOutBurst,
+                         final Integer idleSeconds,
+                         final Integer scaleInCooldownSec,
+                         final Integer minInstanceLifetimeSec,
+                         final String scaleInPolicy,
+                         final boolean keepIdleForDemand) {
         super(StringUtils.isBlank(name) ? FLEET_CLOUD_ID : name);
         init();
         this.credentialsId = credentialsId;
@@ -203,10 +433,19 @@ public class EC2FleetCloud extends Cloud {
         this.initOnlineCheckIntervalSec = initOnlineCheckIntervalSec;
         this.cloudStatusIntervalSec = cloudStatusIntervalSec;
         this.noDelayProvision = noDelayProvision;
+        this.warmPoolSize = warmPoolSize;
+        this.scaleOutUnitsPerMinute = scaleOutUnitsPerMinute;
+        this.scaleOutBurst = scaleOutBurst;
+        this.idleSeconds = idleSeconds;
+        this.scaleInCooldownSec = scaleInCooldownSec;
+        this.minInstanceLifetimeSec = minInstanceLifetimeSec;
+        this.scaleInPolicy = scaleInPolicy;
+        this.keepIdleForDemand = keepIdleForDemand;
 
         if (StringUtils.isNotEmpty(oldId)) {
-            // existent cloud was modified, let's re-assign all dependencies of old cloud instance
-            // to new one
+            // existent cloud was modified, let's take runtime state and re-assign all dependencies
+            // of old cloud instance to new one
+            transferState(oldId);
             EC2FleetCloudAwareUtils.reassign(oldId, this);
         }
     }
@@ -291,6 +530,26 @@ public class EC2FleetCloud extends Cloud {
         return (idleMinutes != null) ? idleMinutes : 0;
     }
 
+    public int getIdleSeconds() {
+        return idleSeconds == null ? 0 : idleSeconds;
+    }
+
+    public int getScaleInCooldownSec() {
+        return scaleInCooldownSec == null ? 0 : scaleInCooldownSec;
+    }
+
+    public int getMinInstanceLifetimeSec() {
+        return minInstanceLifetimeSec == null ? 0 : minInstanceLifetimeSec;
+    }
+
+    public ScaleInPolicy getScaleInPolicy() {
+        return ScaleInPolicy.parse(scaleInPolicy);
+    }
+
+    public boolean isKeepIdleForDemand() {
+        return keepIdleForDemand;
+    }
+
     public Integer getMaxSize() {
         return maxSize;
     }
@@ -303,6 +562,35 @@ public class EC2FleetCloud extends Cloud {
         return numExecutors;
     }
 
+    public int getWarmPoolSize() {
+        return warmPoolSize == null ? 0 : warmPoolSize;
+    }
+
+    public int getScaleOutUnitsPerMinute() {
+        return scaleOutUnitsPerMinute == null ? 0 : scaleOutUnitsPerMinute;
+    }
+
+    public int getScaleOutBurst() {
+        return scaleOutBurst == null ? 0 : scaleOutBurst;
+    }
+
+    public ScaleOutLimiter getScaleOutLimiter() {
+        return scaleOutLimiter;
+    }
+
+    public LabelDemandLedger getLabelDemandLedger() {
+        return labelDemandLedger;
+    }
+
+    /**
+     * @return sum of hourly price of fleet instances with known price, <code>0</code> if none
+     */
+    public synchronized double getHourlyBurn() {
+        double burn = 0;
+        for (final Double price : getInstancePrices().values()) burn += price;
+        return burn;
+    }
+
     public boolean isScaleExecutorsByWeight() {
         return scaleExecutorsByWeight;
     }
@@ -320,11 +608,126 @@ public class EC2FleetCloud extends Cloud {
         return instanceIdsToTerminate;
     }
 
+    /**
+     * @return time from provision to node online for planned nodes
+     */
+    public LatencyHistogram getProvisionLatency() {
+        return provisionLatency;
+    }
+
+    /**
+     * @return last waves of {@link ResubmitCoordinator} which lost nodes of this cloud, oldest first
+     */
+    public List<ResubmitCoordinator.Wave> getResubmitWaves() {
+        final List<ResubmitCoordinator.Wave> waves = new ArrayList<>();
+        for (final ResubmitCoordinator.Wave wave : ResubmitCoordinator.getWaves()) {
+            if (wave.getClouds().contains(name)) waves.add(wave);
+        }
+        return waves;
+    }
+
+    /**
+     * @return last provisioning decisions for this cloud
+     */
+    public ProvisioningTrace getProvisioningTrace() {
+        return provisioningTrace;
+    }
+
+    public InterruptionStatistics getInterruptionStatistics() {
+        return interruptionStatistics;
+    }
+
+    /**
+     * @param instanceId instance
+     * @return instance described by last {@link EC2FleetCloud#update()} or <code>null</code>
+     */
+    @Nullable
+    public synchronized Instance getDescribedInstance(final String instanceId) {
+        return describedInstances == null ? null : describedInstances.get(instanceId);
+    }
+
+    @Nullable
+    static String getInstanceType(@Nullable final Instance instance) {
+        return instance == null ? null : instance.getInstanceType();
+    }
+
+    @Nullable
+    static String getAvailabilityZone(@Nullable final Instance instance) {
+        return instance == null || instance.getPlacement() == null ? null : instance.getPlacement().getAvailabilityZone();
+    }
+
+    /**
+     * {@link EC2FleetCloud#getInterruptionStatistics()} as JSON, available for administrators
+     * at <code>/cloud/&lt;name&gt;/interruptionStatistics</code>
+     *
+     * @param req request
+     * @param rsp response
+     * @throws IOException on write error
+     */
+    public void doInterruptionStatistics(final StaplerRequest req, final StaplerResponse rsp) throws IOException {
+        Jenkins.getActiveInstance().checkPermission(Jenkins.ADMINISTER);
+        rsp.setContentType("application/json;charset=UTF-8");
+        interruptionStatistics.toJson().write(rsp.getWriter());
+    }
+
+    /**
+     * Download {@link EC2FleetCloud#getProvisioningTrace()} as CSV, available for administrators
+     * at <code>/cloud/&lt;name&gt;/provisioningTrace</code>
+     *
+     * @param req request
+     * @param rsp response
+     * @throws IOException on write error
+     */
+    public void doProvisioningTrace(final StaplerRequest req, final StaplerResponse rsp) throws IOException {
+        Jenkins.getActiveInstance().checkPermission(Jenkins.ADMINISTER);
+        rsp.setContentType("text/csv;charset=UTF-8");
+        rsp.setHeader("Content-Disposition", "attachment; filename=\"" + name + "-provisioning-trace.csv\"");
+        provisioningTrace.writeCsv(rsp.getWriter());
+    }
+
+    /**
+     * Used by {@link NoDelayProvisionStrategy} to skip cloud which cannot provision now.
+     *
+     * @return <code>true</code> if no first update, fleet is not active or last updates failed
+     */
+    public synchronized boolean isProvisionBlocked() {
+        if (stats == null || updateFailures >= MAX_UPDATE_FAILURES) return true;
+        return !BatchState.Active.toString().equals(stats.getState())
+                && !BatchState.Modifying.toString().equals(stats.getState());
+    }
+
+    /**
+     * @return capacity units which could be added before max size, <code>0</code> if unknown
+     */
+    public synchronized int getHeadroom() {
+        if (stats == null) return 0;
+        return Math.max(0, getMaxSize() - stats.getNumDesired() - toAdd);
+    }
+
+    /**
+     * @return share of nodes lost without termination by plugin, from <code>0</code> to <code>1</code>
+     */
+    public synchronized double getInterruptionRate() {
+        return launchedNodes == 0 ? 0 : Math.min(1, (double) interruptedNodes / launchedNodes);
+    }
+
+    @VisibleForTesting
+    int getPlannedNodeCount() {
+        return plannedNodes.size();
+    }
+
     @VisibleForTesting
     synchronized int getToAdd() {
         return toAdd;
     }
 
+    /**
+     * @return <code>true</code> if current state is restored from disk and not yet updated from EC2
+     */
+    public synchronized boolean isStatsStale() {
+        return statsStale;
+    }
+
     @VisibleForTesting
     synchronized FleetStateStats getStats() {
         return stats;
@@ -339,46 +742,81 @@ public class EC2FleetCloud extends Cloud {
     public synchronized Collection<NodeProvisioner.PlannedNode> provision(final Label label, final int excessWorkload) {
         info("excessWorkload %s", excessWorkload);
 
+        final String traceLabel = label == null ? "" : label.getExpression();
+        final long now = System.currentTimeMillis();
+
         if (stats == null) {
             info("No first update, skip provision");
+            provisioningTrace.recordProvision(traceLabel, now, excessWorkload, -1, 0, ProvisioningTrace.Reason.NO_FIRST_UPDATE);
             return Collections.emptyList();
         }
 
+        if (statsStale) {
+            info("No first update, provision by state restored after restart");
+        }
+
         final int cap = stats.getNumDesired() + toAdd;
 
         if (cap >= getMaxSize()) {
             info("max %s reached, no more provision", getMaxSize());
+            provisioningTrace.recordProvision(traceLabel, now, excessWorkload, cap, 0, ProvisioningTrace.Reason.MAX_REACHED);
             return Collections.emptyList();
         }
 
-        if (!"active".equals(stats.getState())) {
+        // modifying fleet could accept load, planned capacity will be applied when modification is finished
+        if (!BatchState.Active.toString().equals(stats.getState())
+                && !BatchState.Modifying.toString().equals(stats.getState())) {
             info("fleet in %s not active state", stats.getState());
+            provisioningTrace.recordProvision(traceLabel, now, excessWorkload, cap, 0, ProvisioningTrace.Reason.FLEET_INACTIVE);
             return Collections.emptyList();
         }
 
-        // if the planned node has 0 executors configured force it to 1 so we end up doing an unweighted check
-        final int numExecutors1 = this.numExecutors == 0 ? 1 : this.numExecutors;
+        // fleet launches whole instances, so request capacity units for whole instances which cover
+        // workload and plan nodes with executors which they will have, for not weighted fleet
+        // one unit is one instance with numExecutors
+        final WeightedCapacityModel model = capacityModel != null ? capacityModel : WeightedCapacityModel.of(
+                numExecutors, scaleExecutorsByWeight, stats.getInstanceTypeWeights(), Collections.<String>emptyList());
+
+        // other labels served by this cloud could already plan spare executors in this round
+        final int demand = labelDemandLedger.claim(traceLabel, excessWorkload, now);
+        if (demand < 1) {
+            info("demand %s covered by capacity planned for other labels", excessWorkload);
+            provisioningTrace.recordProvision(traceLabel, now, excessWorkload, cap, 0, ProvisioningTrace.Reason.COVERED);
+            return Collections.emptyList();
+        }
 
-        // Calculate the ceiling, without having to work with doubles from Math.ceil
-        // https://stackoverflow.com/a/21830188/877024
-        final int weightedExcessWorkload = (excessWorkload + numExecutors1 - 1) / numExecutors1;
+        final int weightedExcessWorkload = model.getUnitsFor(model.getInstancesFor(demand));
         int targetCapacity = Math.min(cap + weightedExcessWorkload, getMaxSize());
 
         int toProvision = targetCapacity - cap;
-        info("to provision = %s", toProvision);
+        if (toProvision < 1) {
+            provisioningTrace.recordProvision(traceLabel, now, excessWorkload, cap, 0, ProvisioningTrace.Reason.NOTHING_TO_PROVISION);
+            return Collections.emptyList();
+        }
 
-        if (toProvision < 1) return Collections.emptyList();
+        final int granted = scaleOutLimiter.acquire(toProvision, getScaleOutUnitsPerMinute(), getScaleOutBurst(), now);
+        if (granted < toProvision) {
+            info("scale out limited, granted %s of %s units", granted, toProvision);
+            scaleOutLimiter.defer(traceLabel, toProvision - granted);
+            toProvision = granted;
+        }
+        if (toProvision < 1) {
+            provisioningTrace.recordProvision(traceLabel, now, excessWorkload, cap, 0, ProvisioningTrace.Reason.RATE_LIMITED);
+            return Collections.emptyList();
+        }
+
+        final int instancesToProvision = model.getInstancesForUnits(toProvision);
+        info("to provision = %s units, %s instances, %s", toProvision, instancesToProvision, model);
 
         toAdd += toProvision;
+        recordScaleOut(toProvision, now);
+        provisioningTrace.recordProvision(traceLabel, now, excessWorkload, cap, toProvision, ProvisioningTrace.Reason.PROVISIONED);
 
         final List<NodeProvisioner.PlannedNode> resultList = new ArrayList<>();
-        for (int f = 0; f < toProvision; ++f) {
-            // todo make name unique per fleet
-            final NodeProvisioner.PlannedNode plannedNode = new NodeProvisioner.PlannedNode(
-                    "FleetNode-" + f, SettableFuture.<Node>create(), this.numExecutors);
-            resultList.add(plannedNode);
-            plannedNodesCache.add(plannedNode);
+        for (int f = 0; f < instancesToProvision; ++f) {
+            resultList.add(plannedNodes.add("FleetNode-" + name, model.getExecutorsPerInstance(), now));
         }
+        labelDemandLedger.recordPlanned(traceLabel, demand, resultList, now);
         return resultList;
     }
 
@@ -388,107 +826,107 @@ public class EC2FleetCloud extends Cloud {
      * @return current state
      */
     public FleetStateStats update() {
-        info("start");
-
-        final int currentToAdd;
-        final Set<String> currentInstanceIdsToTerminate;
-
-        // make snapshot of current state to work with
-        // this method should always work with snapshot
-        // as data could be modified
-        synchronized (this) {
-            currentToAdd = toAdd;
-            currentInstanceIdsToTerminate = new HashSet<>(instanceIdsToTerminate);
+        try {
+            final FleetStateStats result = doUpdate();
+            synchronized (this) {
+                updateFailures = 0;
+            }
+            return result;
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                updateFailures++;
+            }
+            throw e;
         }
+    }
+
+    private FleetStateStats doUpdate() {
+        info("start");
 
         final Jenkins jenkins = Jenkins.getInstance();
 
         final AmazonEC2 ec2 = Registry.getEc2Api().connect(getAwsCredentialsId(), region, endpoint);
 
-        if (currentToAdd > 0 || currentInstanceIdsToTerminate.size() > 0) {
-            final int targetCapacity = stats.getNumDesired() - currentInstanceIdsToTerminate.size() + toAdd;
-            // we do update any time even real capacity was not update like remove one add one to
-            // update fleet settings with NoTermination so we can terminate instances on our own
-            final ModifySpotFleetRequestRequest request = new ModifySpotFleetRequestRequest();
-            request.setSpotFleetRequestId(fleet);
-            request.setTargetCapacity(targetCapacity);
-            request.setExcessCapacityTerminationPolicy("NoTermination");
-            ec2.modifySpotFleetRequest(request);
-            info("Update fleet target capacity to %s", targetCapacity);
+        if (isStatsStale()) {
+            // changes restored after restart could be already applied to fleet, so refresh
+            // target capacity before applying them, to not do it twice
+            final FleetStateStats actualStats = FleetStateStats.readClusterState(ec2, getFleet(), labelString);
+            synchronized (this) {
+                stats = actualStats;
+                instanceIdsToTerminate.retainAll(actualStats.getInstances());
+                statsStale = false;
+            }
+            info("Restored state refreshed, target capacity %s", actualStats.getNumDesired());
         }
 
-        if (currentInstanceIdsToTerminate.size() > 0) {
-            // internally removeNode lock on queue to correctly update node list
-            // we do big block for all removal to avoid delay on lock waiting
-            // for each node
-            Queue.withLock(new Runnable() {
-                @Override
-                public void run() {
-                    for (final String instanceId : currentInstanceIdsToTerminate) {
-                        final Node node = jenkins.getNode(instanceId);
-                        if (node != null) {
-                            try {
-                                jenkins.removeNode(node);
-                            } catch (IOException e) {
-                                warning("unable remove node %s from Jenkins, skip, just terminate EC2 instance", instanceId);
-                            }
-                        }
-                    }
-                }
-            });
-            info("Delete terminating nodes from Jenkins %s", currentInstanceIdsToTerminate);
+        // apply all changes which were not picked up by termination worker
+        applyPendingChanges(ec2);
 
-            Registry.getEc2Api().terminateInstances(ec2, currentInstanceIdsToTerminate);
-            info("Instances %s were terminated with result", currentInstanceIdsToTerminate);
+        final List<PlannedNodeQueue.Entry> expired = plannedNodes.expire(
+                System.currentTimeMillis(), TimeUnit.SECONDS.toMillis(PLANNED_NODE_TIMEOUT_SEC));
+        if (expired.size() > 0) {
+            warning("%s planned nodes expired, capacity was not provided in %s sec", expired.size(), PLANNED_NODE_TIMEOUT_SEC);
         }
 
-        final FleetStateStats currentStats = FleetStateStats.readClusterState(ec2, getFleet(), labelString);
-        info("fleet instances: %s", currentStats.getInstances());
+        // reconciler keeps its buffers between updates, all lists are valid until next begin
+        reconciler.begin();
+
+        final long startCapacityVersion;
+        synchronized (this) {
+            startCapacityVersion = capacityVersion;
+            for (final String instanceId : terminatingInstanceIds) reconciler.markTerminating(instanceId);
+        }
 
-        // Set up the lists of Jenkins nodes and fleet instances
-        // currentFleetInstances contains instances currently in the fleet
-        final Set<String> fleetInstances = new HashSet<>(currentStats.getInstances());
+        final FleetStateStats currentStats = FleetStateStats.readClusterState(ec2, getFleet(), labelString);
+        for (final String instanceId : currentStats.getInstances()) reconciler.markFleet(instanceId);
 
-        final Map<String, Instance> described = Registry.getEc2Api().describeInstances(ec2, fleetInstances);
-        info("described instances: %s", described.keySet());
+        final Map<String, Instance> described = Registry.getEc2Api().describeInstances(ec2, currentStats.getInstances());
+        final List<String> launchedTypes = new ArrayList<>(described.size());
+        for (final Map.Entry<String, Instance> entry : described.entrySet()) {
+            reconciler.markDescribed(entry.getKey());
+            if (entry.getValue().getInstanceType() != null) launchedTypes.add(entry.getValue().getInstanceType());
+        }
+        final WeightedCapacityModel currentCapacityModel = WeightedCapacityModel.of(
+                numExecutors, scaleExecutorsByWeight, currentStats.getInstanceTypeWeights(), launchedTypes);
 
-        // currentJenkinsNodes contains all registered Jenkins nodes related to this cloud
-        final Set<String> jenkinsInstances = new HashSet<>();
+        // all registered Jenkins nodes related to this cloud
         for (final Node node : jenkins.getNodes()) {
             if (node instanceof EC2FleetNode && ((EC2FleetNode) node).getCloud() == this) {
-                jenkinsInstances.add(node.getNodeName());
+                reconciler.markJenkins(node.getNodeName());
             }
         }
-        info("jenkins nodes %s", jenkinsInstances);
 
-        // contains Jenkins nodes that were once fleet instances but are no longer in the fleet
-        final Set<String> jenkinsNodesWithInstance = new HashSet<>(jenkinsInstances);
-        jenkinsNodesWithInstance.removeAll(fleetInstances);
-        info("jenkins nodes without instance %s", jenkinsNodesWithInstance);
+        reconciler.finish();
+        info("reconcile %s", reconciler.getSummary());
+        fine("new instances %s, nodes to remove %s", reconciler.getNewInstances(), reconciler.getNodesToRemove());
 
-        // terminatedFleetInstances contains fleet instances that are terminated, stopped, stopping, or shutting down
-        final Set<String> terminatedFleetInstances = new HashSet<>(fleetInstances);
-        // terminated are any current which cannot be described
-        terminatedFleetInstances.removeAll(described.keySet());
-        info("terminated instances " + terminatedFleetInstances);
+        // termination is idempotent, so retry for instances which are still running after our request
+        if (reconciler.getTerminatingRunning().size() > 0) {
+            final Set<String> notTerminatedInstanceIds = new HashSet<>(reconciler.getTerminatingRunning());
+            Registry.getEc2Api().terminateInstances(ec2, notTerminatedInstanceIds);
+            info("Instances %s were still running, terminate again", notTerminatedInstanceIds);
+        }
 
-        // newFleetInstances contains running fleet instances that are not already Jenkins nodes
-        final Map<String, Instance> newFleetInstances = new HashMap<>(described);
-        for (final String instanceId : jenkinsInstances) newFleetInstances.remove(instanceId);
-        info("new instances " + newFleetInstances.keySet());
+        // Remove Jenkins nodes that were once fleet instances but are no longer in the fleet
+        // or terminated, stopped, stopping, or shutting down
+        for (final String instanceId : reconciler.getNodesToRemove()) {
+            info("Fleet no longer has the instance %s, removing from Jenkins.", instanceId);
+            removeNode(instanceId);
+        }
 
-        // update caches
-        final List<String> jenkinsNodesToRemove = new ArrayList<>();
-        jenkinsNodesToRemove.addAll(terminatedFleetInstances);
-        jenkinsNodesToRemove.addAll(jenkinsNodesWithInstance);
-        // Remove dying fleet instances from Jenkins
-        for (final String instance : jenkinsNodesToRemove) {
-            info("Fleet (" + getLabelString() + ") no longer has the instance " + instance + ", removing from Jenkins.");
-            removeNode(instance);
+        synchronized (this) {
+            for (final String instanceId : reconciler.getNodesToRemove()) {
+                if (terminatingInstanceIds.contains(instanceId)) continue;
+                // EC2 interrupted instance before we terminated it, replacement was already added to target
+                if (interruptedWeights.containsKey(instanceId)) instanceIdsToTerminate.add(instanceId);
+                interruptedNodes++;
+                final Instance instance = describedInstances == null ? null : describedInstances.get(instanceId);
+                interruptionStatistics.recordInterrupted(getInstanceType(instance), getAvailabilityZone(instance));
+            }
         }
 
         // Update the label for all Jenkins nodes in the fleet instance cache
-        for (final String instanceId : jenkinsInstances) {
+        for (final String instanceId : reconciler.getNodesToKeep()) {
             final Node node = jenkins.getNode(instanceId);
             if (node == null) continue;
 
@@ -503,15 +941,16 @@ public class EC2FleetCloud extends Cloud {
         }
 
         // If we have new instances - create nodes for them!
-        if (newFleetInstances.size() > 0) {
+        final List<String> newInstances = reconciler.getNewInstances();
+        if (newInstances.size() > 0) {
             // addNewSlave will call addNode which call queue lock
             // we speed up this by getting one lock for all nodes to all
             Queue.withLock(new Runnable() {
                 @Override
                 public void run() {
                     try {
-                        for (final Instance instance : newFleetInstances.values()) {
-                            addNewSlave(ec2, instance, currentStats);
+                        for (final String instanceId : newInstances) {
+                            addNewSlave(ec2, described.get(instanceId), currentStats);
                         }
                     } catch (final Exception ex) {
                         warning(ex, "Unable to set label on node");
@@ -520,24 +959,301 @@ public class EC2FleetCloud extends Cloud {
             });
         }
 
-        // lock and update state of plugin, so terminate or provision could work with new state of world
+        int currentIdleExecutors = 0;
+        int comingExecutors = 0;
+        for (final String instanceId : reconciler.getNodesToKeep()) {
+            final Computer computer = jenkins.getComputer(instanceId);
+            if (computer == null) continue;
+            if (computer.isOnline()) currentIdleExecutors += computer.countIdle();
+            else comingExecutors += computer.countExecutors();
+        }
+        // demand is checked on each termination, find it once per update out of lock of cloud
+        final int currentPendingDemand = keepIdleForDemand ? getPendingDemand(System.currentTimeMillis()) : 0;
         synchronized (this) {
-            instanceIdsToTerminate.removeAll(currentInstanceIdsToTerminate);
-            // toAdd only grow outside of this method, so we can subtract
-            toAdd = toAdd - currentToAdd;
-            stats = currentStats;
+            idleExecutors = currentIdleExecutors;
+            pendingDemand = currentPendingDemand;
         }
 
-        return stats;
-    }
+        if (getWarmPoolSize() > 0) {
+            // nodes just added by this update
+            for (final String instanceId : reconciler.getNewInstances()) {
+                final Instance instance = described.get(instanceId);
+                comingExecutors += getExecutors(currentStats, instance == null ? null : instance.getInstanceType());
+            }
+            topUpWarmPool(currentStats, currentCapacityModel, currentIdleExecutors, comingExecutors);
+        }
 
-    /**
-     * Schedule Jenkins Node and EC2 instance to termination. Check first if target capacity more
-     * then <code>minSize</code> otherwise reject termination.
+        reviewDeferredDemand(jenkins);
+
+        try {
+            if (spotPriceCache.refreshIfNeeded(ec2, described.values(), System.currentTimeMillis())) {
+                fine("spot prices reloaded");
+            }
+        } catch (final Exception e) {
+            // price is optional, cached prices are used till next try
+            warning(e, "cannot load spot prices");
+        }
+
+        // lock and update state of plugin, so terminate or provision could work with new state of world
+        synchronized (this) {
+            // instances which are not in fleet anymore are confirmed as terminated
+            terminatingInstanceIds.retainAll(currentStats.getInstances());
+            final Iterator<String> interrupted = interruptedWeights.keySet().iterator();
+            while (interrupted.hasNext()) {
+                final String instanceId = interrupted.next();
+                if (!currentStats.getInstances().contains(instanceId) && !instanceIdsToTerminate.contains(instanceId)) {
+                    interrupted.remove();
+                }
+            }
+            capacityModel = currentCapacityModel;
+            describedInstances = described;
+            if (capacityVersion == startCapacityVersion) {
+                stats = currentStats;
+            } else {
+                // target capacity was modified by termination worker when we read state
+                // EC2 could return old target, keep our own one
+                stats = new FleetStateStats(currentStats.getFleetId(), stats.getNumDesired(),
+                        currentStats.getState(), currentStats.getInstances(), currentStats.getInstanceTypeWeights());
+            }
+        }
+
+        saveSnapshot(false);
+
+        return getStats();
+    }
+
+    /**
+     * Keep {@link EC2FleetCloud#getWarmPoolSize()} idle executors. Count idle executors of online nodes
+     * and executors which are coming: connecting nodes, fleet capacity without instances yet and
+     * capacity not yet applied to fleet. Missing capacity is added the same way as by
+     * {@link EC2FleetCloud#provision(Label, int)} and applied by {@link EC2FleetTerminationWorker}, so update
+     * doesn't wait for it.
+     *
+     * @param currentStats    fleet state read by this update
+     * @param model           capacity model of fleet read by this update
+     * @param idleExecutors   idle executors of online nodes
+     * @param comingExecutors executors of connecting nodes and nodes added by this update
+     */
+    private void topUpWarmPool(final FleetStateStats currentStats, final WeightedCapacityModel model,
+                               final int idleExecutors, int comingExecutors) {
+        final int toProvision;
+        synchronized (this) {
+            // capacity without instances, weighted fleet launches instances of unknown type for it
+            final int notLaunched = Math.max(0, currentStats.getNumDesired()
+                    - model.getUnitsFor(currentStats.getInstances().size()));
+            comingExecutors += model.getInstancesForUnits(notLaunched + toAdd) * model.getExecutorsPerInstance();
+
+            final int missingExecutors = getWarmPoolSize() - idleExecutors - comingExecutors;
+            final int cap = (stats == null ? currentStats.getNumDesired() : stats.getNumDesired()) + toAdd;
+            final int missingUnits = Math.max(0, Math.min(model.getUnitsFor(model.getInstancesFor(missingExecutors)), getMaxSize() - cap));
+            // warm pool is not urgent, don't defer it
+            toProvision = scaleOutLimiter.acquire(missingUnits, getScaleOutUnitsPerMinute(), getScaleOutBurst(),
+                    System.currentTimeMillis());
+            toAdd += toProvision;
+            if (toProvision > 0) recordScaleOut(toProvision, System.currentTimeMillis());
+        }
+
+        info("warm pool %s, idle %s, coming %s, to provision %s, hits %s, misses %s",
+                getWarmPoolSize(), idleExecutors, comingExecutors, toProvision, getWarmPoolHits(), getWarmPoolMisses());
+
+        if (toProvision > 0) EC2FleetTerminationWorker.schedule(this);
+    }
+
+    /**
+     * Ask node provisioner to provision demand deferred by {@link ScaleOutLimiter} as soon as limit allows,
+     * instead of waiting for next regular provisioning round.
+     *
+     * @param jenkins jenkins
+     */
+    private void reviewDeferredDemand(final Jenkins jenkins) {
+        final List<String> labels = scaleOutLimiter.takeDeferredLabels(
+                getScaleOutUnitsPerMinute(), getScaleOutBurst(), System.currentTimeMillis());
+        for (final String labelExpression : labels) {
+            final Label label = labelExpression.isEmpty() ? null : jenkins.getLabel(labelExpression);
+            final NodeProvisioner nodeProvisioner = label == null ? jenkins.unlabeledNodeProvisioner : label.nodeProvisioner;
+            nodeProvisioner.suggestReviewNow();
+        }
+        if (!labels.isEmpty()) info("Scale out limit refilled, review deferred demand for %s", labels);
+    }
+
+    /**
+     * Called by {@link EC2FleetNodeComputer} when executor of this cloud accepts task.
+     *
+     * @param warm <code>true</code> if executor was online before task entered queue
+     */
+    public synchronized void recordTaskAccepted(final boolean warm) {
+        if (warm) warmPoolHits++;
+        else warmPoolMisses++;
+    }
+
+    public synchronized long getWarmPoolHits() {
+        return warmPoolHits;
+    }
+
+    public synchronized long getWarmPoolMisses() {
+        return warmPoolMisses;
+    }
+
+    /**
+     * @return share of tasks which didn't wait for executor from <code>0</code> to <code>1</code>
+     */
+    public synchronized double getWarmPoolHitRate() {
+        final long total = warmPoolHits + warmPoolMisses;
+        return total == 0 ? 0 : (double) warmPoolHits / total;
+    }
+
+    /**
+     * Apply scheduled terminations and provision without waiting for next {@link EC2FleetCloud#update()}.
+     * Called by {@link EC2FleetTerminationWorker}.
+     */
+    public void applyPendingChanges() {
+        applyPendingChanges(Registry.getEc2Api().connect(getAwsCredentialsId(), region, endpoint));
+    }
+
+    /**
+     * Modify fleet target capacity according to scheduled terminations and planned capacity, remove terminating
+     * nodes from Jenkins and terminate EC2 instances. Local state is updated as soon as EC2 accepted changes,
+     * so {@link EC2FleetCloud#provision(Label, int)} and {@link EC2FleetCloud#scheduleToTerminate(String)}
+     * could use it before next {@link EC2FleetCloud#update()}.
+     *
+     * @param ec2 ec2 client
+     */
+    private void applyPendingChanges(final AmazonEC2 ec2) {
+        final Set<String> currentInstanceIdsToTerminate;
+
+        synchronized (capacityLock) {
+            final int currentToAdd;
+            final int targetCapacity;
+            final FleetCapacityCoordinator.Action action;
+
+            // make snapshot of current state to work with
+            // this method should always work with snapshot
+            // as data could be modified
+            synchronized (this) {
+                if (stats == null) return;
+                currentToAdd = toAdd;
+                currentInstanceIdsToTerminate = new HashSet<>(instanceIdsToTerminate);
+                if (currentToAdd == 0 && currentInstanceIdsToTerminate.isEmpty()) return;
+                // all provisions and terminations happened since last change are merged in one target
+                targetCapacity = stats.getNumDesired() - getUnits(currentInstanceIdsToTerminate) + currentToAdd;
+                action = capacityCoordinator.decide(stats, targetCapacity);
+            }
+
+            if (action == FleetCapacityCoordinator.Action.HOLD) {
+                // we cannot terminate instances without target decrease as fleet will replace them
+                // so keep everything pending, next update will get new fleet state and try again
+                info("Fleet is modifying, hold target capacity change to %s", targetCapacity);
+                return;
+            }
+
+            if (action == FleetCapacityCoordinator.Action.APPLY) {
+                // set NoTermination so fleet doesn't terminate instances on decrease, we terminate
+                // exactly instances which are idle on our own
+                final ModifySpotFleetRequestRequest request = new ModifySpotFleetRequestRequest();
+                request.setSpotFleetRequestId(fleet);
+                request.setTargetCapacity(targetCapacity);
+                request.setExcessCapacityTerminationPolicy("NoTermination");
+                ec2.modifySpotFleetRequest(request);
+                info("Update fleet target capacity to %s", targetCapacity);
+            } else {
+                info("Fleet target capacity is already %s, skip update", targetCapacity);
+            }
+
+            synchronized (this) {
+                instanceIdsToTerminate.removeAll(currentInstanceIdsToTerminate);
+                terminatingInstanceIds.addAll(currentInstanceIdsToTerminate);
+                // toAdd only grow outside of this method, so we can subtract
+                toAdd = toAdd - currentToAdd;
+                if (action == FleetCapacityCoordinator.Action.APPLY) {
+                    capacityVersion++;
+                    stats = new FleetStateStats(stats.getFleetId(), targetCapacity, stats.getState(),
+                            stats.getInstances(), stats.getInstanceTypeWeights());
+                }
+            }
+        }
+
+        // store applied changes immediately, so they will not be applied again after restart,
+        // disk write is done outside of capacity lock to not delay next change
+        saveSnapshot(true);
+
+        if (currentInstanceIdsToTerminate.size() > 0) {
+            final Jenkins jenkins = Jenkins.getInstance();
+            // internally removeNode lock on queue to correctly update node list
+            // we do big block for all removal to avoid delay on lock waiting
+            // for each node
+            Queue.withLock(new Runnable() {
+                @Override
+                public void run() {
+                    for (final String instanceId : currentInstanceIdsToTerminate) {
+                        final Node node = jenkins.getNode(instanceId);
+                        if (node != null) {
+                            try {
+                                jenkins.removeNode(node);
+                            } catch (IOException e) {
+                                warning("unable remove node %s from Jenkins, skip, just terminate EC2 instance", instanceId);
+                            }
+                        }
+                    }
+                }
+            });
+            info("Delete terminating nodes from Jenkins %s", currentInstanceIdsToTerminate);
+
+            Registry.getEc2Api().terminateInstances(ec2, currentInstanceIdsToTerminate);
+            info("Instances %s were terminated with result", currentInstanceIdsToTerminate);
+        }
+    }
+
+    /**
+     * Request replacement for instance which got spot interruption notice, target capacity is increased
+     * by weight of instance right away, so fleet launches replacement while instance finishes its work.
+     * Target is decreased back when instance is terminated by
+     * {@link EC2FleetCloud#terminateInterrupted(String)} or interrupted by EC2, so fleet size stays the same.
      * <p>
-     * Real termination will happens in {@link EC2FleetCloud#update()} which periodically called by
-     * {@link CloudNanny}. So it could be some lag between decision that node should be terminated
-     * and actual termination, you can find max lag size in {@link CloudNanny#getRecurrencePeriod()}
+     * Replacement is not limited by {@link ScaleOutLimiter} and <code>maxSize</code>, it's temporary. It's not
+     * scale out, so it doesn't start scale in cooldown and is not counted as churn.
+     *
+     * @param instanceId instance
+     * @return <code>true</code> if replacement was requested, <code>false</code> if it was already
+     */
+    public synchronized boolean replaceInterrupted(final String instanceId) {
+        if (interruptedWeights.containsKey(instanceId)) return false;
+        if (stats == null) {
+            info("First update not done, skipping replacement of interrupted %s", instanceId);
+            return false;
+        }
+
+        final int units = getUnits(instanceId);
+        interruptedWeights.put(instanceId, getWeight(instanceId));
+        toAdd += units;
+        info("Spot interruption notice for %s, replace by %s units", instanceId, units);
+        EC2FleetTerminationWorker.schedule(this);
+        return true;
+    }
+
+    /**
+     * Terminate instance replaced by {@link EC2FleetCloud#replaceInterrupted(String)}, without check of
+     * <code>minSize</code>, cooldown and warm pool as replacement is already counted in target.
+     *
+     * @param instanceId instance
+     * @return <code>true</code> if instance was scheduled to terminate
+     */
+    public synchronized boolean terminateInterrupted(final String instanceId) {
+        if (!interruptedWeights.containsKey(instanceId)) return false;
+        if (instanceIdsToTerminate.contains(instanceId) || terminatingInstanceIds.contains(instanceId)) return false;
+
+        instanceIdsToTerminate.add(instanceId);
+        info("Scheduling interrupted instance %s to terminate", instanceId);
+        EC2FleetTerminationWorker.schedule(this);
+        return true;
+    }
+
+    /**
+     * Schedule Jenkins Node and EC2 instance to termination. Check first if target capacity more
+     * then <code>minSize</code> otherwise reject termination.
+     * <p>
+     * Real termination will happens in {@link EC2FleetTerminationWorker} which is triggered by this method,
+     * or in {@link EC2FleetCloud#update()} if it's called earlier. So lag between decision that node should be
+     * terminated and actual termination is only worker batch delay.
      * <p>
      * This method doesn't do real termination to reduce load for Jenkins in case when multiple nodes should be
      * terminated in short time, without schedule process and batch termination, multiple calls should be raised
@@ -548,39 +1264,451 @@ public class EC2FleetCloud extends Cloud {
      */
     public synchronized boolean scheduleToTerminate(final String instanceId) {
         info("Attempting to terminate instance: %s", instanceId);
+        return scheduleToTerminate(Collections.singletonList(instanceId)).contains(instanceId);
+    }
+
+    /**
+     * Batch version of {@link EC2FleetCloud#scheduleToTerminate(String)} used by {@link IdleSweeper},
+     * instances are ordered by {@link ScaleInPolicy} and accepted in that order while rules of
+     * {@link EC2FleetCloud#getTerminationBlock(String, long)} allow.
+     *
+     * @param instanceIds instances to terminate
+     * @return accepted instances, empty if none
+     */
+    public synchronized Set<String> scheduleToTerminate(final Collection<String> instanceIds) {
+        if (instanceIds.isEmpty()) return Collections.emptySet();
 
         if (stats == null) {
-            info("First update not done, skip termination");
-            return false;
+            info("First update not done, skip termination of %s instances", instanceIds.size());
+            return Collections.emptySet();
         }
 
-        // We can't remove instances beyond minSize
-        if (minSize > 0 && stats.getNumDesired() - instanceIdsToTerminate.size() <= minSize) {
-            info("Not terminating %s because we need a minimum of %s instances running.", instanceId, minSize);
-            return false;
+        if (statsStale) {
+            info("No first update, terminate by state restored after restart");
         }
 
-        instanceIdsToTerminate.add(instanceId);
-        return true;
+        final long now = System.currentTimeMillis();
+        final String scaleInBlock = getScaleInBlock(now);
+        if (scaleInBlock != null) {
+            info("Not terminating %s idle instances because %s", instanceIds.size(), scaleInBlock);
+            rejectedTerminations += instanceIds.size();
+            return Collections.emptySet();
+        }
+
+        final Set<String> accepted = new HashSet<>();
+        for (final String instanceId : ScaleInVictimSelector.order(instanceIds, getScaleInPolicy(),
+                describedInstances == null ? Collections.<String, Instance>emptyMap() : describedInstances,
+                interruptionStatistics.getInterruptedByType(), getInstancePrices(), getInstanceExecutors(instanceIds))) {
+            // already scheduled instance doesn't change capacity
+            if (instanceIdsToTerminate.contains(instanceId)) {
+                accepted.add(instanceId);
+                continue;
+            }
+
+            final String block = getTerminationBlock(instanceId, now);
+            if (block != null) {
+                info("Not terminating %s because %s", instanceId, block);
+                continue;
+            }
+
+            instanceIdsToTerminate.add(instanceId);
+            idleExecutors -= getExecutors(instanceId);
+            recordTermination(now);
+            accepted.add(instanceId);
+        }
+
+        if (instanceIds.size() > 1) {
+            info("Scheduled to terminate %s of %s idle instances, min size %s, warm pool %s",
+                    accepted.size(), instanceIds.size(), minSize, getWarmPoolSize());
+        }
+        if (!accepted.isEmpty()) EC2FleetTerminationWorker.schedule(this);
+        return accepted;
+    }
+
+    /**
+     * Rules checked for each instance by single and batch termination. Instances accepted earlier
+     * in the same batch are already in {@link EC2FleetCloud#instanceIdsToTerminate} and
+     * {@link EC2FleetCloud#idleExecutors}. Should be called under lock of cloud.
+     * <p>
+     * Only rejection by min instance lifetime and demand is counted by
+     * {@link EC2FleetCloud#getRejectedTerminations()}, <code>minSize</code> and warm pool are expected to keep idle nodes.
+     *
+     * @param instanceId instance
+     * @param now        current time
+     * @return reason why instance should not be terminated or <code>null</code> if it could be
+     */
+    @Nullable
+    private String getTerminationBlock(final String instanceId, final long now) {
+        if (isTooYoung(instanceId, now)) {
+            rejectedTerminations++;
+            return "it's younger than " + getMinInstanceLifetimeSec() + " sec";
+        }
+
+        // We can't remove instances beyond minSize, weighted instance removes its weight,
+        // weights are summed before rounding same as by getUnits(Collection)
+        if (minSize > 0 && stats.getNumDesired()
+                - Math.round(getWeight(instanceIdsToTerminate) + getWeight(instanceId)) < minSize) {
+            return "we need a minimum of " + minSize + " instances running";
+        }
+
+        // terminated node is idle, keep it if without it warm pool is not full
+        final int executors = getExecutors(instanceId);
+        if (getWarmPoolSize() > 0 && idleExecutors - executors < getWarmPoolSize()) {
+            return "we need " + getWarmPoolSize() + " idle executors in warm pool";
+        }
+
+        // or if queue and forecast need its executors
+        if (keepIdleForDemand && pendingDemand > 0 && idleExecutors - executors < pendingDemand) {
+            rejectedTerminations++;
+            return "queue and forecast have demand " + pendingDemand + " for cloud, idle executors " + idleExecutors;
+        }
+        return null;
+    }
+
+    /**
+     * Scale in cooldown, enabled by {@link EC2FleetCloud#getScaleInCooldownSec()}. Should be called
+     * under lock of cloud.
+     *
+     * @param now current time
+     * @return reason why idle nodes should not be terminated now or <code>null</code> if they could be
+     */
+    @Nullable
+    private String getScaleInBlock(final long now) {
+        if (getScaleInCooldownSec() <= 0) return null;
+
+        final long sinceScaleOut = now - lastScaleOutTime;
+        if (sinceScaleOut < TimeUnit.SECONDS.toMillis(getScaleInCooldownSec())) {
+            return "scale out was " + TimeUnit.MILLISECONDS.toSeconds(sinceScaleOut) + " sec ago, cooldown "
+                    + getScaleInCooldownSec() + " sec";
+        }
+        return null;
+    }
+
+    /**
+     * Called by {@link EC2FleetCloud#update()} out of lock of cloud, scans buildable queue.
+     *
+     * @param now current time
+     * @return buildable tasks in queue which cloud could run plus demand predicted by
+     * {@link ForecastProvisionStrategy} if enabled
+     */
+    @VisibleForTesting
+    protected int getPendingDemand(final long now) {
+        final Jenkins jenkins = Jenkins.getInstance();
+        if (jenkins == null) return 0;
+
+        int demand = 0;
+        final Queue queue = jenkins.getQueue();
+        if (queue != null) {
+            for (final Queue.BuildableItem item : queue.getBuildableItems()) {
+                if (canProvision(item.getAssignedLabel())) demand++;
+            }
+        }
+
+        final ForecastProvisionStrategy forecast = getForecastProvisionStrategy();
+        if (forecast != null) demand += forecast.getPredictedDemand(this, now);
+        return demand;
+    }
+
+    /**
+     * @return forecaster with error metrics or <code>null</code> if {@link ForecastProvisionStrategy} is disabled
+     */
+    @Nullable
+    public DemandForecaster getDemandForecaster() {
+        final ForecastProvisionStrategy forecast = getForecastProvisionStrategy();
+        return forecast == null || !forecast.isEnabled() ? null : forecast.getForecaster();
+    }
+
+    @Nullable
+    private static ForecastProvisionStrategy getForecastProvisionStrategy() {
+        return ExtensionList.lookup(NodeProvisioner.Strategy.class).get(ForecastProvisionStrategy.class);
+    }
+
+    private boolean isTooYoung(final String instanceId, final long now) {
+        if (getMinInstanceLifetimeSec() <= 0 || describedInstances == null) return false;
+        final Instance instance = describedInstances.get(instanceId);
+        if (instance == null || instance.getLaunchTime() == null) return false;
+        return now - instance.getLaunchTime().getTime() < TimeUnit.SECONDS.toMillis(getMinInstanceLifetimeSec());
+    }
+
+    /**
+     * Should be called under lock of cloud.
+     *
+     * @param instanceId instance
+     * @return weight of instance type in capacity units, <code>1</code> if unknown
+     */
+    private double getWeight(final String instanceId) {
+        final Double interruptedWeight = interruptedWeights.get(instanceId);
+        if (interruptedWeight != null) return interruptedWeight;
+        final Instance instance = describedInstances == null ? null : describedInstances.get(instanceId);
+        if (instance == null || stats == null) return 1;
+        final Double weight = stats.getInstanceTypeWeights().get(instance.getInstanceType());
+        return weight == null ? 1 : weight;
+    }
+
+    /**
+     * @return capacity units of instance, fleet target capacity is whole units
+     */
+    private int getUnits(final String instanceId) {
+        return (int) Math.ceil(getWeight(instanceId) - 1e-9);
+    }
+
+    /**
+     * Fleet target is decreased by fulfilled capacity of instances, so weights are summed before rounding,
+     * two instances with weight <code>0.5</code> are one unit
+     */
+    private int getUnits(final Collection<String> instanceIds) {
+        return (int) Math.round(getWeight(instanceIds));
+    }
+
+    private double getWeight(final Collection<String> instanceIds) {
+        double weight = 0;
+        for (final String instanceId : instanceIds) weight += getWeight(instanceId);
+        return weight;
+    }
+
+    private Map<String, Integer> getInstanceExecutors(final Collection<String> instanceIds) {
+        final Map<String, Integer> executors = new HashMap<>();
+        for (final String instanceId : instanceIds) executors.put(instanceId, getExecutors(instanceId));
+        return executors;
+    }
+
+    /**
+     * @return executors of node of instance, same as set for new node
+     */
+    private int getExecutors(final String instanceId) {
+        final Instance instance = describedInstances == null ? null : describedInstances.get(instanceId);
+        return getExecutors(stats, instance == null ? null : instance.getInstanceType());
+    }
+
+    private int getExecutors(@Nullable final FleetStateStats fleetStats, @Nullable final String instanceType) {
+        final Double weight = fleetStats == null || instanceType == null
+                ? null : fleetStats.getInstanceTypeWeights().get(instanceType);
+        return WeightedCapacityModel.getExecutors(numExecutors == 0 ? 1 : numExecutors, scaleExecutorsByWeight, weight);
+    }
+
+    /**
+     * @return hourly price by instance id for known instances, used by {@link ScaleInPolicy#HIGHEST_COST_PER_EXECUTOR}
+     */
+    protected Map<String, Double> getInstancePrices() {
+        if (describedInstances == null) return Collections.emptyMap();
+        final Map<String, Double> prices = new HashMap<>();
+        for (final Map.Entry<String, Instance> entry : describedInstances.entrySet()) {
+            final Double price = spotPriceCache.getHourlyPrice(entry.getValue());
+            if (price != null) prices.put(entry.getKey(), price);
+        }
+        return prices;
+    }
+
+    /**
+     * Should be called under lock of cloud
+     */
+    private void recordTermination(final long now) {
+        recentTerminations.addLast(now);
+    }
+
+    /**
+     * Count churn, capacity which is launched soon after termination. Should be called under lock of cloud.
+     *
+     * @param units added capacity units
+     * @param now   current time
+     */
+    private void recordScaleOut(final int units, final long now) {
+        lastScaleOutTime = now;
+        while (!recentTerminations.isEmpty() && now - recentTerminations.peekFirst() > CHURN_WINDOW_MSEC) {
+            recentTerminations.pollFirst();
+        }
+        final int churn = Math.min(units, recentTerminations.size());
+        for (int i = 0; i < churn; i++) recentTerminations.pollFirst();
+        if (churn > 0) {
+            churnCount += churn;
+            info("churn %s units launched within %s min after termination, total %s",
+                    churn, TimeUnit.MILLISECONDS.toMinutes(CHURN_WINDOW_MSEC), churnCount);
+        }
+    }
+
+    /**
+     * @return capacity units launched within {@link EC2FleetCloud#CHURN_WINDOW_MSEC} after termination
+     */
+    public synchronized long getChurnCount() {
+        return churnCount;
+    }
+
+    /**
+     * @return target capacity changes sent to EC2, see {@link FleetCapacityCoordinator}
+     */
+    public long getCapacityChangesApplied() {
+        return capacityCoordinator.getApplied();
+    }
+
+    /**
+     * @return pending changes which didn't change target capacity, so EC2 was not called
+     */
+    public long getCapacityChangesSkipped() {
+        return capacityCoordinator.getSkipped();
+    }
+
+    /**
+     * @return times pending changes were held because fleet was modifying
+     */
+    public long getCapacityChangesHeld() {
+        return capacityCoordinator.getHeld();
+    }
+
+    /**
+     * @return terminations rejected by scale in hysteresis or min instance lifetime
+     */
+    public synchronized long getRejectedTerminations() {
+        return rejectedTerminations;
     }
 
     @Override
     public boolean canProvision(final Label label) {
-        boolean result = fleet != null && (label == null || Label.parse(this.labelString).containsAll(label.listAtoms()));
-        fine("CanProvision called on fleet: \"" + this.labelString + "\" wanting: \"" + (label == null ? "(unspecified)" : label.getName()) + "\". Returning " + result + ".");
+        // label string is final, so parsed once per cloud instance
+        LabelMatcher matcher = labelMatcher;
+        if (matcher == null) {
+            matcher = new LabelMatcher(Label.parse(this.labelString));
+            labelMatcher = matcher;
+        }
+
+        boolean result = fleet != null && matcher.matches(label);
+        if (LOGGER.isLoggable(Level.FINE)) {
+            fine("CanProvision called on fleet: \"" + this.labelString + "\" wanting: \"" + (label == null ? "(unspecified)" : label.getName()) + "\". Returning " + result + ".");
+        }
         return result;
     }
 
     private Object readResolve() {
         init();
+        restoreSnapshot();
         return this;
     }
 
+    /**
+     * Jenkins creates cloud from stored configuration on start, so load last known runtime state
+     * to be able provision and terminate before first {@link EC2FleetCloud#update()}
+     */
+    private void restoreSnapshot() {
+        final FleetStateSnapshot snapshot = FleetStateSnapshot.load(name, fleet, System.currentTimeMillis());
+        if (snapshot == null) return;
+
+        synchronized (this) {
+            stats = snapshot.getStats();
+            instanceIdsToTerminate.addAll(snapshot.getInstanceIdsToTerminate());
+            statsStale = true;
+        }
+        info("Restored state saved at %s, target capacity %s", new Date(snapshot.getTimestamp()), snapshot.getStats().getNumDesired());
+    }
+
+    /**
+     * @param force store even nothing changed and last snapshot is fresh
+     */
+    private void saveSnapshot(final boolean force) {
+        final FleetStateSnapshot snapshot;
+        final long version;
+        synchronized (this) {
+            if (stats == null || statsStale) return;
+            final long now = System.currentTimeMillis();
+            if (!force && now - lastSnapshotTime < SNAPSHOT_INTERVAL_MSEC
+                    && lastSnapshotNumDesired == stats.getNumDesired()) return;
+            lastSnapshotTime = now;
+            lastSnapshotNumDesired = stats.getNumDesired();
+            snapshot = new FleetStateSnapshot(now, name, stats, instanceIdsToTerminate);
+            version = ++snapshotVersion;
+        }
+        // snapshots could be taken by update and termination worker at the same time, don't overwrite newer one
+        synchronized (snapshotLock) {
+            if (version < savedSnapshotVersion) return;
+            savedSnapshotVersion = version;
+            snapshot.save();
+        }
+    }
+
     private void init() {
         id = new LazyUuid();
 
-        plannedNodesCache = new HashSet<>();
+        plannedNodes = new PlannedNodeQueue();
+        provisionLatency = new LatencyHistogram();
+        provisioningTrace = new ProvisioningTrace();
+        scaleOutLimiter = new ScaleOutLimiter();
+        labelDemandLedger = new LabelDemandLedger();
+        spotPriceCache = new SpotPriceCache();
+        recentTerminations = new ArrayDeque<>();
+        interruptionStatistics = new InterruptionStatistics();
+        interruptedWeights = new HashMap<>();
         instanceIdsToTerminate = new HashSet<>();
+        terminatingInstanceIds = new HashSet<>();
+        capacityLock = new Object();
+        snapshotLock = new Object();
+        capacityCoordinator = new FleetCapacityCoordinator();
+        reconciler = new FleetReconciler();
+    }
+
+    /**
+     * Old cloud instance is still used by Jenkins while new one is created, so {@link CloudNanny},
+     * {@link EC2FleetTerminationWorker} or {@link NodeProvisioner} could work with it. Lock it the same way
+     * as {@link EC2FleetCloud#applyPendingChanges(AmazonEC2)} does and move pending changes, so they will be
+     * applied only once by new instance.
+     * <p>
+     * State is transferred only when fleet is the same, for another fleet it has no sense.
+     *
+     * @param oldId id of old cloud instance
+     */
+    private void transferState(final String oldId) {
+        final EC2FleetCloud oldCloud = findCloud(oldId);
+        if (oldCloud == null) return;
+
+        if (!StringUtils.equals(fleet, oldCloud.fleet)) {
+            info("Fleet changed from %s, skip state transfer from old cloud", oldCloud.fleet);
+            return;
+        }
+
+        final boolean pending;
+        synchronized (oldCloud.capacityLock) {
+            synchronized (oldCloud) {
+                stats = oldCloud.stats;
+                statsStale = oldCloud.statsStale;
+                capacityVersion = oldCloud.capacityVersion;
+                toAdd = oldCloud.toAdd;
+                instanceIdsToTerminate.addAll(oldCloud.instanceIdsToTerminate);
+                terminatingInstanceIds.addAll(oldCloud.terminatingInstanceIds);
+                plannedNodes.transferFrom(oldCloud.plannedNodes);
+                // keep history and counters, config save should not reset them
+                provisionLatency = oldCloud.provisionLatency;
+                provisioningTrace = oldCloud.provisioningTrace;
+                scaleOutLimiter = oldCloud.scaleOutLimiter;
+                labelDemandLedger = oldCloud.labelDemandLedger;
+                spotPriceCache = oldCloud.spotPriceCache;
+                lastScaleOutTime = oldCloud.lastScaleOutTime;
+                describedInstances = oldCloud.describedInstances;
+                interruptionStatistics.transferFrom(oldCloud.interruptionStatistics);
+                interruptedWeights.putAll(oldCloud.interruptedWeights);
+                recentTerminations.addAll(oldCloud.recentTerminations);
+                churnCount = oldCloud.churnCount;
+                capacityCoordinator = oldCloud.capacityCoordinator;
+
+                pending = toAdd > 0 || !instanceIdsToTerminate.isEmpty();
+                oldCloud.toAdd = 0;
+                oldCloud.instanceIdsToTerminate.clear();
+            }
+        }
+
+        info("Transfer state from old cloud, target capacity %s, to add %s, to terminate %s, planned nodes %s",
+                stats == null ? null : stats.getNumDesired(), toAdd, instanceIdsToTerminate.size(), plannedNodes.size());
+
+        // old cloud could have scheduled worker which will skip it as inactive
+        if (pending) EC2FleetTerminationWorker.schedule(this);
+    }
+
+    @Nullable
+    private static EC2FleetCloud findCloud(final String oldId) {
+        final Jenkins jenkins = Jenkins.getInstance();
+        if (jenkins == null) return null;
+        for (final Cloud cloud : jenkins.clouds) {
+            if (cloud instanceof EC2FleetCloud && oldId.equals(((EC2FleetCloud) cloud).getOldId())) {
+                return (EC2FleetCloud) cloud;
+            }
+        }
+        return null;
     }
 
     private void removeNode(final String instanceId) {
@@ -628,12 +1756,8 @@ public class EC2FleetCloud extends Cloud {
         }
 
         final Double instanceTypeWeight = stats.getInstanceTypeWeights().get(instance.getInstanceType());
-        final int effectiveNumExecutors;
-        if (scaleExecutorsByWeight && instanceTypeWeight != null) {
-            effectiveNumExecutors = (int) Math.max(Math.round(numExecutors * instanceTypeWeight), 1);
-        } else {
-            effectiveNumExecutors = numExecutors;
-        }
+        final int effectiveNumExecutors = WeightedCapacityModel.getExecutors(
+                numExecutors, scaleExecutorsByWeight, instanceTypeWeight);
 
         final EC2FleetAutoResubmitComputerLauncher computerLauncher = new EC2FleetAutoResubmitComputerLauncher(
                 computerConnector.launch(address, TaskListener.NULL));
@@ -649,13 +1773,30 @@ public class EC2FleetCloud extends Cloud {
         // jenkins automatically remove old node with same name if any
         jenkins.addNode(node);
 
+        // instance without node is new again on next update, so count launch only when node is added
+        synchronized (this) {
+            launchedNodes++;
+        }
+        interruptionStatistics.recordLaunched(getInstanceType(instance), getAvailabilityZone(instance));
+
+        // oldest planned node is completed first
+        final PlannedNodeQueue.Entry plannedNode = plannedNodes.poll();
         final SettableFuture<Node> future;
-        if (plannedNodesCache.isEmpty()) {
+        if (plannedNode == null) {
             future = SettableFuture.create();
         } else {
-            final NodeProvisioner.PlannedNode plannedNode = plannedNodesCache.iterator().next();
-            plannedNodesCache.remove(plannedNode);
-            future = ((SettableFuture<Node>) plannedNode.future);
+            future = plannedNode.getFuture();
+            future.addListener(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        future.get();
+                        provisionLatency.record(System.currentTimeMillis() - plannedNode.getCreatedAt());
+                    } catch (InterruptedException | ExecutionException | CancellationException e) {
+                        // node was not online, nothing to record
+                    }
+                }
+            }, MoreExecutors.sameThreadExecutor());
         }
 
         // use getters for timeout and interval as they provide default value
@@ -674,6 +1815,8 @@ public class EC2FleetCloud extends Cloud {
     }
 
     private void fine(final String msg, final Object... args) {
+        // args could be big collections, don't format them if level is disabled
+        if (!LOGGER.isLoggable(Level.FINE)) return;
         LOGGER.fine(getLogPrefix() + String.format(msg, args));
     }
 
@@ -719,6 +1862,12 @@ public class EC2FleetCloud extends Cloud {
             return AWSCredentialsHelper.doFillCredentialsIdItems(Jenkins.getInstance());
         }
 
+        public ListBoxModel doFillScaleInPolicyItems() {
+            final ListBoxModel model = new ListBoxModel();
+            for (final ScaleInPolicy policy : ScaleInPolicy.values()) model.add(policy.name());
+            return model;
+        }
+
         public ListBoxModel doFillRegionItems(@QueryParameter final String awsCredentialsId) {
             // to keep user consistent order tree set
             final Set<String> regionNames = new TreeSet<>();
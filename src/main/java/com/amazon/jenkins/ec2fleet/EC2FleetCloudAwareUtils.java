@@ -1,13 +1,25 @@
 package com.amazon.jenkins.ec2fleet;
 
-import hudson.model.Computer;
-import hudson.model.Node;
-import jenkins.model.Jenkins;
+import com.google.common.collect.MapMaker;
 
 import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
+ * Keep index of {@link EC2FleetCloudAware} objects by id of cloud which they belong to
+ * ({@link EC2FleetCloud#getOldId()}), so on configuration save only objects of saved cloud
+ * are visited instead of all computers and nodes of Jenkins.
+ * <p>
+ * Objects register themselves on creation and on each {@link EC2FleetCloudAware#setCloud(EC2FleetCloud)},
+ * index doesn't hold them, removed node or computer will be dropped from index by GC.
+ *
  * @see EC2FleetCloudAware
  */
 @SuppressWarnings("WeakerAccess")
@@ -15,26 +27,54 @@ public class EC2FleetCloudAwareUtils {
 
     private static final Logger LOGGER = Logger.getLogger(EC2FleetCloudAwareUtils.class.getName());
 
-    public static void reassign(final @Nonnull String oldId, @Nonnull final EC2FleetCloud cloud) {
-        for (final Computer computer : Jenkins.getActiveInstance().getComputers()) {
-            checkAndReassign(oldId, cloud, computer);
+    private static final ConcurrentMap<String, Set<EC2FleetCloudAware>> INDEX = new ConcurrentHashMap<>();
+
+    /**
+     * Add object to index of its current cloud, no-op if object doesn't have cloud.
+     *
+     * @param object cloud aware object
+     */
+    public static void register(@Nonnull final EC2FleetCloudAware object) {
+        final EC2FleetCloud cloud = object.getCloud();
+        if (cloud == null) return;
+
+        final String id = cloud.getOldId();
+        if (id == null) return;
+
+        Set<EC2FleetCloudAware> objects = INDEX.get(id);
+        if (objects == null) {
+            final Set<EC2FleetCloudAware> newObjects = Collections.newSetFromMap(
+                    new MapMaker().weakKeys().<EC2FleetCloudAware, Boolean>makeMap());
+            objects = INDEX.putIfAbsent(id, newObjects);
+            if (objects == null) objects = newObjects;
         }
+        objects.add(object);
+    }
 
-        for (final Node node : Jenkins.getActiveInstance().getNodes()) {
-            checkAndReassign(oldId, cloud, node);
+    public static void reassign(final @Nonnull String oldId, @Nonnull final EC2FleetCloud cloud) {
+        int count = 0;
+        Set<EC2FleetCloudAware> objects;
+        // repeat as old cloud could still create new nodes while we reassign
+        while ((objects = INDEX.remove(oldId)) != null) {
+            final List<EC2FleetCloudAware> snapshot = new ArrayList<>(objects);
+            for (final EC2FleetCloudAware object : snapshot) {
+                if (checkAndReassign(oldId, cloud, object)) count++;
+            }
         }
 
-        LOGGER.info("Finish to reassign resources from old cloud with id " + oldId + " to " + cloud.getDisplayName());
+        LOGGER.info("Finish to reassign " + count + " resources from old cloud with id " + oldId
+                + " to " + cloud.getDisplayName());
     }
 
-    private static void checkAndReassign(final String oldId, final EC2FleetCloud cloud, final Object object) {
-        if (object instanceof EC2FleetCloudAware) {
-            final EC2FleetCloudAware cloudAware = (EC2FleetCloudAware) object;
-            final EC2FleetCloud oldCloud = cloudAware.getCloud();
-            if (oldCloud != null && oldId.equals(oldCloud.getOldId())) {
-                ((EC2FleetCloudAware) object).setCloud(cloud);
-                LOGGER.info("Reassign " + object + " from " + oldCloud.getDisplayName() + " to " + cloud.getDisplayName());
-            }
+    private static boolean checkAndReassign(final String oldId, final EC2FleetCloud cloud, final EC2FleetCloudAware object) {
+        final EC2FleetCloud oldCloud = object.getCloud();
+        if (oldCloud != null && oldId.equals(oldCloud.getOldId())) {
+            // registers object for new cloud
+            object.setCloud(cloud);
+            LOGGER.log(Level.FINE, "Reassign {0} from {1} to {2}",
+                    new Object[]{object, oldCloud.getDisplayName(), cloud.getDisplayName()});
+            return true;
         }
+        return false;
     }
 }
@@ -23,6 +23,7 @@ public class EC2FleetNode extends Slave implements EphemeralNode, EC2FleetCloudA
         super(name, nodeDescription, remoteFS, numExecutors, mode, label,
                 launcher, RetentionStrategy.NOOP, nodeProperties);
         this.cloud = cloud;
+        EC2FleetCloudAwareUtils.register(this);
     }
 
     @Override
@@ -52,6 +53,7 @@ public class EC2FleetNode extends Slave implements EphemeralNode, EC2FleetCloudA
     @Override
     public void setCloud(@Nonnull EC2FleetCloud cloud) {
         this.cloud = cloud;
+        EC2FleetCloudAwareUtils.register(this);
     }
 
     @Extension
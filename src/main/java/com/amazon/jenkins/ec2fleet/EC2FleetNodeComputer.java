@@ -1,6 +1,9 @@
 package com.amazon.jenkins.ec2fleet;
 
+import hudson.model.Executor;
+import hudson.model.Queue;
 import hudson.model.Slave;
+import hudson.model.queue.WorkUnit;
 import hudson.slaves.SlaveComputer;
 
 import javax.annotation.Nonnull;
@@ -17,10 +20,16 @@ public class EC2FleetNodeComputer extends SlaveComputer implements EC2FleetCloud
 
     private volatile EC2FleetCloud cloud;
 
+    /**
+     * Time when instance will be interrupted by EC2, <code>-1</code> if no notice
+     */
+    private volatile long interruptionTime = -1;
+
     public EC2FleetNodeComputer(final Slave slave, @Nonnull final String name, @Nonnull final EC2FleetCloud cloud) {
         super(slave);
         this.name = name;
         this.cloud = cloud;
+        EC2FleetCloudAwareUtils.register(this);
     }
 
     @Override
@@ -47,6 +56,7 @@ public class EC2FleetNodeComputer extends SlaveComputer implements EC2FleetCloud
     @Override
     public void setCloud(@Nonnull final EC2FleetCloud cloud) {
         this.cloud = cloud;
+        EC2FleetCloudAwareUtils.register(this);
     }
 
     @Override
@@ -54,4 +64,64 @@ public class EC2FleetNodeComputer extends SlaveComputer implements EC2FleetCloud
         return cloud;
     }
 
+    /**
+     * Stop to accept tasks as instance got spot interruption notice.
+     *
+     * @param interruptionTime time when instance will be interrupted, msec
+     * @see SpotInterruptionWatcher
+     */
+    public void drain(final long interruptionTime) {
+        this.interruptionTime = interruptionTime;
+        setAcceptingTasks(false);
+    }
+
+    public boolean isDraining() {
+        return interruptionTime >= 0;
+    }
+
+    public long getInterruptionTime() {
+        return interruptionTime;
+    }
+
+    /**
+     * Draining computer never accepts tasks again, even if retention strategy restores accepting
+     */
+    @Override
+    public boolean isAcceptingTasks() {
+        return !isDraining() && super.isAcceptingTasks();
+    }
+
+    /**
+     * Report to cloud if task got executor which was online before task entered queue.
+     *
+     * @see EC2FleetCloud#getWarmPoolHitRate()
+     */
+    @Override
+    public void taskAccepted(final Executor executor, final Queue.Task task) {
+        super.taskAccepted(executor, task);
+        final EC2FleetCloud cloud = this.cloud;
+        final WorkUnit workUnit = executor.getCurrentWorkUnit();
+        if (cloud == null || workUnit == null) return;
+        cloud.recordTaskAccepted(getConnectTime() <= workUnit.context.item.getInQueueSince());
+    }
+
+    /**
+     * @see IdleDeadlineScheduler
+     */
+    @Override
+    public void taskCompleted(final Executor executor, final Queue.Task task, final long durationMS) {
+        super.taskCompleted(executor, task, durationMS);
+        IdleDeadlineScheduler.schedule(this);
+    }
+
+    /**
+     * @see IdleDeadlineScheduler
+     */
+    @Override
+    public void taskCompletedWithProblems(final Executor executor, final Queue.Task task, final long durationMS,
+                                          final Throwable problems) {
+        super.taskCompletedWithProblems(executor, task, durationMS, problems);
+        IdleDeadlineScheduler.schedule(this);
+    }
+
 }
@@ -6,6 +6,8 @@ import hudson.model.Node;
 import hudson.util.DaemonThreadFactory;
 
 import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -30,6 +32,10 @@ import java.util.logging.Logger;
  * make a few short interval reconnection initially (when EC2 instance still is not ready) after that
  * with big interval, experiment shows a few minutes and more.
  * <p>
+ * Future is resolved by {@link EC2FleetOnlineListener} as soon as agent is connected, so planned node is not
+ * counted by Jenkins planner together with online node up to check interval. Periodic check stays for
+ * timeout and as fallback if notification is missed.
+ * <p>
  * Based on https://github.com/jenkinsci/ec2-plugin/blob/master/src/main/java/hudson/plugins/ec2/EC2Cloud.java#L640
  *
  * @see EC2FleetCloud
@@ -43,8 +49,29 @@ class EC2FleetOnlineChecker implements Runnable {
     // use daemon thread, so no problem when stop jenkins
     private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory());
 
+    /**
+     * Checkers waiting for connection by node name
+     */
+    private static final ConcurrentMap<String, EC2FleetOnlineChecker> PENDING = new ConcurrentHashMap<>();
+
     public static void start(final Node node, final SettableFuture<Node> future, final long timeout, final long interval) {
-        EXECUTOR.execute(new EC2FleetOnlineChecker(node, future, timeout, interval));
+        final EC2FleetOnlineChecker checker = new EC2FleetOnlineChecker(node, future, timeout, interval);
+        // register before first check, so connection right after check is not missed
+        if (timeout >= 1 && interval >= 1) PENDING.put(node.getNodeName(), checker);
+        EXECUTOR.execute(checker);
+    }
+
+    /**
+     * Resolve planned node of connected node, no-op if node is not waited.
+     *
+     * @param nodeName name of node
+     * @return <code>true</code> if planned node was resolved by this call
+     */
+    public static boolean resolve(final String nodeName) {
+        final EC2FleetOnlineChecker checker = PENDING.remove(nodeName);
+        if (checker == null || !checker.future.set(checker.node)) return false;
+        LOGGER.log(Level.INFO, String.format("%s connected, resolve planned node without wait", nodeName));
+        return true;
     }
 
     private final long start;
@@ -64,7 +91,9 @@ class EC2FleetOnlineChecker implements Runnable {
 
     @Override
     public void run() {
-        if (future.isCancelled()) {
+        // cancelled or already resolved by connect notification
+        if (future.isDone()) {
+            PENDING.remove(node.getNodeName(), this);
             return;
         }
 
@@ -77,6 +106,7 @@ class EC2FleetOnlineChecker implements Runnable {
         final Computer computer = node.toComputer();
         if (computer != null) {
             if (computer.isOnline()) {
+                PENDING.remove(node.getNodeName(), this);
                 future.set(node);
                 LOGGER.log(Level.INFO, String.format("%s connected, resolve planned node", node.getNodeName()));
                 return;
@@ -84,6 +114,7 @@ class EC2FleetOnlineChecker implements Runnable {
         }
 
         if (System.currentTimeMillis() - start > timeout) {
+            PENDING.remove(node.getNodeName(), this);
             future.setException(new IllegalStateException(
                     "Fail to provision node, cannot connect to " + node.getNodeName() + " in " + timeout + " msec"));
             return;
@@ -0,0 +1,23 @@
+package com.amazon.jenkins.ec2fleet;
+
+import hudson.Extension;
+import hudson.model.Computer;
+import hudson.model.Node;
+import hudson.model.TaskListener;
+import hudson.slaves.ComputerListener;
+
+/**
+ * Resolve planned node waited by {@link EC2FleetOnlineChecker} the moment agent is connected,
+ * instead of next periodic check.
+ */
+@Extension
+@SuppressWarnings("WeakerAccess")
+public class EC2FleetOnlineListener extends ComputerListener {
+
+    @Override
+    public void onOnline(final Computer c, final TaskListener listener) {
+        final Node node = c.getNode();
+        if (node instanceof EC2FleetNode) EC2FleetOnlineChecker.resolve(node.getNodeName());
+    }
+
+}
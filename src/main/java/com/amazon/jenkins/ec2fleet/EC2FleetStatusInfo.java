@@ -22,13 +22,35 @@ public class EC2FleetStatusInfo extends Widget {
     private final String label;
     private final int numActive;
     private final int numDesired;
+    /**
+     * Available units of {@link ScaleOutLimiter}, <code>-1</code> if scale out is not limited
+     */
+    private final int scaleOutTokens;
+    private final int scaleOutDeferred;
+    /**
+     * Hourly price of fleet instances with known price, <code>-1</code> if unknown
+     */
+    private final double hourlyBurn;
 
     public EC2FleetStatusInfo(String id, String state, String label, int numActive, int numDesired) {
+        this(id, state, label, numActive, numDesired, -1, 0);
+    }
+
+    public EC2FleetStatusInfo(String id, String state, String label, int numActive, int numDesired,
+                              int scaleOutTokens, int scaleOutDeferred) {
+        this(id, state, label, numActive, numDesired, scaleOutTokens, scaleOutDeferred, -1);
+    }
+
+    public EC2FleetStatusInfo(String id, String state, String label, int numActive, int numDesired,
+                              int scaleOutTokens, int scaleOutDeferred, double hourlyBurn) {
         this.id = id;
         this.state = state;
         this.label = label;
         this.numActive = numActive;
         this.numDesired = numDesired;
+        this.scaleOutTokens = scaleOutTokens;
+        this.scaleOutDeferred = scaleOutDeferred;
+        this.hourlyBurn = hourlyBurn;
     }
 
     public String getId() {
@@ -42,6 +64,9 @@ public class EC2FleetStatusInfo extends Widget {
         EC2FleetStatusInfo that = (EC2FleetStatusInfo) o;
         return numActive == that.numActive &&
                 numDesired == that.numDesired &&
+                scaleOutTokens == that.scaleOutTokens &&
+                scaleOutDeferred == that.scaleOutDeferred &&
+                Double.compare(hourlyBurn, that.hourlyBurn) == 0 &&
                 Objects.equals(id, that.id) &&
                 Objects.equals(state, that.state) &&
                 Objects.equals(label, that.label);
@@ -49,7 +74,7 @@ public class EC2FleetStatusInfo extends Widget {
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, state, label, numActive, numDesired);
+        return Objects.hash(id, state, label, numActive, numDesired, scaleOutTokens, scaleOutDeferred, hourlyBurn);
     }
 
     public String getLabel() {
@@ -68,4 +93,16 @@ public class EC2FleetStatusInfo extends Widget {
         return numDesired;
     }
 
+    public int getScaleOutTokens() {
+        return scaleOutTokens;
+    }
+
+    public int getScaleOutDeferred() {
+        return scaleOutDeferred;
+    }
+
+    public double getHourlyBurn() {
+        return hourlyBurn;
+    }
+
 }
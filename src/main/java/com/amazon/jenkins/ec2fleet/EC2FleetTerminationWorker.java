@@ -0,0 +1,84 @@
+package com.amazon.jenkins.ec2fleet;
+
+import com.google.common.collect.MapMaker;
+import hudson.slaves.Cloud;
+import hudson.util.DaemonThreadFactory;
+import jenkins.model.Jenkins;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Apply scheduled terminations of {@link EC2FleetCloud} without waiting for next
+ * {@link EC2FleetCloud#update()} from {@link CloudNanny}.
+ * <p>
+ * {@link EC2FleetCloud#scheduleToTerminate(String)} only marks instance, this worker picks all
+ * marked instances after short batch delay, so multiple idle nodes released in the same moment
+ * will be handled by one modify capacity and one terminate call to EC2 API.
+ * <p>
+ * Only one run per cloud could be scheduled at the same time, all new terminations requested
+ * before run will be processed by it.
+ *
+ * @see EC2FleetCloud#applyPendingChanges()
+ */
+@SuppressWarnings("WeakerAccess")
+@ThreadSafe
+class EC2FleetTerminationWorker implements Runnable {
+
+    private static final Logger LOGGER = Logger.getLogger(EC2FleetTerminationWorker.class.getName());
+
+    /**
+     * Time to collect terminations requested by different nodes in one batch
+     */
+    private static final long BATCH_DELAY_MSEC = 1000;
+
+    // use daemon thread, so no problem when stop jenkins
+    private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory());
+
+    private static final ConcurrentMap<EC2FleetCloud, Boolean> SCHEDULED = new MapMaker()
+            .weakKeys() // the map should not hold onto fleet instances to allow deletion of fleets.
+            .makeMap();
+
+    public static void schedule(final EC2FleetCloud cloud) {
+        if (SCHEDULED.putIfAbsent(cloud, Boolean.TRUE) == null) {
+            EXECUTOR.schedule(new EC2FleetTerminationWorker(cloud), BATCH_DELAY_MSEC, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private final EC2FleetCloud cloud;
+
+    private EC2FleetTerminationWorker(final EC2FleetCloud cloud) {
+        this.cloud = cloud;
+    }
+
+    @Override
+    public void run() {
+        // remove before processing, so terminations requested during run will schedule next one
+        SCHEDULED.remove(cloud);
+
+        try {
+            // cloud could be deleted or replaced by new instance after config save, in that case
+            // pending changes belong to another instance
+            if (!isActive(cloud)) return;
+            cloud.applyPendingChanges();
+        } catch (Exception e) {
+            // next update will retry
+            LOGGER.log(Level.WARNING, String.format("Fail to apply terminations for fleet %s", cloud.name), e);
+        }
+    }
+
+    private static boolean isActive(final EC2FleetCloud cloud) {
+        final Jenkins jenkins = Jenkins.getInstance();
+        if (jenkins == null) return false;
+        for (final Cloud c : jenkins.clouds) {
+            if (c == cloud) return true;
+        }
+        return false;
+    }
+
+}
@@ -3,22 +3,61 @@ package com.amazon.jenkins.ec2fleet;
 import jenkins.model.CauseOfInterruption;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 public class EC2TerminationCause extends CauseOfInterruption {
 
     @Nonnull
     private final String nodeName;
 
+    @Nullable
+    private final String instanceType;
+
+    @Nullable
+    private final String availabilityZone;
+
+    /**
+     * Time run was running when instance was lost, msec, <code>-1</code> if unknown
+     */
+    private final long elapsedMsec;
+
     @SuppressWarnings("WeakerAccess")
     public EC2TerminationCause(@Nonnull String nodeName) {
+        this(nodeName, null, null, -1);
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public EC2TerminationCause(@Nonnull String nodeName, @Nullable String instanceType,
+                               @Nullable String availabilityZone, long elapsedMsec) {
         this.nodeName = nodeName;
+        this.instanceType = instanceType;
+        this.availabilityZone = availabilityZone;
+        this.elapsedMsec = elapsedMsec;
+    }
+
+    @Nullable
+    public String getInstanceType() {
+        return instanceType;
+    }
+
+    @Nullable
+    public String getAvailabilityZone() {
+        return availabilityZone;
+    }
+
+    public long getElapsedMsec() {
+        return elapsedMsec;
     }
 
     @Override
     public String getShortDescription() {
-        return "EC2 instance for node " + nodeName + " was terminated";
+        if (instanceType == null) return "EC2 instance for node " + nodeName + " was terminated";
+        return "EC2 instance " + instanceType + " in " + availabilityZone + " for node " + nodeName + " was terminated";
     }
 
+    /**
+     * Only node matters, one cause per node
+     */
     @Override
     public boolean equals(Object o) {
         if (o == null || getClass() != o.getClass()) return false;
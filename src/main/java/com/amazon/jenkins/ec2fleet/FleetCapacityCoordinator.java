@@ -0,0 +1,63 @@
+package com.amazon.jenkins.ec2fleet;
+
+import com.amazonaws.services.ec2.model.BatchState;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Decide how pending capacity changes of {@link EC2FleetCloud} (planned capacity and scheduled terminations)
+ * should be applied to EC2 Spot Fleet.
+ * <p>
+ * All pending changes are merged by {@link EC2FleetCloud} into one effective target capacity, this class
+ * checks if it's required to call EC2 API at all:
+ * <ul>
+ * <li>{@link Action#SKIP} effective target is the same as current one, for example one node provisioned
+ * and one terminated, no reason to modify fleet, instances will be terminated by plugin</li>
+ * <li>{@link Action#HOLD} fleet is in {@link BatchState#Modifying} state, EC2 rejects or queues changes,
+ * so keep all changes pending, they will be merged with new one and applied when fleet is ready</li>
+ * <li>{@link Action#APPLY} otherwise</li>
+ * </ul>
+ *
+ * @see EC2FleetCloud
+ */
+@SuppressWarnings("WeakerAccess")
+@ThreadSafe
+class FleetCapacityCoordinator {
+
+    enum Action {
+        APPLY, SKIP, HOLD
+    }
+
+    private long applied;
+    private long skipped;
+    private long held;
+
+    public synchronized Action decide(@Nonnull final FleetStateStats stats, final int targetCapacity) {
+        if (BatchState.Modifying.toString().equals(stats.getState())) {
+            held++;
+            return Action.HOLD;
+        }
+
+        if (targetCapacity == stats.getNumDesired()) {
+            skipped++;
+            return Action.SKIP;
+        }
+
+        applied++;
+        return Action.APPLY;
+    }
+
+    public synchronized long getApplied() {
+        return applied;
+    }
+
+    public synchronized long getSkipped() {
+        return skipped;
+    }
+
+    public synchronized long getHeld() {
+        return held;
+    }
+
+}
@@ -0,0 +1,160 @@
+package com.amazon.jenkins.ec2fleet;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compute difference between Jenkins nodes of {@link EC2FleetCloud} and EC2 Spot Fleet instances
+ * on each {@link EC2FleetCloud#update()}.
+ * <p>
+ * Big fleets are updated every few seconds, so instead of building multiple copies of instance and
+ * node sets for each update, this class keeps one entry per known id between updates and marks it with
+ * generation of update in which id was seen as fleet instance, described (running) instance, Jenkins node or
+ * terminating instance. After all marks one pass over entries classifies them and drops ids which were not seen.
+ * Result lists are reused between updates, so steady state allocation is close to zero.
+ * <p>
+ * Usage:
+ * <pre>
+ * reconciler.begin();
+ * reconciler.markFleet(...);
+ * ...
+ * reconciler.finish();
+ * reconciler.getNewInstances();
+ * </pre>
+ * Lists returned by getters are valid until next {@link FleetReconciler#begin()}
+ *
+ * @see EC2FleetCloud#update()
+ */
+@SuppressWarnings("WeakerAccess")
+@NotThreadSafe
+class FleetReconciler {
+
+    private static final class Entry {
+        private long fleet;
+        private long described;
+        private long jenkins;
+        private long terminating;
+    }
+
+    private final Map<String, Entry> entries = new HashMap<>();
+    private long generation;
+
+    private final List<String> newInstances = new ArrayList<>();
+    private final List<String> nodesToRemove = new ArrayList<>();
+    private final List<String> nodesToKeep = new ArrayList<>();
+    private final List<String> terminatingRunning = new ArrayList<>();
+
+    private int fleetCount;
+    private int describedCount;
+    private int jenkinsCount;
+
+    public void begin() {
+        generation++;
+        newInstances.clear();
+        nodesToRemove.clear();
+        nodesToKeep.clear();
+        terminatingRunning.clear();
+        fleetCount = 0;
+        describedCount = 0;
+        jenkinsCount = 0;
+    }
+
+    public void markFleet(final String instanceId) {
+        entry(instanceId).fleet = generation;
+        fleetCount++;
+    }
+
+    public void markDescribed(final String instanceId) {
+        entry(instanceId).described = generation;
+        describedCount++;
+    }
+
+    public void markJenkins(final String nodeName) {
+        entry(nodeName).jenkins = generation;
+        jenkinsCount++;
+    }
+
+    public void markTerminating(final String instanceId) {
+        entry(instanceId).terminating = generation;
+    }
+
+    public void finish() {
+        final Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<String, Entry> e = iterator.next();
+            final String id = e.getKey();
+            final Entry entry = e.getValue();
+
+            final boolean fleet = entry.fleet == generation;
+            final boolean described = entry.described == generation;
+            final boolean jenkins = entry.jenkins == generation;
+            final boolean terminating = entry.terminating == generation;
+
+            if (!fleet && !described && !jenkins && !terminating) {
+                // not seen any more, forget about it
+                iterator.remove();
+                continue;
+            }
+
+            if (jenkins) {
+                // node without running instance, instance was terminated or removed from fleet
+                if (described) nodesToKeep.add(id);
+                else nodesToRemove.add(id);
+            } else if (described) {
+                // running fleet instance without node, except instances which we already terminated
+                // as they could be described as running for some time
+                if (!terminating) newInstances.add(id);
+            }
+
+            if (terminating && described) terminatingRunning.add(id);
+        }
+    }
+
+    /**
+     * @return running fleet instances which are not Jenkins nodes yet
+     */
+    public List<String> getNewInstances() {
+        return newInstances;
+    }
+
+    /**
+     * @return Jenkins nodes which don't have running fleet instance
+     */
+    public List<String> getNodesToRemove() {
+        return nodesToRemove;
+    }
+
+    /**
+     * @return Jenkins nodes with running fleet instance
+     */
+    public List<String> getNodesToKeep() {
+        return nodesToKeep;
+    }
+
+    /**
+     * @return instances which were requested to terminate but still running
+     */
+    public List<String> getTerminatingRunning() {
+        return terminatingRunning;
+    }
+
+    public String getSummary() {
+        return "fleet " + fleetCount + ", described " + describedCount + ", jenkins " + jenkinsCount
+                + ", new " + newInstances.size() + ", remove " + nodesToRemove.size()
+                + ", keep " + nodesToKeep.size() + ", terminating running " + terminatingRunning.size();
+    }
+
+    private Entry entry(final String id) {
+        Entry entry = entries.get(id);
+        if (entry == null) {
+            entry = new Entry();
+            entries.put(id, entry);
+        }
+        return entry;
+    }
+
+}
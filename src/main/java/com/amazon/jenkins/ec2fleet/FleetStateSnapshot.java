@@ -0,0 +1,124 @@
+package com.amazon.jenkins.ec2fleet;
+
+import hudson.Util;
+import hudson.XmlFile;
+import jenkins.model.Jenkins;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Compact copy of {@link EC2FleetCloud} runtime state stored on disk, so after Jenkins restart or
+ * reload of configuration cloud could provision and terminate without waiting first
+ * {@link EC2FleetCloud#update()}.
+ * <p>
+ * Stored in <code>$JENKINS_HOME/ec2-fleet/&lt;cloud name&gt;_&lt;fleet id&gt;.xml</code>, several clouds could use
+ * the same fleet, for example with different labels, and each has own instances to terminate.
+ * Restored state is marked as stale by
+ * {@link EC2FleetCloud} and replaced by real one on first update.
+ * <p>
+ * Capacity planned but not yet applied to fleet is not stored, after restart {@link hudson.slaves.NodeProvisioner}
+ * has no planned nodes and requests the same demand again.
+ *
+ * @see EC2FleetCloud
+ */
+@SuppressWarnings("WeakerAccess")
+public class FleetStateSnapshot {
+
+    private static final Logger LOGGER = Logger.getLogger(FleetStateSnapshot.class.getName());
+
+    private static final String DIRECTORY = "ec2-fleet";
+
+    /**
+     * Snapshot older than this is not used, fleet could be changed too much
+     */
+    private static final long MAX_AGE_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private final long timestamp;
+    private final String cloudName;
+    private final String fleetId;
+    private final int numDesired;
+    private final String state;
+    private final Set<String> instances;
+    private final Map<String, Double> instanceTypeWeights;
+    private final Set<String> instanceIdsToTerminate;
+
+    public FleetStateSnapshot(final long timestamp, @Nonnull final String cloudName,
+                              @Nonnull final FleetStateStats stats, @Nonnull final Set<String> instanceIdsToTerminate) {
+        this.timestamp = timestamp;
+        this.cloudName = cloudName;
+        this.fleetId = stats.getFleetId();
+        this.numDesired = stats.getNumDesired();
+        this.state = stats.getState();
+        this.instances = new HashSet<>(stats.getInstances());
+        this.instanceTypeWeights = new HashMap<>(stats.getInstanceTypeWeights());
+        this.instanceIdsToTerminate = new HashSet<>(instanceIdsToTerminate);
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public FleetStateStats getStats() {
+        return new FleetStateStats(fleetId, numDesired, state, instances, instanceTypeWeights);
+    }
+
+    public Set<String> getInstanceIdsToTerminate() {
+        return instanceIdsToTerminate;
+    }
+
+    public void save() {
+        final XmlFile file = getFile(cloudName, fleetId);
+        if (file == null) return;
+        try {
+            file.write(this);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Cannot save state of fleet " + fleetId, e);
+        }
+    }
+
+    /**
+     * @param cloudName name of cloud
+     * @param fleetId   fleet id
+     * @param now       current time in msec
+     * @return snapshot or <code>null</code> if not available, corrupted or too old
+     */
+    @Nullable
+    public static FleetStateSnapshot load(@Nonnull final String cloudName, @Nullable final String fleetId,
+                                          final long now) {
+        final XmlFile file = getFile(cloudName, fleetId);
+        if (file == null || !file.exists()) return null;
+        try {
+            final FleetStateSnapshot snapshot = (FleetStateSnapshot) file.read();
+            if (snapshot == null || now - snapshot.timestamp > MAX_AGE_MILLIS) return null;
+            if (!cloudName.equals(snapshot.cloudName) || !fleetId.equals(snapshot.fleetId)) return null;
+            return snapshot;
+        } catch (IOException | RuntimeException e) {
+            // just skip, first update will get actual state
+            LOGGER.log(Level.WARNING, "Cannot load state of fleet " + fleetId, e);
+            return null;
+        }
+    }
+
+    @Nullable
+    private static XmlFile getFile(@Nonnull final String cloudName, @Nullable final String fleetId) {
+        if (fleetId == null || fleetId.isEmpty()) return null;
+        final Jenkins jenkins = Jenkins.getInstance();
+        if (jenkins == null) return null;
+        final File rootDir = jenkins.getRootDir();
+        // could be null when Jenkins is mocked
+        if (rootDir == null) return null;
+        // cloud name is entered by user, escape it for file name
+        return new XmlFile(new File(new File(rootDir, DIRECTORY), Util.rawEncode(cloudName) + "_" + fleetId + ".xml"));
+    }
+
+}
@@ -0,0 +1,127 @@
+package com.amazon.jenkins.ec2fleet;
+
+import com.google.common.annotations.VisibleForTesting;
+import hudson.Extension;
+import hudson.model.Label;
+import hudson.model.LoadStatistics;
+import hudson.slaves.Cloud;
+import hudson.slaves.NodeProvisioner;
+import jenkins.model.Jenkins;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Implementation of {@link NodeProvisioner.Strategy} which provision nodes for demand predicted
+ * by {@link DemandForecaster} one node boot time ahead, so capacity is online when periodic load arrives
+ * instead of starting to boot at that moment.
+ * <p>
+ * Boot time is taken per cloud as p90 of {@link EC2FleetCloud#getProvisionLatency()}. Strategy
+ * only adds capacity on top of available and planned one and always consults remaining strategies,
+ * so reactive provisioning like {@link NoDelayProvisionStrategy} covers forecast error.
+ * Extra capacity is released by {@link IdleRetentionStrategy} as usual.
+ * <p>
+ * Disabled by default, to enable start Jenkins with
+ * <code>-Dcom.amazon.jenkins.ec2fleet.ForecastProvisionStrategy.enabled=true</code>
+ */
+@Extension(ordinal = 110)
+public class ForecastProvisionStrategy extends NodeProvisioner.Strategy {
+
+    private static final Logger LOGGER = Logger.getLogger(ForecastProvisionStrategy.class.getName());
+
+    private static final String ENABLED_PROPERTY = ForecastProvisionStrategy.class.getName() + ".enabled";
+
+    /**
+     * Used when cloud didn't provision anything yet
+     */
+    private static final long DEFAULT_HORIZON_MSEC = TimeUnit.MINUTES.toMillis(3);
+
+    private final DemandForecaster forecaster = new DemandForecaster();
+
+    @Override
+    public NodeProvisioner.StrategyDecision apply(final NodeProvisioner.StrategyState strategyState) {
+        if (!isEnabled()) return NodeProvisioner.StrategyDecision.CONSULT_REMAINING_STRATEGIES;
+
+        final Label label = strategyState.getLabel();
+        final String labelKey = label == null ? "" : label.getExpression();
+        final long now = System.currentTimeMillis();
+
+        final LoadStatistics.LoadStatisticsSnapshot snapshot = strategyState.getSnapshot();
+        forecaster.observe(labelKey, snapshot.getQueueLength(), now);
+
+        int availableCapacity =
+                snapshot.getAvailableExecutors()
+                        + snapshot.getConnectingExecutors()
+                        + strategyState.getPlannedCapacitySnapshot()
+                        + strategyState.getAdditionalPlannedCapacity();
+
+        for (final Cloud cloud : getClouds()) {
+            if (!(cloud instanceof EC2FleetCloud)) continue;
+            if (!cloud.canProvision(label)) continue;
+
+            final EC2FleetCloud ec2 = (EC2FleetCloud) cloud;
+            final long horizon = getHorizon(ec2);
+
+            final int predictedDemand = forecaster.forecast(labelKey, now, horizon) - availableCapacity;
+            if (predictedDemand < 1) continue;
+
+            final Collection<NodeProvisioner.PlannedNode> plannedNodes = cloud.provision(label, predictedDemand);
+            strategyState.recordPendingLaunches(plannedNodes);
+            for (final NodeProvisioner.PlannedNode plannedNode : plannedNodes) {
+                availableCapacity += plannedNode.numExecutors;
+            }
+            LOGGER.log(Level.INFO, "Planned {0} nodes for predicted demand {1} of {2} in {3} msec, forecast {4}",
+                    new Object[]{plannedNodes.size(), predictedDemand, labelKey, horizon, forecaster});
+        }
+
+        return NodeProvisioner.StrategyDecision.CONSULT_REMAINING_STRATEGIES;
+    }
+
+    /**
+     * @param cloud cloud
+     * @param now   current time in msec
+     * @return predicted queue length one node boot time ahead of all observed labels which cloud could serve,
+     * <code>0</code> if strategy is disabled
+     */
+    public int getPredictedDemand(final EC2FleetCloud cloud, final long now) {
+        if (!isEnabled()) return 0;
+        final Jenkins jenkins = Jenkins.getInstance();
+        if (jenkins == null) return 0;
+
+        final long horizon = getHorizon(cloud);
+        int demand = 0;
+        for (final String labelKey : forecaster.getLabels()) {
+            final Label label = labelKey.isEmpty() ? null : jenkins.getLabel(labelKey);
+            if (cloud.canProvision(label)) demand += forecaster.peek(labelKey, now, horizon);
+        }
+        return demand;
+    }
+
+    /**
+     * @return forecaster with error metrics
+     */
+    public DemandForecaster getForecaster() {
+        return forecaster;
+    }
+
+    private static long getHorizon(final EC2FleetCloud cloud) {
+        return cloud.getProvisionLatency().getCount() == 0
+                ? DEFAULT_HORIZON_MSEC : cloud.getProvisionLatency().getPercentile(90);
+    }
+
+    @VisibleForTesting
+    protected boolean isEnabled() {
+        return Boolean.getBoolean(ENABLED_PROPERTY);
+    }
+
+    @VisibleForTesting
+    protected List<Cloud> getClouds() {
+        final Jenkins jenkins = Jenkins.getInstance();
+        return jenkins == null ? Collections.<Cloud>emptyList() : jenkins.clouds;
+    }
+
+}
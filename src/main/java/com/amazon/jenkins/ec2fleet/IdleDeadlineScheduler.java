@@ -0,0 +1,84 @@
+package com.amazon.jenkins.ec2fleet;
+
+import com.google.common.collect.MapMaker;
+import hudson.model.Queue;
+import hudson.util.DaemonThreadFactory;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Check idle node exactly at its idle deadline instead of minute polling by {@link IdleRetentionStrategy},
+ * so node of cloud with idle timeout in seconds ({@link EC2FleetCloud#getIdleSeconds()}) is released
+ * right after timeout, which matters for short jobs with per-second billing.
+ * <p>
+ * {@link EC2FleetNodeComputer} schedules check when task is completed, new check replaces pending one.
+ * If computer is busy again at deadline check does nothing, next completed task schedules new one.
+ * Nodes which never run tasks are handled by minute check of {@link IdleRetentionStrategy}.
+ */
+@SuppressWarnings("WeakerAccess")
+@ThreadSafe
+class IdleDeadlineScheduler {
+
+    private static final Logger LOGGER = Logger.getLogger(IdleDeadlineScheduler.class.getName());
+
+    /**
+     * Added to deadline as idle time should be strictly more than timeout
+     */
+    private static final long MARGIN_MSEC = 100;
+
+    // use daemon thread, so no problem when stop jenkins
+    private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory());
+
+    private static final ConcurrentMap<EC2FleetNodeComputer, ScheduledFuture<?>> SCHEDULED = new MapMaker()
+            .weakKeys() // the map should not hold onto computers to allow deletion of nodes.
+            .makeMap();
+
+    /**
+     * Schedule check of computer at its idle deadline, no-op if cloud doesn't have idle timeout in seconds.
+     *
+     * @param computer computer which just completed task
+     */
+    public static void schedule(final EC2FleetNodeComputer computer) {
+        final EC2FleetCloud cloud = computer.getCloud();
+        if (cloud == null || cloud.getIdleSeconds() <= 0) return;
+
+        final long delay = IdleRetentionStrategy.getMaxIdle(cloud) + MARGIN_MSEC;
+        final ScheduledFuture<?> future = EXECUTOR.schedule(new Runnable() {
+            @Override
+            public void run() {
+                check(computer);
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+
+        final ScheduledFuture<?> previous = SCHEDULED.put(computer, future);
+        if (previous != null) previous.cancel(false);
+    }
+
+    private static void check(final EC2FleetNodeComputer computer) {
+        try {
+            Queue.withLock(new Runnable() {
+                @Override
+                public void run() {
+                    final EC2FleetCloud cloud = computer.getCloud();
+                    // node could be removed already or cloud changed to minutes
+                    if (cloud == null || computer.getNode() == null || cloud.getIdleSeconds() <= 0) return;
+                    if (IdleRetentionStrategy.terminateIfIdleTooLong(cloud, computer)) {
+                        LOGGER.log(Level.INFO, "Idle deadline of {0} reached, scheduled to terminate",
+                                computer.getDisplayName());
+                    }
+                }
+            });
+        } catch (Throwable t) {
+            // next check will be done by retention strategy
+            LOGGER.log(Level.WARNING, "Cannot check idle deadline of " + computer.getDisplayName(), t);
+        }
+    }
+
+}
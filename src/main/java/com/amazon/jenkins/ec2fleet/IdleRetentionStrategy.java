@@ -1,15 +1,31 @@
 package com.amazon.jenkins.ec2fleet;
 
+import com.google.common.annotations.VisibleForTesting;
 import hudson.model.Computer;
 import hudson.model.Node;
 import hudson.slaves.RetentionStrategy;
 import hudson.slaves.SlaveComputer;
+import jenkins.model.Jenkins;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
+ * Nodes are checked each minute, when cloud has idle timeout in seconds
+ * {@link IdleDeadlineScheduler} checks node exactly at its idle deadline and minute check is fallback.
+ * <p>
+ * When {@link IdleSweeper} is enabled idle nodes are terminated by it in one pass per cloud,
+ * strategy only reconnects offline nodes. Otherwise when cloud has {@link ScaleInPolicy} other than
+ * {@link ScaleInPolicy#ANY} check of node passes all idle too long nodes of cloud to it, so policy could
+ * select which of them to terminate. Such nodes are found by one scan of all computers reused by checks
+ * of other nodes for {@link IdleRetentionStrategy#CANDIDATES_MSEC}.
+ *
  * @see EC2FleetCloud
  */
 public class IdleRetentionStrategy extends RetentionStrategy<SlaveComputer> {
@@ -18,6 +34,15 @@ public class IdleRetentionStrategy extends RetentionStrategy<SlaveComputer> {
 
     private static final Logger LOGGER = Logger.getLogger(IdleRetentionStrategy.class.getName());
 
+    /**
+     * How long idle too long computers found by one scan are used for checks of other nodes
+     */
+    static final long CANDIDATES_MSEC = TimeUnit.SECONDS.toMillis(30);
+
+    private static Map<EC2FleetCloud, List<EC2FleetNodeComputer>> candidates = Collections.emptyMap();
+
+    private static long candidatesTime = -1;
+
     /**
      * Will be called under {@link hudson.model.Queue#withLock(Runnable)}
      *
@@ -29,7 +54,7 @@ public class IdleRetentionStrategy extends RetentionStrategy<SlaveComputer> {
         final EC2FleetNodeComputer fc = (EC2FleetNodeComputer) computer;
         final EC2FleetCloud cloud = fc.getCloud();
 
-        LOGGER.log(Level.INFO, "Check if node idle " + computer.getName());
+        LOGGER.log(Level.FINE, "Check if node idle {0}", computer.getName());
 
         // in some multi-thread edge cases cloud could be null for some time, just be ok with that
         if (cloud == null) {
@@ -38,19 +63,43 @@ public class IdleRetentionStrategy extends RetentionStrategy<SlaveComputer> {
             return RE_CHECK_IN_MINUTE;
         }
 
+        if (IdleSweeper.isEnabled()) {
+            reconnectIfNeeded(cloud, fc);
+            return RE_CHECK_IN_MINUTE;
+        }
+
+        if (!terminateIfIdleTooLong(cloud, fc)) reconnectIfNeeded(cloud, fc);
+
+        return RE_CHECK_IN_MINUTE;
+    }
+
+    /**
+     * Should be called under {@link hudson.model.Queue#withLock(Runnable)}, used by {@link IdleRetentionStrategy#check}
+     * and by {@link IdleDeadlineScheduler} at idle deadline of computer.
+     *
+     * @param cloud    cloud of computer
+     * @param computer computer
+     * @return <code>true</code> if computer was scheduled to terminate
+     */
+    static boolean terminateIfIdleTooLong(final EC2FleetCloud cloud, final EC2FleetNodeComputer computer) {
+        final ScaleInPolicy scaleInPolicy = cloud.getScaleInPolicy();
+        if (scaleInPolicy != null && scaleInPolicy != ScaleInPolicy.ANY) {
+            return terminateByPolicy(cloud, computer, System.currentTimeMillis());
+        }
+
         // Ensure that the EC2FleetCloud cannot be mutated from under us while
         // we're doing this check
         // Ensure nobody provisions onto this node until we've done
         // checking
-        boolean shouldAcceptTasks = fc.isAcceptingTasks();
+        boolean shouldAcceptTasks = computer.isAcceptingTasks();
         boolean justTerminated = false;
-        fc.setAcceptingTasks(false);
+        computer.setAcceptingTasks(false);
         try {
-            if (fc.isIdle() && isIdleForTooLong(cloud, fc)) {
+            if (computer.isIdle() && isIdleForTooLong(cloud, computer, System.currentTimeMillis())) {
                 // Find instance ID
-                Node compNode = fc.getNode();
+                Node compNode = computer.getNode();
                 if (compNode == null) {
-                    return 0;
+                    return false;
                 }
 
                 final String instanceId = compNode.getNodeName();
@@ -60,16 +109,58 @@ public class IdleRetentionStrategy extends RetentionStrategy<SlaveComputer> {
                     justTerminated = true;
                 }
             }
+        } finally {
+            computer.setAcceptingTasks(shouldAcceptTasks);
+        }
+        return justTerminated;
+    }
+
+    /**
+     * Terminate idle too long nodes of cloud in one batch, so {@link ScaleInVictimSelector} selects which of them
+     * to terminate first when <code>minSize</code> or warm pool doesn't allow to terminate all. Should be called
+     * under {@link hudson.model.Queue#withLock(Runnable)}
+     *
+     * @param cloud    cloud of computer
+     * @param computer computer
+     * @param now      current time
+     * @return <code>true</code> if computer was scheduled to terminate, other nodes of cloud could be
+     * scheduled instead of it
+     */
+    @VisibleForTesting
+    static boolean terminateByPolicy(final EC2FleetCloud cloud, final EC2FleetNodeComputer computer, final long now) {
+        if (!computer.isIdle() || !isIdleForTooLong(cloud, computer, now)) return false;
+        final Node node = computer.getNode();
+        if (node == null) return false;
 
-            if (cloud.isAlwaysReconnect() && !justTerminated && fc.isOffline() && !fc.isConnecting() && fc.isLaunchSupported()) {
-                LOGGER.log(Level.INFO, "Reconnecting to instance: " + fc.getDisplayName());
-                fc.tryReconnect();
+        final List<EC2FleetNodeComputer> batch = new ArrayList<>();
+        for (final EC2FleetNodeComputer candidate : getIdleTooLong(cloud, now)) {
+            // found by previous check, could be busy or removed since
+            if (candidate != computer && candidate.isIdle() && isIdleForTooLong(cloud, candidate, now)
+                    && candidate.getNode() != null) {
+                batch.add(candidate);
             }
-        } finally {
-            fc.setAcceptingTasks(shouldAcceptTasks);
         }
+        batch.add(computer);
+        return IdleSweeper.terminate(cloud, batch).contains(node.getNodeName());
+    }
 
-        return RE_CHECK_IN_MINUTE;
+    /**
+     * Retention checks of all nodes are done one after another each minute, so scan of all computers
+     * is done once per {@link IdleRetentionStrategy#CANDIDATES_MSEC} and reused by checks of other nodes.
+     *
+     * @param cloud cloud
+     * @param now   current time
+     * @return idle too long computers of cloud found by last scan
+     */
+    private static synchronized List<EC2FleetNodeComputer> getIdleTooLong(final EC2FleetCloud cloud, final long now) {
+        if (candidatesTime < 0 || now < candidatesTime || now - candidatesTime >= CANDIDATES_MSEC) {
+            final Jenkins jenkins = Jenkins.getInstance();
+            candidates = jenkins == null ? Collections.<EC2FleetCloud, List<EC2FleetNodeComputer>>emptyMap()
+                    : IdleSweeper.findIdleTooLong(Arrays.asList(jenkins.getComputers()), now);
+            candidatesTime = now;
+        }
+        final List<EC2FleetNodeComputer> cloudCandidates = candidates.get(cloud);
+        return cloudCandidates == null ? Collections.<EC2FleetNodeComputer>emptyList() : cloudCandidates;
     }
 
     @Override
@@ -78,12 +169,27 @@ public class IdleRetentionStrategy extends RetentionStrategy<SlaveComputer> {
         c.connect(false);
     }
 
-    private boolean isIdleForTooLong(final EC2FleetCloud cloud, final Computer computer) {
-        final int idleMinutes = cloud.getIdleMinutes();
-        if (idleMinutes <= 0) return false;
-        final long idleTime = System.currentTimeMillis() - computer.getIdleStartMilliseconds();
-        final long maxIdle = TimeUnit.MINUTES.toMillis(idleMinutes);
-        LOGGER.log(Level.INFO, "Instance: " + computer.getDisplayName() + " Age: " + idleTime + " Max Age:" + maxIdle);
+    private static void reconnectIfNeeded(final EC2FleetCloud cloud, final SlaveComputer computer) {
+        if (cloud.isAlwaysReconnect() && computer.isOffline() && !computer.isConnecting() && computer.isLaunchSupported()) {
+            LOGGER.log(Level.INFO, "Reconnecting to instance: " + computer.getDisplayName());
+            computer.tryReconnect();
+        }
+    }
+
+    /**
+     * @return idle timeout of cloud nodes in msec, <code>0</code> if nodes are not scaled down
+     */
+    static long getMaxIdle(final EC2FleetCloud cloud) {
+        if (cloud.getIdleSeconds() > 0) return TimeUnit.SECONDS.toMillis(cloud.getIdleSeconds());
+        return TimeUnit.MINUTES.toMillis(Math.max(0, cloud.getIdleMinutes()));
+    }
+
+    static boolean isIdleForTooLong(final EC2FleetCloud cloud, final Computer computer, final long now) {
+        final long maxIdle = getMaxIdle(cloud);
+        if (maxIdle <= 0) return false;
+        final long idleTime = now - computer.getIdleStartMilliseconds();
+        LOGGER.log(Level.FINE, "Instance: {0} Age: {1} Max Age: {2}",
+                new Object[]{computer.getDisplayName(), idleTime, maxIdle});
         return idleTime > maxIdle;
     }
 }
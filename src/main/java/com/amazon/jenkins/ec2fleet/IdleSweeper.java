@@ -0,0 +1,143 @@
+package com.amazon.jenkins.ec2fleet;
+
+import com.google.common.annotations.VisibleForTesting;
+import hudson.Extension;
+import hudson.model.Computer;
+import hudson.model.Node;
+import hudson.model.PeriodicWork;
+import hudson.model.Queue;
+import jenkins.model.Jenkins;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Find idle too long nodes of all {@link EC2FleetCloud} in one pass per minute and schedule them
+ * to terminate as one batch per cloud by {@link EC2FleetCloud#scheduleToTerminate(java.util.Collection)},
+ * instead of check of each computer by {@link IdleRetentionStrategy} which takes Queue lock, toggles
+ * accepting tasks and calls cloud separately for each computer.
+ * <p>
+ * Whole pass is done under one {@link Queue#withLock(Runnable)}, so tasks could not be assigned to
+ * selected computers, only selected computers stop accepting tasks and ones which cloud didn't accept
+ * for termination (<code>minSize</code>, warm pool) accept tasks again.
+ * <p>
+ * Disabled by default, to enable start Jenkins with
+ * <code>-Dcom.amazon.jenkins.ec2fleet.IdleSweeper.enabled=true</code>
+ */
+@Extension
+@SuppressWarnings("WeakerAccess")
+public class IdleSweeper extends PeriodicWork {
+
+    private static final Logger LOGGER = Logger.getLogger(IdleSweeper.class.getName());
+
+    private static final String ENABLED_PROPERTY = IdleSweeper.class.getName() + ".enabled";
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(ENABLED_PROPERTY);
+    }
+
+    @Override
+    public long getRecurrencePeriod() {
+        return TimeUnit.MINUTES.toMillis(1);
+    }
+
+    @Override
+    protected void doRun() {
+        if (!isEnabled()) return;
+
+        final Jenkins jenkins = Jenkins.getInstance();
+        if (jenkins == null) return;
+
+        Queue.withLock(new Runnable() {
+            @Override
+            public void run() {
+                sweep(Arrays.asList(jenkins.getComputers()), System.currentTimeMillis());
+            }
+        });
+    }
+
+    /**
+     * Should be called under {@link Queue#withLock(Runnable)}
+     *
+     * @param computers all computers
+     * @param now       current time
+     * @return amount of computers scheduled to terminate
+     */
+    @VisibleForTesting
+    int sweep(final List<Computer> computers, final long now) {
+        int scheduled = 0;
+        for (final Map.Entry<EC2FleetCloud, List<EC2FleetNodeComputer>> entry : findIdleTooLong(computers, now).entrySet()) {
+            scheduled += terminate(entry.getKey(), entry.getValue()).size();
+        }
+        return scheduled;
+    }
+
+    /**
+     * @param computers all computers
+     * @param now       current time
+     * @return idle too long computers of {@link EC2FleetCloud} grouped by cloud
+     */
+    static Map<EC2FleetCloud, List<EC2FleetNodeComputer>> findIdleTooLong(final List<Computer> computers, final long now) {
+        final Map<EC2FleetCloud, List<EC2FleetNodeComputer>> candidates = new HashMap<>();
+        for (final Computer computer : computers) {
+            if (!(computer instanceof EC2FleetNodeComputer)) continue;
+            final EC2FleetNodeComputer fc = (EC2FleetNodeComputer) computer;
+
+            // cloud could be null for some time after configuration change, next sweep will get it
+            final EC2FleetCloud cloud = fc.getCloud();
+            if (cloud == null) continue;
+
+            if (!fc.isIdle() || !IdleRetentionStrategy.isIdleForTooLong(cloud, fc, now)) continue;
+            if (fc.getNode() == null) continue;
+
+            List<EC2FleetNodeComputer> cloudCandidates = candidates.get(cloud);
+            if (cloudCandidates == null) {
+                cloudCandidates = new ArrayList<>();
+                candidates.put(cloud, cloudCandidates);
+            }
+            cloudCandidates.add(fc);
+        }
+        return candidates;
+    }
+
+    /**
+     * Schedule idle computers of cloud to terminate as one batch, computers stop accepting tasks while
+     * cloud selects them. Should be called under {@link Queue#withLock(Runnable)}
+     *
+     * @param cloud     cloud of computers
+     * @param computers idle too long computers
+     * @return instance ids scheduled to terminate
+     */
+    static Set<String> terminate(final EC2FleetCloud cloud, final List<EC2FleetNodeComputer> computers) {
+        final List<String> instanceIds = new ArrayList<>(computers.size());
+        final List<Boolean> acceptingTasks = new ArrayList<>(computers.size());
+        for (final EC2FleetNodeComputer computer : computers) {
+            final Node node = computer.getNode();
+            instanceIds.add(node == null ? computer.getName() : node.getNodeName());
+            acceptingTasks.add(computer.isAcceptingTasks());
+            computer.setAcceptingTasks(false);
+        }
+
+        Set<String> scheduled = Collections.emptySet();
+        try {
+            scheduled = cloud.scheduleToTerminate(instanceIds);
+        } finally {
+            for (int i = 0; i < computers.size(); i++) {
+                if (!scheduled.contains(instanceIds.get(i))) computers.get(i).setAcceptingTasks(acceptingTasks.get(i));
+            }
+        }
+
+        LOGGER.log(scheduled.isEmpty() ? Level.FINE : Level.INFO, "{0} idle nodes {1}, scheduled to terminate {2}",
+                new Object[]{cloud.getDisplayName(), instanceIds.size(), scheduled.size()});
+        return scheduled;
+    }
+
+}
@@ -0,0 +1,197 @@
+package com.amazon.jenkins.ec2fleet;
+
+import net.sf.json.JSONObject;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Interruptions and build time lost by them per instance type and availability zone of one fleet,
+ * so fleet could be tuned to use types which are interrupted less. Kept in memory only, reset on restart.
+ * <p>
+ * Launched and interrupted instances are counted by {@link EC2FleetCloud#update()}, aborted runs by
+ * {@link EC2FleetAutoResubmitComputerLauncher} and result of resubmitted runs by {@link ResubmittedRunListener}.
+ * Wasted executor hours are sum of run time of aborted runs, each run holds one executor.
+ */
+@SuppressWarnings("WeakerAccess")
+@ThreadSafe
+public class InterruptionStatistics {
+
+    static final String UNKNOWN = "unknown";
+
+    private static final double HOUR_MSEC = TimeUnit.HOURS.toMillis(1);
+
+    public static class Entry {
+
+        private long launched;
+        private long interrupted;
+        private long abortedRuns;
+        private long wastedMsec;
+        private long resubmitSucceeded;
+        private long resubmitFailed;
+
+        public long getLaunched() {
+            return launched;
+        }
+
+        public long getInterrupted() {
+            return interrupted;
+        }
+
+        /**
+         * @return interrupted per launched instance, <code>0</code> if nothing launched
+         */
+        public double getInterruptionRate() {
+            return launched == 0 ? 0 : (double) interrupted / launched;
+        }
+
+        public long getAbortedRuns() {
+            return abortedRuns;
+        }
+
+        public double getWastedExecutorHours() {
+            return wastedMsec / HOUR_MSEC;
+        }
+
+        public long getResubmitSucceeded() {
+            return resubmitSucceeded;
+        }
+
+        public long getResubmitFailed() {
+            return resubmitFailed;
+        }
+
+        private Entry copy() {
+            final Entry copy = new Entry();
+            copy.launched = launched;
+            copy.interrupted = interrupted;
+            copy.abortedRuns = abortedRuns;
+            copy.wastedMsec = wastedMsec;
+            copy.resubmitSucceeded = resubmitSucceeded;
+            copy.resubmitFailed = resubmitFailed;
+            return copy;
+        }
+
+        private JSONObject toJson() {
+            final JSONObject json = new JSONObject();
+            json.put("launched", launched);
+            json.put("interrupted", interrupted);
+            json.put("interruptionRate", getInterruptionRate());
+            json.put("abortedRuns", abortedRuns);
+            json.put("wastedExecutorHours", getWastedExecutorHours());
+            json.put("resubmitSucceeded", resubmitSucceeded);
+            json.put("resubmitFailed", resubmitFailed);
+            return json;
+        }
+
+    }
+
+    private final Map<String, Entry> byType = new HashMap<>();
+    private final Map<String, Entry> byZone = new HashMap<>();
+
+    public synchronized void recordLaunched(@Nullable final String instanceType, @Nullable final String zone) {
+        entry(byType, instanceType).launched++;
+        entry(byZone, zone).launched++;
+    }
+
+    public synchronized void recordInterrupted(@Nullable final String instanceType, @Nullable final String zone) {
+        entry(byType, instanceType).interrupted++;
+        entry(byZone, zone).interrupted++;
+    }
+
+    /**
+     * @param elapsedMsec time run was running before abort
+     */
+    public synchronized void recordAborted(@Nullable final String instanceType, @Nullable final String zone,
+                                           final long elapsedMsec) {
+        for (final Entry entry : new Entry[]{entry(byType, instanceType), entry(byZone, zone)}) {
+            entry.abortedRuns++;
+            entry.wastedMsec += Math.max(0, elapsedMsec);
+        }
+    }
+
+    public synchronized void recordResubmitResult(@Nullable final String instanceType, @Nullable final String zone,
+                                                  final boolean success) {
+        for (final Entry entry : new Entry[]{entry(byType, instanceType), entry(byZone, zone)}) {
+            if (success) entry.resubmitSucceeded++;
+            else entry.resubmitFailed++;
+        }
+    }
+
+    /**
+     * @return copy of statistics by instance type, sorted by type
+     */
+    public synchronized Map<String, Entry> getByType() {
+        return copy(byType);
+    }
+
+    /**
+     * @return copy of statistics by availability zone, sorted by zone
+     */
+    public synchronized Map<String, Entry> getByZone() {
+        return copy(byZone);
+    }
+
+    /**
+     * @return interrupted instances by instance type, unknown type is not included
+     */
+    public synchronized Map<String, Integer> getInterruptedByType() {
+        final Map<String, Integer> result = new HashMap<>();
+        for (final Map.Entry<String, Entry> entry : byType.entrySet()) {
+            if (!UNKNOWN.equals(entry.getKey()) && entry.getValue().interrupted > 0) {
+                result.put(entry.getKey(), (int) entry.getValue().interrupted);
+            }
+        }
+        return result;
+    }
+
+    public synchronized void transferFrom(final InterruptionStatistics other) {
+        if (other == this) return;
+        synchronized (other) {
+            for (final Map.Entry<String, Entry> entry : other.byType.entrySet()) {
+                byType.put(entry.getKey(), entry.getValue().copy());
+            }
+            for (final Map.Entry<String, Entry> entry : other.byZone.entrySet()) {
+                byZone.put(entry.getKey(), entry.getValue().copy());
+            }
+        }
+    }
+
+    public synchronized JSONObject toJson() {
+        final JSONObject types = new JSONObject();
+        for (final Map.Entry<String, Entry> entry : copy(byType).entrySet()) {
+            types.put(entry.getKey(), entry.getValue().toJson());
+        }
+        final JSONObject zones = new JSONObject();
+        for (final Map.Entry<String, Entry> entry : copy(byZone).entrySet()) {
+            zones.put(entry.getKey(), entry.getValue().toJson());
+        }
+        final JSONObject json = new JSONObject();
+        json.put("byInstanceType", types);
+        json.put("byAvailabilityZone", zones);
+        return json;
+    }
+
+    private static Entry entry(final Map<String, Entry> entries, @Nullable final String key) {
+        final String effectiveKey = key == null ? UNKNOWN : key;
+        Entry entry = entries.get(effectiveKey);
+        if (entry == null) {
+            entry = new Entry();
+            entries.put(effectiveKey, entry);
+        }
+        return entry;
+    }
+
+    private static Map<String, Entry> copy(final Map<String, Entry> entries) {
+        final Map<String, Entry> result = new TreeMap<>();
+        for (final Map.Entry<String, Entry> entry : entries.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().copy());
+        }
+        return result;
+    }
+
+}
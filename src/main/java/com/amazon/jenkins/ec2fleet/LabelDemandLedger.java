@@ -0,0 +1,144 @@
+package com.amazon.jenkins.ec2fleet;
+
+import hudson.slaves.NodeProvisioner;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Account executors planned by {@link EC2FleetCloud#provision(hudson.model.Label, int)} per requesting
+ * label, to not over provision when several label expressions like <code>linux</code> and
+ * <code>linux&amp;&amp;docker</code> are served by the same fleet.
+ * <p>
+ * Each label has own node provisioner which knows only own planned nodes, however all nodes of fleet
+ * have the same labels, so executors which were planned for one label above its demand (fleet launches
+ * whole instances) could run tasks of another label. Such spare executors are kept with label which
+ * planned them till all their planned nodes are completed, expired or cancelled, after that nodes are
+ * visible to all labels as available executors. Label doesn't get own spare executors back, its node
+ * provisioner already counts them as planned.
+ * <p>
+ * Node provisioner of other label doesn't know about spare executors and requests the same demand on each
+ * round, so spare executors cover demand again in each round. Round is {@link LabelDemandLedger#ROUND_MSEC},
+ * within round spare executors are split between labels.
+ */
+@SuppressWarnings("WeakerAccess")
+@ThreadSafe
+public class LabelDemandLedger {
+
+    /**
+     * Same as default recurrence period of {@link hudson.slaves.NodeProvisioner}
+     */
+    static final long ROUND_MSEC = TimeUnit.SECONDS.toMillis(10);
+
+    private static final class Spare {
+        private final String label;
+        private final int executors;
+        private final List<NodeProvisioner.PlannedNode> plannedNodes;
+        /**
+         * Executors not yet claimed by other labels in current round
+         */
+        private int available;
+
+        private Spare(final String label, final int executors, final List<NodeProvisioner.PlannedNode> plannedNodes) {
+            this.label = label;
+            this.executors = executors;
+            this.plannedNodes = plannedNodes;
+            this.available = executors;
+        }
+
+        private boolean isPending() {
+            for (final NodeProvisioner.PlannedNode plannedNode : plannedNodes) {
+                if (!plannedNode.future.isDone()) return true;
+            }
+            return false;
+        }
+    }
+
+    private final List<Spare> spares = new ArrayList<>();
+    private long roundStart = -1;
+    private long coveredExecutors;
+
+    /**
+     * Reduce demand of label by spare executors planned for other labels, which are still pending
+     * and not claimed in this round.
+     *
+     * @param label  label expression or empty string for unlabeled demand
+     * @param demand demand in executors
+     * @param now    current time in msec
+     * @return demand which is not covered
+     */
+    public synchronized int claim(final String label, final int demand, final long now) {
+        startRoundIfExpired(now);
+
+        int remaining = demand;
+        final Iterator<Spare> iterator = spares.iterator();
+        while (remaining > 0 && iterator.hasNext()) {
+            final Spare spare = iterator.next();
+            if (!spare.isPending()) {
+                iterator.remove();
+                continue;
+            }
+            if (spare.label.equals(label)) continue;
+
+            final int taken = Math.min(remaining, spare.available);
+            spare.available -= taken;
+            remaining -= taken;
+        }
+        coveredExecutors += demand - Math.max(0, remaining);
+        return remaining;
+    }
+
+    /**
+     * Remember executors planned above demand, no-op if none.
+     *
+     * @param label        label expression or empty string for unlabeled demand
+     * @param demand       not covered demand returned by {@link LabelDemandLedger#claim(String, int, long)}
+     * @param plannedNodes planned nodes, spare executors are kept till they are done
+     * @param now          current time in msec
+     */
+    public synchronized void recordPlanned(final String label, final int demand,
+                                           final Collection<NodeProvisioner.PlannedNode> plannedNodes, final long now) {
+        startRoundIfExpired(now);
+        int planned = 0;
+        for (final NodeProvisioner.PlannedNode plannedNode : plannedNodes) planned += plannedNode.numExecutors;
+        if (planned > demand) {
+            spares.add(new Spare(label, planned - demand, new ArrayList<>(plannedNodes)));
+        }
+    }
+
+    /**
+     * @return executors of demand which were covered by capacity planned for other labels, counted
+     * in each round while spare executors are pending
+     */
+    public synchronized long getCoveredExecutors() {
+        return coveredExecutors;
+    }
+
+    /**
+     * @return spare executors of pending planned nodes
+     */
+    public synchronized int getSpareExecutors() {
+        int executors = 0;
+        for (final Spare spare : spares) {
+            if (spare.isPending()) executors += spare.executors;
+        }
+        return executors;
+    }
+
+    private void startRoundIfExpired(final long now) {
+        if (roundStart < 0 || now - roundStart > ROUND_MSEC || now < roundStart) {
+            final Iterator<Spare> iterator = spares.iterator();
+            while (iterator.hasNext()) {
+                final Spare spare = iterator.next();
+                if (spare.isPending()) spare.available = spare.executors;
+                else iterator.remove();
+            }
+            roundStart = now;
+        }
+    }
+
+}
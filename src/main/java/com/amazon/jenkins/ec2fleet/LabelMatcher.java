@@ -0,0 +1,52 @@
+package com.amazon.jenkins.ec2fleet;
+
+import com.google.common.collect.MapMaker;
+import hudson.model.Label;
+import hudson.model.labels.LabelAtom;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Check if label could be provisioned by {@link EC2FleetCloud}, label of cloud is parsed once and result
+ * is remembered per {@link Label}.
+ * <p>
+ * {@link hudson.slaves.NodeProvisioner} and {@link NoDelayProvisionStrategy} call
+ * {@link EC2FleetCloud#canProvision(Label)} for each label and each cloud on each provision round, while
+ * label of cloud changes only with configuration, which creates new instance of cloud and this matcher.
+ * Jenkins keeps one instance per label expression, so weak keys are enough to not hold labels which
+ * Jenkins already dropped.
+ */
+@SuppressWarnings("WeakerAccess")
+@ThreadSafe
+class LabelMatcher {
+
+    private final Set<LabelAtom> atoms;
+
+    private final ConcurrentMap<Label, Boolean> matches = new MapMaker()
+            .weakKeys()
+            .makeMap();
+
+    public LabelMatcher(@Nonnull final Set<LabelAtom> atoms) {
+        this.atoms = atoms;
+    }
+
+    /**
+     * @param label label or <code>null</code> for any
+     * @return <code>true</code> if all atoms of label are in atoms of cloud
+     */
+    public boolean matches(@Nullable final Label label) {
+        if (label == null) return true;
+
+        Boolean result = matches.get(label);
+        if (result == null) {
+            result = atoms.containsAll(label.listAtoms());
+            matches.put(label, result);
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.amazon.jenkins.ec2fleet;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fixed buckets histogram of latency in milliseconds, doesn't keep samples so memory is constant
+ * regardless of amount of recorded values. Percentile is approximated by upper bound of bucket.
+ * <p>
+ * Buckets are selected for EC2 instance life cycle, from seconds to tens of minutes.
+ */
+@SuppressWarnings("WeakerAccess")
+@ThreadSafe
+public class LatencyHistogram {
+
+    private static final long[] BUCKET_BOUNDS_SEC = {5, 10, 15, 30, 45, 60, 90, 120, 180, 240, 300, 450, 600, 900, 1800};
+
+    private final long[] counts = new long[BUCKET_BOUNDS_SEC.length + 1];
+    private long count;
+    private long sum;
+    private long max;
+
+    public synchronized void record(final long latencyMillis) {
+        final long value = Math.max(latencyMillis, 0);
+        final long valueSec = TimeUnit.MILLISECONDS.toSeconds(value);
+        int bucket = 0;
+        while (bucket < BUCKET_BOUNDS_SEC.length && valueSec >= BUCKET_BOUNDS_SEC[bucket]) bucket++;
+        counts[bucket]++;
+        count++;
+        sum += value;
+        max = Math.max(max, value);
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /**
+     * @return average in milliseconds or <code>0</code> if no values
+     */
+    public synchronized long getMean() {
+        return count == 0 ? 0 : sum / count;
+    }
+
+    public synchronized long getMax() {
+        return max;
+    }
+
+    /**
+     * @param percentile from <code>0</code> to <code>100</code>
+     * @return upper bound of bucket which contains percentile in milliseconds, max value for last bucket
+     * or <code>0</code> if no values
+     */
+    public synchronized long getPercentile(final int percentile) {
+        if (count == 0) return 0;
+        final long rank = Math.max(1, (count * percentile + 99) / 100);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return i < BUCKET_BOUNDS_SEC.length ? Math.min(TimeUnit.SECONDS.toMillis(BUCKET_BOUNDS_SEC[i]), max) : max;
+            }
+        }
+        return max;
+    }
+
+    public synchronized long[] getCounts() {
+        return Arrays.copyOf(counts, counts.length);
+    }
+
+    public static long[] getBucketBoundsSec() {
+        return Arrays.copyOf(BUCKET_BOUNDS_SEC, BUCKET_BOUNDS_SEC.length);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "count " + count + ", avg " + getMean() + " msec, p50 " + getPercentile(50)
+                + " msec, p90 " + getPercentile(90) + " msec, max " + max + " msec";
+    }
+
+}
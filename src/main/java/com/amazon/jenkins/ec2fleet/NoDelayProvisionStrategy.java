@@ -2,15 +2,22 @@ package com.amazon.jenkins.ec2fleet;
 
 import com.google.common.annotations.VisibleForTesting;
 import hudson.Extension;
+import hudson.model.Computer;
+import hudson.model.Executor;
 import hudson.model.Label;
 import hudson.model.LoadStatistics;
+import hudson.model.Node;
+import hudson.model.Queue;
 import hudson.slaves.Cloud;
 import hudson.slaves.NodeProvisioner;
 import jenkins.model.Jenkins;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -21,17 +28,43 @@ import java.util.logging.Logger;
  * <p>
  * As based we are used
  * <a href="https://github.com/jenkinsci/ec2-plugin/blob/master/src/main/java/hudson/plugins/ec2/NoDelayProvisionerStrategy.java">EC2 Jenkins Plugin</a>
+ * <p>
+ * When multiple clouds can provision label demand is split by {@link ProvisionDistributionPolicy},
+ * {@link ProvisionDistributionPolicy#FIRST} by default, to change start Jenkins with
+ * <code>-Dcom.amazon.jenkins.ec2fleet.NoDelayProvisionStrategy.distribution=ROUND_ROBIN</code>.
+ * Clouds which cannot provision now, see {@link EC2FleetCloud#isProvisionBlocked()}, are skipped.
+ * <p>
+ * By default each queued task is one executor of demand. With
+ * <code>-Dcom.amazon.jenkins.ec2fleet.NoDelayProvisionStrategy.durationAware=true</code> demand is
+ * estimated by {@link DurationAwareDemandEstimator} from estimated durations of queued tasks and
+ * executors which will free up before new node could be online, so short tasks don't provision
+ * instances for work which existing executors finish anyway.
  */
 @Extension(ordinal = 100)
 public class NoDelayProvisionStrategy extends NodeProvisioner.Strategy {
 
     private static final Logger LOGGER = Logger.getLogger(NoDelayProvisionStrategy.class.getName());
 
+    private static final String DISTRIBUTION_PROPERTY = NoDelayProvisionStrategy.class.getName() + ".distribution";
+
+    private static final String DURATION_AWARE_PROPERTY = NoDelayProvisionStrategy.class.getName() + ".durationAware";
+
+    /**
+     * Used as boot horizon when cloud didn't provision anything yet
+     */
+    private static final long DEFAULT_HORIZON_MSEC = TimeUnit.MINUTES.toMillis(3);
+
+    private final ProvisionDistributor distributor = new ProvisionDistributor();
+
     @Override
     public NodeProvisioner.StrategyDecision apply(final NodeProvisioner.StrategyState strategyState) {
         final Label label = strategyState.getLabel();
 
+        final String traceLabel = label == null ? "" : label.getExpression();
+        final long now = System.currentTimeMillis();
+
         final LoadStatistics.LoadStatisticsSnapshot snapshot = strategyState.getSnapshot();
+        final int plannedCapacity = strategyState.getPlannedCapacitySnapshot() + strategyState.getAdditionalPlannedCapacity();
         final int availableCapacity =
                 snapshot.getAvailableExecutors()   // live executors
                         + snapshot.getConnectingExecutors()  // executors present but not yet connected
@@ -42,17 +75,48 @@ public class NoDelayProvisionStrategy extends NodeProvisioner.Strategy {
         LOGGER.log(Level.INFO, "Available capacity={0}, currentDemand={1}",
                 new Object[]{availableCapacity, currentDemand});
 
-        for (final Cloud cloud : getClouds()) {
-            if (currentDemand < 1) break;
+        final List<EC2FleetCloud> eligibleClouds = new ArrayList<>();
+        if (currentDemand > 0) {
+            for (final Cloud cloud : getClouds()) {
+                if (!(cloud instanceof EC2FleetCloud)) continue;
+                if (!cloud.canProvision(label)) continue;
 
-            if (!(cloud instanceof EC2FleetCloud)) continue;
-            if (!cloud.canProvision(label)) continue;
+                final EC2FleetCloud ec2 = (EC2FleetCloud) cloud;
+                if (!ec2.isNoDelayProvision()) continue;
+                if (ec2.isProvisionBlocked()) {
+                    LOGGER.log(Level.FINE, "Skip {0}, cloud cannot provision now", ec2.getDisplayName());
+                    trace(ec2, traceLabel, now, snapshot, plannedCapacity, currentDemand, ProvisioningTrace.Reason.BLOCKED);
+                    continue;
+                }
+                eligibleClouds.add(ec2);
+            }
+        }
 
-            final EC2FleetCloud ec2 = (EC2FleetCloud) cloud;
-            if (!ec2.isNoDelayProvision()) continue;
+        if (currentDemand > 0 && !eligibleClouds.isEmpty() && isDurationAware()) {
+            final long horizon = getHorizon(eligibleClouds);
+            final int estimatedDemand = Math.min(currentDemand, DurationAwareDemandEstimator.estimate(
+                    getQueuedDurations(label), availableCapacity, getBusyRemaining(label), horizon));
+            LOGGER.log(Level.INFO, "Estimated demand={0} in {1} msec", new Object[]{estimatedDemand, horizon});
+            currentDemand = estimatedDemand;
+        }
 
-            final Collection<NodeProvisioner.PlannedNode> plannedNodes = cloud.provision(label, currentDemand);
-            currentDemand -= plannedNodes.size();
+        final int[] shares = distributor.distribute(getDistributionPolicy(), eligibleClouds, currentDemand);
+        // share which previous cloud could not provide goes to next one
+        int carry = 0;
+        for (int i = 0; i < eligibleClouds.size(); i++) {
+            if (currentDemand < 1) break;
+
+            final int request = Math.min(currentDemand, shares[i] + carry);
+            if (request < 1) continue;
+
+            trace(eligibleClouds.get(i), traceLabel, now, snapshot, plannedCapacity, request, ProvisioningTrace.Reason.STRATEGY);
+            final Collection<NodeProvisioner.PlannedNode> plannedNodes = eligibleClouds.get(i).provision(label, request);
+            int plannedExecutors = 0;
+            for (final NodeProvisioner.PlannedNode plannedNode : plannedNodes) {
+                plannedExecutors += Math.max(1, plannedNode.numExecutors);
+            }
+            currentDemand -= plannedExecutors;
+            carry = Math.max(0, request - plannedExecutors);
             LOGGER.log(Level.FINE, "Planned {0} new nodes", plannedNodes.size());
             strategyState.recordPendingLaunches(plannedNodes);
             LOGGER.log(Level.FINE, "After provisioning, available capacity={0}, currentDemand={1}",
@@ -68,6 +132,89 @@ public class NoDelayProvisionStrategy extends NodeProvisioner.Strategy {
         }
     }
 
+    private static void trace(final EC2FleetCloud cloud, final String label, final long now,
+                              final LoadStatistics.LoadStatisticsSnapshot snapshot, final int plannedCapacity,
+                              final int demand, final ProvisioningTrace.Reason reason) {
+        final ProvisioningTrace trace = cloud.getProvisioningTrace();
+        // could be null for mocked cloud
+        if (trace == null) return;
+        trace.recordStrategy(label, now, snapshot.getAvailableExecutors(), snapshot.getConnectingExecutors(),
+                plannedCapacity, snapshot.getQueueLength(), demand, reason);
+    }
+
+    /**
+     * @return shortest time to get node online among clouds, smaller horizon gives bigger demand
+     */
+    private static long getHorizon(final List<EC2FleetCloud> clouds) {
+        long horizon = Long.MAX_VALUE;
+        for (final EC2FleetCloud cloud : clouds) {
+            final LatencyHistogram latency = cloud.getProvisionLatency();
+            horizon = Math.min(horizon, latency == null || latency.getCount() == 0
+                    ? DEFAULT_HORIZON_MSEC : latency.getPercentile(90));
+        }
+        return horizon;
+    }
+
+    @VisibleForTesting
+    protected boolean isDurationAware() {
+        return Boolean.getBoolean(DURATION_AWARE_PROPERTY);
+    }
+
+    /**
+     * @return estimated duration of buildable tasks of label in queue order, <code>-1</code> if unknown
+     */
+    @VisibleForTesting
+    protected long[] getQueuedDurations(final Label label) {
+        final Jenkins jenkins = Jenkins.getInstance();
+        if (jenkins == null) return new long[0];
+
+        final List<Queue.BuildableItem> items = jenkins.getQueue().getBuildableItems();
+        final long[] durations = new long[items.size()];
+        int count = 0;
+        for (final Queue.BuildableItem item : items) {
+            if (label == null ? item.getAssignedLabel() != null : !label.equals(item.getAssignedLabel())) continue;
+            durations[count++] = item.task.getEstimatedDuration();
+        }
+        return Arrays.copyOf(durations, count);
+    }
+
+    /**
+     * @return estimated remaining time of busy executors which could take label tasks,
+     * <code>-1</code> if unknown
+     */
+    @VisibleForTesting
+    protected long[] getBusyRemaining(final Label label) {
+        final Jenkins jenkins = Jenkins.getInstance();
+        if (jenkins == null) return new long[0];
+
+        final List<Long> remaining = new ArrayList<>();
+        for (final Node node : label == null ? jenkins.getNodes() : label.getNodes()) {
+            if (label == null && node.getMode() != Node.Mode.NORMAL) continue;
+            final Computer computer = node.toComputer();
+            if (computer == null || !computer.isOnline()) continue;
+            for (final Executor executor : computer.getExecutors()) {
+                if (!executor.isIdle()) remaining.add(executor.getEstimatedRemainingTimeMillis());
+            }
+        }
+
+        final long[] result = new long[remaining.size()];
+        for (int i = 0; i < result.length; i++) result[i] = remaining.get(i);
+        return result;
+    }
+
+    @VisibleForTesting
+    protected ProvisionDistributionPolicy getDistributionPolicy() {
+        final String value = System.getProperty(DISTRIBUTION_PROPERTY);
+        if (value == null) return ProvisionDistributionPolicy.FIRST;
+        try {
+            return ProvisionDistributionPolicy.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            LOGGER.log(Level.WARNING, "Unknown distribution policy {0}, use {1}",
+                    new Object[]{value, ProvisionDistributionPolicy.FIRST});
+            return ProvisionDistributionPolicy.FIRST;
+        }
+    }
+
     @VisibleForTesting
     protected List<Cloud> getClouds() {
         final Jenkins jenkins = Jenkins.getInstance();
@@ -0,0 +1,135 @@
+package com.amazon.jenkins.ec2fleet;
+
+import com.google.common.util.concurrent.SettableFuture;
+import hudson.model.Node;
+import hudson.slaves.NodeProvisioner;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * FIFO of {@link NodeProvisioner.PlannedNode} created by {@link EC2FleetCloud#provision(hudson.model.Label, int)}
+ * and not yet completed by new fleet instance.
+ * <p>
+ * Each planned node gets unique name and creation time, so oldest request is completed first by
+ * new instance and requests which capacity never arrives could be expired. Expired planned node
+ * future is failed, so {@link NodeProvisioner} stops to count it as planned capacity.
+ *
+ * @see EC2FleetCloud
+ */
+@SuppressWarnings("WeakerAccess")
+@ThreadSafe
+class PlannedNodeQueue {
+
+    static final class Entry {
+
+        private final NodeProvisioner.PlannedNode plannedNode;
+        private final long createdAt;
+
+        private Entry(final NodeProvisioner.PlannedNode plannedNode, final long createdAt) {
+            this.plannedNode = plannedNode;
+            this.createdAt = createdAt;
+        }
+
+        public NodeProvisioner.PlannedNode getPlannedNode() {
+            return plannedNode;
+        }
+
+        @SuppressWarnings("unchecked")
+        public SettableFuture<Node> getFuture() {
+            return (SettableFuture<Node>) plannedNode.future;
+        }
+
+        public long getCreatedAt() {
+            return createdAt;
+        }
+
+    }
+
+    private final ArrayDeque<Entry> entries = new ArrayDeque<>();
+    private long sequence;
+
+    public synchronized NodeProvisioner.PlannedNode add(final String namePrefix, final int numExecutors, final long now) {
+        sequence++;
+        final NodeProvisioner.PlannedNode plannedNode = new NodeProvisioner.PlannedNode(
+                namePrefix + "-" + sequence, SettableFuture.<Node>create(), numExecutors);
+        entries.addLast(new Entry(plannedNode, now));
+        return plannedNode;
+    }
+
+    /**
+     * Move all planned nodes from other queue to the end of this one, keeping their order and names.
+     *
+     * @param other queue to take planned nodes from, will be empty after call
+     */
+    public void transferFrom(final PlannedNodeQueue other) {
+        final List<Entry> transferred;
+        synchronized (other) {
+            transferred = new ArrayList<>(other.entries);
+            other.entries.clear();
+            synchronized (this) {
+                // continue sequence so names stay unique
+                sequence = Math.max(sequence, other.sequence);
+            }
+        }
+        synchronized (this) {
+            entries.addAll(transferred);
+        }
+    }
+
+    /**
+     * @return oldest not completed planned node or <code>null</code> if none
+     */
+    @Nullable
+    public synchronized Entry poll() {
+        Entry entry;
+        while ((entry = entries.pollFirst()) != null) {
+            // could be cancelled by Jenkins or expired, skip
+            if (!entry.plannedNode.future.isDone()) return entry;
+        }
+        return null;
+    }
+
+    /**
+     * Remove planned nodes older than timeout and fail their futures.
+     *
+     * @param now           current time in msec
+     * @param timeoutMillis max age
+     * @return expired planned nodes
+     */
+    public List<Entry> expire(final long now, final long timeoutMillis) {
+        final List<Entry> expired = new ArrayList<>();
+        synchronized (this) {
+            final Iterator<Entry> iterator = entries.iterator();
+            while (iterator.hasNext()) {
+                final Entry entry = iterator.next();
+                if (entry.plannedNode.future.isDone()) {
+                    iterator.remove();
+                } else if (now - entry.createdAt > timeoutMillis) {
+                    iterator.remove();
+                    expired.add(entry);
+                } else {
+                    // entries are ordered by creation time, all next are younger
+                    break;
+                }
+            }
+        }
+
+        // resolve outside of lock, future listeners are called in this thread
+        for (final Entry entry : expired) {
+            entry.getFuture().setException(new IllegalStateException(
+                    "Planned node " + entry.plannedNode.displayName + " expired, capacity was not provided in "
+                            + timeoutMillis + " msec"));
+        }
+        return expired;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+}
@@ -0,0 +1,36 @@
+package com.amazon.jenkins.ec2fleet;
+
+/**
+ * How {@link NoDelayProvisionStrategy} splits demand of label between multiple {@link EC2FleetCloud}
+ * which can provision it.
+ *
+ * @see ProvisionDistributor
+ */
+public enum ProvisionDistributionPolicy {
+
+    /**
+     * All demand to first cloud in Jenkins configuration order, what it cannot provide to next one
+     */
+    FIRST,
+
+    /**
+     * Equal share for each cloud, first cloud changes each time
+     */
+    ROUND_ROBIN,
+
+    /**
+     * Share proportional to capacity which cloud could add before max size
+     */
+    HEADROOM,
+
+    /**
+     * All demand to cloud with lowest average provision latency first
+     */
+    LATENCY,
+
+    /**
+     * All demand to cloud with lowest share of interrupted nodes first
+     */
+    INTERRUPTION
+
+}
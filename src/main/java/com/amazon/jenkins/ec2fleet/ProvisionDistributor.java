@@ -0,0 +1,124 @@
+package com.amazon.jenkins.ec2fleet;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Split demand between clouds according to {@link ProvisionDistributionPolicy}.
+ * <p>
+ * Result is order of clouds (list is sorted in place) and share of demand for each of them.
+ * Caller should pass share which cloud didn't provide to next one, for ordered policies
+ * share of each cloud is whole demand, so next cloud gets only what previous could not provide.
+ *
+ * @see NoDelayProvisionStrategy
+ */
+@SuppressWarnings("WeakerAccess")
+@ThreadSafe
+class ProvisionDistributor {
+
+    private final AtomicInteger roundRobin = new AtomicInteger();
+
+    /**
+     * @param policy policy
+     * @param clouds clouds which can provision demand, will be reordered
+     * @param demand demand in executors
+     * @return share of demand for each cloud in new order
+     */
+    public int[] distribute(@Nonnull final ProvisionDistributionPolicy policy,
+                            @Nonnull final List<EC2FleetCloud> clouds, final int demand) {
+        final int[] shares = new int[clouds.size()];
+        if (clouds.isEmpty()) return shares;
+
+        switch (policy) {
+            case ROUND_ROBIN:
+                Collections.rotate(clouds, -((roundRobin.getAndIncrement() & Integer.MAX_VALUE) % clouds.size()));
+                splitEqually(shares, demand);
+                break;
+
+            case HEADROOM: {
+                final Map<EC2FleetCloud, Double> headrooms = new IdentityHashMap<>();
+                for (final EC2FleetCloud cloud : clouds) headrooms.put(cloud, (double) cloud.getHeadroom());
+                // biggest first
+                sortBy(clouds, headrooms, true);
+                splitByHeadroom(shares, clouds, headrooms, demand);
+                break;
+            }
+
+            case LATENCY: {
+                final Map<EC2FleetCloud, Double> latencies = new IdentityHashMap<>();
+                for (final EC2FleetCloud cloud : clouds) {
+                    final LatencyHistogram latency = cloud.getProvisionLatency();
+                    // cloud which didn't provision yet is unknown, try it only after measured ones
+                    latencies.put(cloud, latency.getCount() == 0 ? Double.MAX_VALUE : (double) latency.getMean());
+                }
+                sortBy(clouds, latencies, false);
+                fillInOrder(shares, demand);
+                break;
+            }
+
+            case INTERRUPTION: {
+                final Map<EC2FleetCloud, Double> rates = new IdentityHashMap<>();
+                for (final EC2FleetCloud cloud : clouds) rates.put(cloud, cloud.getInterruptionRate());
+                sortBy(clouds, rates, false);
+                fillInOrder(shares, demand);
+                break;
+            }
+
+            default:
+                fillInOrder(shares, demand);
+        }
+        return shares;
+    }
+
+    /**
+     * Cloud getters are synchronized and could return new value during sort, so clouds are sorted
+     * by values read once before sort.
+     */
+    private static void sortBy(final List<EC2FleetCloud> clouds, final Map<EC2FleetCloud, Double> keys,
+                               final boolean descending) {
+        Collections.sort(clouds, new Comparator<EC2FleetCloud>() {
+            @Override
+            public int compare(final EC2FleetCloud o1, final EC2FleetCloud o2) {
+                final int result = Double.compare(keys.get(o1), keys.get(o2));
+                return descending ? -result : result;
+            }
+        });
+    }
+
+    private static void fillInOrder(final int[] shares, final int demand) {
+        for (int i = 0; i < shares.length; i++) shares[i] = demand;
+    }
+
+    private static void splitEqually(final int[] shares, final int demand) {
+        for (int i = 0; i < shares.length; i++) {
+            shares[i] = demand / shares.length + (i < demand % shares.length ? 1 : 0);
+        }
+    }
+
+    /**
+     * Clouds are sorted by headroom, so rounding remainder goes to biggest
+     */
+    private static void splitByHeadroom(final int[] shares, final List<EC2FleetCloud> clouds,
+                                        final Map<EC2FleetCloud, Double> headrooms, final int demand) {
+        long totalHeadroom = 0;
+        for (final EC2FleetCloud cloud : clouds) totalHeadroom += headrooms.get(cloud).longValue();
+        if (totalHeadroom == 0) {
+            splitEqually(shares, demand);
+            return;
+        }
+
+        int left = demand;
+        for (int i = 0; i < shares.length; i++) {
+            shares[i] = (int) (demand * headrooms.get(clouds.get(i)).longValue() / totalHeadroom);
+            left -= shares[i];
+        }
+        for (int i = 0; left > 0; i = (i + 1) % shares.length, left--) shares[i]++;
+    }
+
+}
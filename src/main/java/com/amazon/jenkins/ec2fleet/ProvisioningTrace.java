@@ -0,0 +1,225 @@
+package com.amazon.jenkins.ec2fleet;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Last provisioning decisions of {@link EC2FleetCloud} per label, to find out why scale out was slow.
+ * <p>
+ * Records decisions of {@link NoDelayProvisionStrategy} for cloud and results of
+ * {@link EC2FleetCloud#provision(hudson.model.Label, int)}. Each label has ring buffer of fixed size
+ * stored in primitive arrays, so recording doesn't allocate. Amount of labels is limited, least recently
+ * recorded label is dropped first. Values which are not known for record are <code>-1</code>.
+ * <p>
+ * Available on cloud page and as CSV by {@link EC2FleetCloud#doProvisioningTrace}.
+ */
+@SuppressWarnings("WeakerAccess")
+@ThreadSafe
+public class ProvisioningTrace {
+
+    static final int CAPACITY_PER_LABEL = 100;
+    static final int MAX_LABELS = 50;
+
+    public enum Reason {
+        /**
+         * Decision of {@link NoDelayProvisionStrategy} to ask cloud
+         */
+        STRATEGY,
+        /**
+         * {@link NoDelayProvisionStrategy} skip cloud, see {@link EC2FleetCloud#isProvisionBlocked()}
+         */
+        BLOCKED,
+        PROVISIONED,
+        NOTHING_TO_PROVISION,
+        NO_FIRST_UPDATE,
+        MAX_REACHED,
+        /**
+         * Demand deferred by {@link ScaleOutLimiter}
+         */
+        RATE_LIMITED,
+        /**
+         * Demand covered by capacity planned for other labels, see {@link LabelDemandLedger}
+         */
+        COVERED,
+        FLEET_INACTIVE
+    }
+
+    public static final class Entry {
+
+        private final String label;
+        private final long time;
+        private final int available;
+        private final int connecting;
+        private final int planned;
+        private final int queueLength;
+        private final int demand;
+        private final int cap;
+        private final int toProvision;
+        private final Reason reason;
+
+        private Entry(final String label, final long time, final int available, final int connecting,
+                      final int planned, final int queueLength, final int demand, final int cap,
+                      final int toProvision, final Reason reason) {
+            this.label = label;
+            this.time = time;
+            this.available = available;
+            this.connecting = connecting;
+            this.planned = planned;
+            this.queueLength = queueLength;
+            this.demand = demand;
+            this.cap = cap;
+            this.toProvision = toProvision;
+            this.reason = reason;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public long getTime() {
+            return time;
+        }
+
+        public Date getDate() {
+            return new Date(time);
+        }
+
+        public int getAvailable() {
+            return available;
+        }
+
+        public int getConnecting() {
+            return connecting;
+        }
+
+        public int getPlanned() {
+            return planned;
+        }
+
+        public int getQueueLength() {
+            return queueLength;
+        }
+
+        public int getDemand() {
+            return demand;
+        }
+
+        public int getCap() {
+            return cap;
+        }
+
+        public int getToProvision() {
+            return toProvision;
+        }
+
+        public Reason getReason() {
+            return reason;
+        }
+
+    }
+
+    private static final class Ring {
+        private final long[] time = new long[CAPACITY_PER_LABEL];
+        private final int[] available = new int[CAPACITY_PER_LABEL];
+        private final int[] connecting = new int[CAPACITY_PER_LABEL];
+        private final int[] planned = new int[CAPACITY_PER_LABEL];
+        private final int[] queueLength = new int[CAPACITY_PER_LABEL];
+        private final int[] demand = new int[CAPACITY_PER_LABEL];
+        private final int[] cap = new int[CAPACITY_PER_LABEL];
+        private final int[] toProvision = new int[CAPACITY_PER_LABEL];
+        private final Reason[] reason = new Reason[CAPACITY_PER_LABEL];
+        private int next;
+        private int size;
+    }
+
+    private final Map<String, Ring> rings = new LinkedHashMap<String, Ring>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, Ring> eldest) {
+            return size() > MAX_LABELS;
+        }
+    };
+
+    /**
+     * Record decision of {@link NoDelayProvisionStrategy}
+     */
+    public void recordStrategy(final String label, final long time, final int available, final int connecting,
+                               final int planned, final int queueLength, final int demand, final Reason reason) {
+        record(label, time, available, connecting, planned, queueLength, demand, -1, -1, reason);
+    }
+
+    /**
+     * Record result of {@link EC2FleetCloud#provision(hudson.model.Label, int)}
+     */
+    public void recordProvision(final String label, final long time, final int demand, final int cap,
+                                final int toProvision, final Reason reason) {
+        record(label, time, -1, -1, -1, -1, demand, cap, toProvision, reason);
+    }
+
+    public synchronized void record(final String label, final long time, final int available, final int connecting,
+                                    final int planned, final int queueLength, final int demand, final int cap,
+                                    final int toProvision, final Reason reason) {
+        Ring ring = rings.get(label);
+        if (ring == null) {
+            ring = new Ring();
+            rings.put(label, ring);
+        }
+
+        final int i = ring.next;
+        ring.time[i] = time;
+        ring.available[i] = available;
+        ring.connecting[i] = connecting;
+        ring.planned[i] = planned;
+        ring.queueLength[i] = queueLength;
+        ring.demand[i] = demand;
+        ring.cap[i] = cap;
+        ring.toProvision[i] = toProvision;
+        ring.reason[i] = reason;
+        ring.next = (i + 1) % CAPACITY_PER_LABEL;
+        ring.size = Math.min(ring.size + 1, CAPACITY_PER_LABEL);
+    }
+
+    /**
+     * @return all entries of all labels, newest first
+     */
+    public List<Entry> getEntries() {
+        final List<Entry> entries = new ArrayList<>();
+        synchronized (this) {
+            for (final Map.Entry<String, Ring> e : rings.entrySet()) {
+                final Ring ring = e.getValue();
+                for (int k = 0; k < ring.size; k++) {
+                    final int i = (ring.next - ring.size + k + CAPACITY_PER_LABEL) % CAPACITY_PER_LABEL;
+                    entries.add(new Entry(e.getKey(), ring.time[i], ring.available[i], ring.connecting[i],
+                            ring.planned[i], ring.queueLength[i], ring.demand[i], ring.cap[i], ring.toProvision[i],
+                            ring.reason[i]));
+                }
+            }
+        }
+
+        Collections.sort(entries, new Comparator<Entry>() {
+            @Override
+            public int compare(final Entry o1, final Entry o2) {
+                return Long.compare(o2.time, o1.time);
+            }
+        });
+        return entries;
+    }
+
+    public void writeCsv(final Writer writer) throws IOException {
+        writer.write("time,label,reason,available,connecting,planned,queueLength,demand,cap,toProvision\n");
+        for (final Entry entry : getEntries()) {
+            writer.write(entry.time + ",\"" + entry.label.replace("\"", "\"\"") + "\"," + entry.reason
+                    + "," + entry.available + "," + entry.connecting + "," + entry.planned
+                    + "," + entry.queueLength + "," + entry.demand + "," + entry.cap + "," + entry.toProvision + "\n");
+        }
+        writer.flush();
+    }
+
+}
@@ -0,0 +1,233 @@
+package com.amazon.jenkins.ec2fleet;
+
+import com.google.common.annotations.VisibleForTesting;
+import hudson.model.Action;
+import hudson.model.Queue;
+import hudson.util.DaemonThreadFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Collect tasks of nodes lost in one interruption wave, when EC2 takes several instances at once,
+ * and resubmit them together instead of one by one from each
+ * {@link EC2FleetAutoResubmitComputerLauncher#afterDisconnect(hudson.slaves.SlaveComputer, hudson.model.TaskListener)}.
+ * <p>
+ * Wave starts with first lost task and lasts {@link ResubmitCoordinator#WAVE_MSEC}. At the end tasks are
+ * de-duplicated and scheduled under one {@link Queue#withLock(Runnable)} without quiet period, marked by
+ * {@link ResubmittedAction}, so {@link ResubmitQueueSorter} puts them first. Runs of the same task are
+ * duplicates by the same rule as {@link Queue} uses, so runs with different parameters are all resubmitted.
+ * <p>
+ * Compute lost by wave, time aborted tasks were running, is logged and kept for last
+ * {@link ResubmitCoordinator#MAX_WAVES} waves, shown on page of {@link EC2FleetCloud} which lost nodes.
+ */
+@SuppressWarnings("WeakerAccess")
+@ThreadSafe
+public class ResubmitCoordinator {
+
+    private static final Logger LOGGER = Logger.getLogger(ResubmitCoordinator.class.getName());
+
+    static final long WAVE_MSEC = TimeUnit.SECONDS.toMillis(2);
+
+    static final int MAX_WAVES = 20;
+
+    // use daemon thread, so no problem when stop jenkins
+    private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory());
+
+    /**
+     * Resubmitted tasks of nodes lost together
+     */
+    @ThreadSafe
+    public static class Wave {
+
+        private final long startTime;
+        private final List<Map.Entry<Queue.Task, List<Action>>> tasks = new ArrayList<>();
+        private final Set<String> nodes = new LinkedHashSet<>();
+        private final Set<String> clouds = new LinkedHashSet<>();
+        private int abortedTasks;
+        private long lostComputeMsec;
+
+        Wave(final long startTime) {
+            this.startTime = startTime;
+        }
+
+        public long getStartTime() {
+            return startTime;
+        }
+
+        public Date getStartDate() {
+            return new Date(startTime);
+        }
+
+        /**
+         * @return names of clouds which lost nodes
+         */
+        public synchronized Set<String> getClouds() {
+            return new LinkedHashSet<>(clouds);
+        }
+
+        public synchronized List<String> getNodes() {
+            return new ArrayList<>(nodes);
+        }
+
+        /**
+         * @return aborted tasks including duplicates
+         */
+        public synchronized int getAbortedTasks() {
+            return abortedTasks;
+        }
+
+        public synchronized int getResubmittedTasks() {
+            return tasks.size();
+        }
+
+        /**
+         * @return sum of time aborted tasks were running, msec
+         */
+        public synchronized long getLostComputeMsec() {
+            return lostComputeMsec;
+        }
+
+        private synchronized void add(@Nullable final String cloudName, final String nodeName, final Queue.Task task,
+                                      final List<Action> actions, final long lostComputeMsec) {
+            if (cloudName != null) clouds.add(cloudName);
+            nodes.add(nodeName);
+            abortedTasks++;
+            this.lostComputeMsec += Math.max(0, lostComputeMsec);
+            // the same run from several executors is resubmitted once with actions of first executor
+            for (final Map.Entry<Queue.Task, List<Action>> entry : tasks) {
+                if (entry.getKey().equals(task) && !shouldSchedule(entry.getValue(), actions)) return;
+            }
+            tasks.add(new AbstractMap.SimpleImmutableEntry<>(task, actions));
+        }
+
+        synchronized List<Map.Entry<Queue.Task, List<Action>>> getTasks() {
+            return new ArrayList<>(tasks);
+        }
+
+        @Override
+        public synchronized String toString() {
+            return "nodes " + nodes + ", aborted tasks " + abortedTasks + ", resubmitted " + tasks.size()
+                    + ", lost compute " + TimeUnit.MILLISECONDS.toSeconds(lostComputeMsec) + " sec";
+        }
+
+    }
+
+    /**
+     * Same rule as {@link Queue} uses to find if task with actions is not a duplicate of queued item
+     * of the same task, for example {@link hudson.model.ParametersAction} with different parameters.
+     *
+     * @param collected actions of collected run
+     * @param actions   actions of new run
+     * @return <code>true</code> if new run should be resubmitted separately
+     */
+    private static boolean shouldSchedule(final List<Action> collected, final List<Action> actions) {
+        for (final Action action : collected) {
+            if (action instanceof Queue.QueueAction && ((Queue.QueueAction) action).shouldSchedule(actions)) return true;
+        }
+        for (final Action action : actions) {
+            if (action instanceof Queue.QueueAction && ((Queue.QueueAction) action).shouldSchedule(collected)) return true;
+        }
+        return false;
+    }
+
+    private static Wave current;
+
+    private static final ArrayDeque<Wave> WAVES = new ArrayDeque<>();
+
+    /**
+     * Add aborted task to current wave, start new wave if none.
+     *
+     * @param cloudName       cloud of lost node, <code>null</code> if unknown
+     * @param nodeName        lost node
+     * @param task            aborted task
+     * @param actions         actions of aborted run
+     * @param lostComputeMsec time task was running, msec
+     */
+    public static void submit(@Nullable final String cloudName, @Nonnull final String nodeName,
+                              @Nonnull final Queue.Task task, @Nonnull final List<Action> actions,
+                              final long lostComputeMsec) {
+        final boolean start;
+        synchronized (ResubmitCoordinator.class) {
+            start = current == null;
+            if (start) current = new Wave(System.currentTimeMillis());
+            current.add(cloudName, nodeName, task, actions, lostComputeMsec);
+        }
+
+        if (start) {
+            EXECUTOR.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        resubmit(takeWave());
+                    } catch (Throwable t) {
+                        LOGGER.log(Level.WARNING, "Cannot resubmit tasks of lost nodes", t);
+                    }
+                }
+            }, WAVE_MSEC, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * @return current wave which is not collected anymore or <code>null</code> if none
+     */
+    @Nullable
+    @VisibleForTesting
+    static synchronized Wave takeWave() {
+        final Wave wave = current;
+        current = null;
+        if (wave != null) {
+            WAVES.addLast(wave);
+            while (WAVES.size() > MAX_WAVES) WAVES.removeFirst();
+        }
+        return wave;
+    }
+
+    /**
+     * @return last waves, oldest first
+     */
+    public static synchronized List<Wave> getWaves() {
+        return new ArrayList<>(WAVES);
+    }
+
+    private static void resubmit(@Nullable final Wave wave) {
+        if (wave == null) return;
+        Queue.withLock(new Runnable() {
+            @Override
+            public void run() {
+                schedule(wave);
+            }
+        });
+        LOGGER.log(Level.INFO, "Resubmitted tasks of lost nodes, {0}", wave);
+    }
+
+    /**
+     * Should be called under {@link Queue#withLock(Runnable)}
+     *
+     * @param wave wave
+     */
+    @VisibleForTesting
+    static void schedule(final Wave wave) {
+        final Queue queue = Queue.getInstance();
+        for (final Map.Entry<Queue.Task, List<Action>> entry : wave.getTasks()) {
+            final List<Action> actions = new ArrayList<>(entry.getValue());
+            if (!actions.contains(new ResubmittedAction())) actions.add(new ResubmittedAction());
+            queue.schedule2(entry.getKey(), 0, actions);
+        }
+    }
+
+}
@@ -0,0 +1,39 @@
+package com.amazon.jenkins.ec2fleet;
+
+import hudson.Extension;
+import hudson.model.Queue;
+import hudson.model.queue.QueueSorter;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Put tasks resubmitted by {@link ResubmitCoordinator} before other buildable tasks, they already waited
+ * and lost their work. Order inside both groups is kept.
+ * <p>
+ * Jenkins uses only one {@link QueueSorter}, this one has lowest ordinal so sorter of another plugin
+ * (like Priority Sorter) wins, resubmitted tasks are still scheduled without quiet period in that case.
+ */
+@Extension(ordinal = -1000)
+@SuppressWarnings("WeakerAccess")
+public class ResubmitQueueSorter extends QueueSorter {
+
+    private static final Comparator<Queue.BuildableItem> RESUBMITTED_FIRST = new Comparator<Queue.BuildableItem>() {
+        @Override
+        public int compare(final Queue.BuildableItem o1, final Queue.BuildableItem o2) {
+            return Boolean.compare(!isResubmitted(o1), !isResubmitted(o2));
+        }
+    };
+
+    @Override
+    public void sortBuildableItems(final List<Queue.BuildableItem> buildables) {
+        // sort is stable
+        Collections.sort(buildables, RESUBMITTED_FIRST);
+    }
+
+    private static boolean isResubmitted(final Queue.BuildableItem item) {
+        return item.getAction(ResubmittedAction.class) != null;
+    }
+
+}
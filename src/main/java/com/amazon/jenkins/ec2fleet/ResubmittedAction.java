@@ -0,0 +1,61 @@
+package com.amazon.jenkins.ec2fleet;
+
+import hudson.model.InvisibleAction;
+
+import javax.annotation.Nullable;
+
+/**
+ * Marks queue item resubmitted by {@link ResubmitCoordinator} after its node was lost,
+ * {@link ResubmitQueueSorter} puts such items first. Jenkins copies it to resubmitted run,
+ * so {@link ResubmittedRunListener} could report result of run to cloud of lost node.
+ * <p>
+ * Only one marker per item, so all instances are equal.
+ */
+public class ResubmittedAction extends InvisibleAction {
+
+    @Nullable
+    private final String cloudName;
+
+    @Nullable
+    private final String instanceType;
+
+    @Nullable
+    private final String availabilityZone;
+
+    public ResubmittedAction() {
+        this(null, null, null);
+    }
+
+    public ResubmittedAction(@Nullable final String cloudName, @Nullable final String instanceType,
+                             @Nullable final String availabilityZone) {
+        this.cloudName = cloudName;
+        this.instanceType = instanceType;
+        this.availabilityZone = availabilityZone;
+    }
+
+    @Nullable
+    public String getCloudName() {
+        return cloudName;
+    }
+
+    @Nullable
+    public String getInstanceType() {
+        return instanceType;
+    }
+
+    @Nullable
+    public String getAvailabilityZone() {
+        return availabilityZone;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        return o != null && getClass() == o.getClass();
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+
+}
@@ -0,0 +1,40 @@
+package com.amazon.jenkins.ec2fleet;
+
+import hudson.Extension;
+import hudson.model.Result;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.model.listeners.RunListener;
+import hudson.slaves.Cloud;
+import jenkins.model.Jenkins;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Report result of run resubmitted after its node was lost to {@link InterruptionStatistics}
+ * of cloud which lost node. Cloud is found by name as it could be recreated by configuration change.
+ *
+ * @see ResubmittedAction
+ */
+@Extension
+@SuppressWarnings({"WeakerAccess", "rawtypes"})
+public class ResubmittedRunListener extends RunListener<Run> {
+
+    @Override
+    public void onCompleted(final Run run, @Nonnull final TaskListener listener) {
+        final ResubmittedAction action = run.getAction(ResubmittedAction.class);
+        if (action == null || action.getCloudName() == null) return;
+
+        final Jenkins jenkins = Jenkins.getInstance();
+        if (jenkins == null) return;
+
+        final Cloud cloud = jenkins.getCloud(action.getCloudName());
+        if (!(cloud instanceof EC2FleetCloud)) return;
+
+        final InterruptionStatistics statistics = ((EC2FleetCloud) cloud).getInterruptionStatistics();
+        if (statistics == null) return;
+        statistics.recordResubmitResult(action.getInstanceType(), action.getAvailabilityZone(),
+                run.getResult() == Result.SUCCESS);
+    }
+
+}
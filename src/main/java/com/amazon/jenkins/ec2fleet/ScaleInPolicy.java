@@ -0,0 +1,44 @@
+package com.amazon.jenkins.ec2fleet;
+
+/**
+ * Which idle instances {@link EC2FleetCloud} terminates first when not all of them could be terminated,
+ * because of <code>minSize</code> or warm pool.
+ *
+ * @see ScaleInVictimSelector
+ */
+public enum ScaleInPolicy {
+
+    /**
+     * In order nodes were found idle
+     */
+    ANY,
+
+    /**
+     * Earliest launched instance first
+     */
+    OLDEST,
+
+    /**
+     * Highest hourly price per executor first, instances with unknown price last
+     */
+    HIGHEST_COST_PER_EXECUTOR,
+
+    /**
+     * Instance of type with most interrupted nodes first
+     */
+    MOST_INTERRUPTED_TYPE;
+
+    /**
+     * @param value name of policy, could be <code>null</code>
+     * @return policy or {@link ScaleInPolicy#ANY} for unknown value
+     */
+    public static ScaleInPolicy parse(final String value) {
+        if (value == null) return ANY;
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ANY;
+        }
+    }
+
+}
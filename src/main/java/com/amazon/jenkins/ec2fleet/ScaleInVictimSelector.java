@@ -0,0 +1,91 @@
+package com.amazon.jenkins.ec2fleet;
+
+import com.amazonaws.services.ec2.model.Instance;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Order idle instances by {@link ScaleInPolicy}, lowest value first, so when rules allow to terminate
+ * only part of them {@link EC2FleetCloud} keeps the most valuable. Sort is stable, instances without
+ * required information keep given order after instances with it.
+ */
+@SuppressWarnings("WeakerAccess")
+public class ScaleInVictimSelector {
+
+    /**
+     * @param instanceIds    idle instances in order they were found
+     * @param policy         policy
+     * @param instances      described fleet instances by id
+     * @param interruptions  interrupted nodes by instance type
+     * @param hourlyPrices   hourly price by instance id, could be empty
+     * @param executors      executors by instance id
+     * @return new list of instances, first to terminate first
+     */
+    public static List<String> order(@Nonnull final Collection<String> instanceIds, @Nonnull final ScaleInPolicy policy,
+                                     @Nonnull final Map<String, Instance> instances,
+                                     @Nonnull final Map<String, Integer> interruptions,
+                                     @Nonnull final Map<String, Double> hourlyPrices,
+                                     @Nonnull final Map<String, Integer> executors) {
+        final List<String> result = new ArrayList<>(instanceIds);
+        switch (policy) {
+            case OLDEST:
+                Collections.sort(result, new Comparator<String>() {
+                    @Override
+                    public int compare(final String o1, final String o2) {
+                        return Long.compare(getLaunchTime(instances.get(o1)), getLaunchTime(instances.get(o2)));
+                    }
+                });
+                break;
+
+            case HIGHEST_COST_PER_EXECUTOR:
+                Collections.sort(result, new Comparator<String>() {
+                    @Override
+                    public int compare(final String o1, final String o2) {
+                        return Double.compare(getCostPerExecutor(o2, hourlyPrices, executors),
+                                getCostPerExecutor(o1, hourlyPrices, executors));
+                    }
+                });
+                break;
+
+            case MOST_INTERRUPTED_TYPE:
+                Collections.sort(result, new Comparator<String>() {
+                    @Override
+                    public int compare(final String o1, final String o2) {
+                        return Integer.compare(getInterruptions(instances.get(o2), interruptions),
+                                getInterruptions(instances.get(o1), interruptions));
+                    }
+                });
+                break;
+
+            default:
+                break;
+        }
+        return result;
+    }
+
+    private static long getLaunchTime(final Instance instance) {
+        if (instance == null || instance.getLaunchTime() == null) return Long.MAX_VALUE;
+        return instance.getLaunchTime().getTime();
+    }
+
+    private static double getCostPerExecutor(final String instanceId, final Map<String, Double> hourlyPrices,
+                                             final Map<String, Integer> executors) {
+        final Double price = hourlyPrices.get(instanceId);
+        if (price == null) return -1;
+        final Integer count = executors.get(instanceId);
+        return price / (count == null ? 1 : Math.max(1, count));
+    }
+
+    private static int getInterruptions(final Instance instance, final Map<String, Integer> interruptions) {
+        if (instance == null || instance.getInstanceType() == null) return -1;
+        final Integer count = interruptions.get(instance.getInstanceType());
+        return count == null ? 0 : count;
+    }
+
+}
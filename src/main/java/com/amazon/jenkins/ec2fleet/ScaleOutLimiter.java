@@ -0,0 +1,114 @@
+package com.amazon.jenkins.ec2fleet;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket which limits how fast {@link EC2FleetCloud} grows fleet target capacity, so one queue
+ * spike doesn't request <code>maxSize</code> at once and cause EC2 API throttling, connection storm
+ * on Jenkins and insufficient capacity errors.
+ * <p>
+ * Bucket is refilled by <code>unitsPerMinute</code> capacity units up to <code>burst</code>, which is
+ * amount of units allowed at once after quiet period. Limit is passed on each call, so bucket state
+ * survives configuration change.
+ * <p>
+ * Demand which is not granted is remembered as deferred with its labels, when bucket is refilled
+ * {@link EC2FleetCloud#update()} asks node provisioner of these labels to review queue, so demand
+ * is provisioned as soon as limit allows instead of waiting for next regular provisioning round.
+ */
+@SuppressWarnings("WeakerAccess")
+@ThreadSafe
+public class ScaleOutLimiter {
+
+    private static final long MINUTE_MSEC = TimeUnit.MINUTES.toMillis(1);
+
+    private double tokens = -1;
+    private long lastRefill;
+    private int deferredUnits;
+    private final Set<String> deferredLabels = new LinkedHashSet<>();
+
+    /**
+     * @param units          requested capacity units
+     * @param unitsPerMinute limit, <code>0</code> or less for unlimited
+     * @param burst          max units at once, less than one is treated as <code>unitsPerMinute</code>
+     * @param now            current time in msec
+     * @return granted units, from <code>0</code> to <code>units</code>
+     */
+    public synchronized int acquire(final int units, final int unitsPerMinute, final int burst, final long now) {
+        if (units < 1) return 0;
+        if (unitsPerMinute < 1) return units;
+
+        refill(unitsPerMinute, burst, now);
+        final int granted = Math.min(units, (int) tokens);
+        tokens -= granted;
+        return granted;
+    }
+
+    /**
+     * Remember demand which was not granted.
+     *
+     * @param label label expression or empty string for unlabeled demand
+     * @param units not granted capacity units
+     */
+    public synchronized void defer(final String label, final int units) {
+        if (units < 1) return;
+        deferredUnits = Math.max(deferredUnits, units);
+        deferredLabels.add(label);
+    }
+
+    /**
+     * Labels of deferred demand if bucket has at least one unit now, deferred demand is cleared,
+     * if it's still not satisfied next provisioning will defer it again.
+     *
+     * @return labels to review or empty list
+     */
+    public synchronized List<String> takeDeferredLabels(final int unitsPerMinute, final int burst, final long now) {
+        if (deferredLabels.isEmpty()) return Collections.emptyList();
+        if (unitsPerMinute >= 1) {
+            refill(unitsPerMinute, burst, now);
+            if (tokens < 1) return Collections.emptyList();
+        }
+
+        final List<String> labels = new ArrayList<>(deferredLabels);
+        deferredLabels.clear();
+        deferredUnits = 0;
+        return labels;
+    }
+
+    /**
+     * @return available units, <code>-1</code> before first use
+     */
+    public synchronized int getTokens() {
+        return tokens < 0 ? -1 : (int) tokens;
+    }
+
+    /**
+     * @return largest not granted demand in units since last review
+     */
+    public synchronized int getDeferredUnits() {
+        return deferredUnits;
+    }
+
+    private void refill(final int unitsPerMinute, final int burst, final long now) {
+        final int capacity = burst < 1 ? unitsPerMinute : burst;
+        if (tokens < 0) {
+            // start with full bucket
+            tokens = capacity;
+        } else if (now > lastRefill) {
+            tokens += (double) (now - lastRefill) * unitsPerMinute / MINUTE_MSEC;
+        }
+        tokens = Math.min(tokens, capacity);
+        lastRefill = Math.max(lastRefill, now);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "tokens " + getTokens() + ", deferred " + deferredUnits + " units for " + deferredLabels;
+    }
+
+}
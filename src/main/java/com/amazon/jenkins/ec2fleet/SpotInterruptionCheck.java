@@ -0,0 +1,66 @@
+package com.amazon.jenkins.ec2fleet;
+
+import jenkins.security.MasterToSlaveCallable;
+import org.apache.commons.io.IOUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * Executed on agent by {@link SpotInterruptionWatcher}, reads spot interruption notice from
+ * instance metadata, which is available only from instance itself. Metadata service v2 token
+ * is requested first, if not available v1 request is done.
+ * <p>
+ * Returns body of <code>spot/instance-action</code> like
+ * <code>{"action": "terminate", "time": "2017-09-18T08:22:00Z"}</code> or <code>null</code>
+ * if there is no notice or metadata is not available.
+ *
+ * @see <a href="https://docs.aws.amazon.com/AWSEC2/latest/UserGuide/spot-interruptions.html">Spot Instance interruptions</a>
+ */
+@SuppressWarnings("WeakerAccess")
+public class SpotInterruptionCheck extends MasterToSlaveCallable<String, IOException> {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String METADATA_URL = "http://169.254.169.254/latest/";
+    private static final int TIMEOUT_MSEC = 1000;
+
+    @Override
+    public String call() throws IOException {
+        String token = null;
+        try {
+            final HttpURLConnection connection = open("api/token");
+            connection.setRequestMethod("PUT");
+            connection.setRequestProperty("X-aws-ec2-metadata-token-ttl-seconds", "60");
+            if (connection.getResponseCode() == HttpURLConnection.HTTP_OK) token = read(connection);
+        } catch (final IOException e) {
+            // not available, try v1
+        }
+
+        try {
+            final HttpURLConnection connection = open("meta-data/spot/instance-action");
+            if (token != null) connection.setRequestProperty("X-aws-ec2-metadata-token", token);
+            // 404 when no notice
+            return connection.getResponseCode() == HttpURLConnection.HTTP_OK ? read(connection) : null;
+        } catch (final IOException e) {
+            // agent is not on EC2 or metadata is disabled
+            return null;
+        }
+    }
+
+    private static HttpURLConnection open(final String path) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) new URL(METADATA_URL + path).openConnection();
+        connection.setConnectTimeout(TIMEOUT_MSEC);
+        connection.setReadTimeout(TIMEOUT_MSEC);
+        return connection;
+    }
+
+    private static String read(final HttpURLConnection connection) throws IOException {
+        try (final InputStream stream = connection.getInputStream()) {
+            return IOUtils.toString(stream, "UTF-8");
+        }
+    }
+
+}
@@ -0,0 +1,165 @@
+package com.amazon.jenkins.ec2fleet;
+
+import com.google.common.annotations.VisibleForTesting;
+import hudson.Extension;
+import hudson.model.Computer;
+import hudson.model.PeriodicWork;
+import hudson.remoting.VirtualChannel;
+import jenkins.model.Jenkins;
+import org.apache.commons.lang.StringUtils;
+
+import javax.annotation.Nullable;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Find out about spot interruption from two minutes notice instead of {@link EC2FleetAutoResubmitComputerLauncher}
+ * which sees only disconnect after instance is gone. Each run reads notice on all online agents of
+ * {@link EC2FleetCloud} in parallel by {@link SpotInterruptionCheck}, for agent with notice:
+ * <ul>
+ * <li>node stops to accept tasks and marked as draining, so queued tasks go to other nodes</li>
+ * <li>cloud requests replacement by {@link EC2FleetCloud#replaceInterrupted(String)} right away</li>
+ * <li>once node is idle or interruption is close, cloud terminates instance, so running tasks are
+ * resubmitted by {@link EC2FleetAutoResubmitComputerLauncher} before EC2 takes instance</li>
+ * </ul>
+ * Disabled by default, to enable start Jenkins with
+ * <code>-Dcom.amazon.jenkins.ec2fleet.SpotInterruptionWatcher.enabled=true</code>
+ */
+@Extension
+@SuppressWarnings("WeakerAccess")
+public class SpotInterruptionWatcher extends PeriodicWork {
+
+    private static final Logger LOGGER = Logger.getLogger(SpotInterruptionWatcher.class.getName());
+
+    private static final String ENABLED_PROPERTY = SpotInterruptionWatcher.class.getName() + ".enabled";
+
+    /**
+     * Notice is two minutes before interruption
+     */
+    static final long NOTICE_MSEC = TimeUnit.MINUTES.toMillis(2);
+
+    /**
+     * Terminate draining instance this time before interruption to resubmit its tasks in time
+     */
+    static final long TERMINATE_BEFORE_MSEC = TimeUnit.SECONDS.toMillis(15);
+
+    private static final long CHECK_TIMEOUT_MSEC = TimeUnit.SECONDS.toMillis(5);
+
+    private static final Pattern TIME_PATTERN = Pattern.compile("\"time\"\\s*:\\s*\"([^\"]+)\"");
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(ENABLED_PROPERTY);
+    }
+
+    @Override
+    public long getRecurrencePeriod() {
+        return TimeUnit.SECONDS.toMillis(10);
+    }
+
+    @Override
+    protected void doRun() {
+        if (!isEnabled()) return;
+
+        final Jenkins jenkins = Jenkins.getInstance();
+        if (jenkins == null) return;
+
+        watch(Arrays.asList(jenkins.getComputers()), System.currentTimeMillis());
+    }
+
+    /**
+     * @param computers all computers
+     * @param now       current time
+     * @return amount of computers which got notice by this run
+     */
+    @VisibleForTesting
+    int watch(final List<Computer> computers, final long now) {
+        // start all checks first, so slow agent doesn't delay others
+        final Map<EC2FleetNodeComputer, Future<String>> checks = new HashMap<>();
+        for (final Computer computer : computers) {
+            if (!(computer instanceof EC2FleetNodeComputer)) continue;
+            final EC2FleetNodeComputer fc = (EC2FleetNodeComputer) computer;
+
+            if (fc.isDraining()) {
+                terminateIfReady(fc, now);
+                continue;
+            }
+
+            final VirtualChannel channel = fc.getChannel();
+            if (channel == null || fc.getCloud() == null) continue;
+            try {
+                checks.put(fc, channel.callAsync(new SpotInterruptionCheck()));
+            } catch (Exception e) {
+                // agent disconnected, nothing to do
+                LOGGER.log(Level.FINE, "Cannot check spot interruption on " + fc.getDisplayName(), e);
+            }
+        }
+
+        int noticed = 0;
+        final long deadline = System.currentTimeMillis() + CHECK_TIMEOUT_MSEC;
+        for (final Map.Entry<EC2FleetNodeComputer, Future<String>> entry : checks.entrySet()) {
+            final EC2FleetNodeComputer fc = entry.getKey();
+            final String notice;
+            try {
+                notice = entry.getValue().get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                LOGGER.log(Level.FINE, "Cannot check spot interruption on " + fc.getDisplayName(), e);
+                entry.getValue().cancel(true);
+                continue;
+            }
+            if (StringUtils.isBlank(notice)) continue;
+
+            final long interruptionTime = parseInterruptionTime(notice, now);
+            LOGGER.log(Level.INFO, "{0} got spot interruption notice {1}", new Object[]{fc.getDisplayName(), notice});
+            fc.drain(interruptionTime);
+            final EC2FleetCloud cloud = fc.getCloud();
+            final EC2FleetNode node = fc.getNode();
+            if (cloud != null && node != null) cloud.replaceInterrupted(node.getNodeName());
+            terminateIfReady(fc, now);
+            noticed++;
+        }
+        return noticed;
+    }
+
+    private static void terminateIfReady(final EC2FleetNodeComputer computer, final long now) {
+        final EC2FleetCloud cloud = computer.getCloud();
+        final EC2FleetNode node = computer.getNode();
+        if (cloud == null || node == null) return;
+        if (computer.isIdle() || now >= computer.getInterruptionTime() - TERMINATE_BEFORE_MSEC) {
+            cloud.terminateInterrupted(node.getNodeName());
+        }
+    }
+
+    /**
+     * @param notice body of <code>spot/instance-action</code>
+     * @param now    current time, msec
+     * @return time of interruption from notice or now plus {@link SpotInterruptionWatcher#NOTICE_MSEC}
+     */
+    @VisibleForTesting
+    static long parseInterruptionTime(@Nullable final String notice, final long now) {
+        if (notice != null) {
+            final Matcher matcher = TIME_PATTERN.matcher(notice);
+            if (matcher.find()) {
+                final SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+                format.setTimeZone(TimeZone.getTimeZone("UTC"));
+                try {
+                    return format.parse(matcher.group(1)).getTime();
+                } catch (ParseException e) {
+                    // use default
+                }
+            }
+        }
+        return now + NOTICE_MSEC;
+    }
+
+}
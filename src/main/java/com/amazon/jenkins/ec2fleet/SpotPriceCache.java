@@ -0,0 +1,88 @@
+package com.amazon.jenkins.ec2fleet;
+
+import com.amazonaws.services.ec2.AmazonEC2;
+import com.amazonaws.services.ec2.model.Instance;
+import com.amazonaws.services.ec2.model.InstanceLifecycleType;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Current spot price of fleet instances by availability zone, instance type and platform,
+ * loaded by {@link EC2Api#describeSpotPrices(AmazonEC2, Set)}.
+ * <p>
+ * Spot price changes slowly, so prices are reloaded not often than {@link SpotPriceCache#REFRESH_MSEC}
+ * or when fleet gets instance of type which was not loaded yet. Price is known only for spot instances,
+ * on-demand price is not available from EC2 API, such instances don't have price.
+ *
+ * @see ScaleInPolicy#HIGHEST_COST_PER_EXECUTOR
+ */
+@SuppressWarnings("WeakerAccess")
+@ThreadSafe
+public class SpotPriceCache {
+
+    static final long REFRESH_MSEC = TimeUnit.HOURS.toMillis(1);
+
+    static final String LINUX = "linux";
+    static final String WINDOWS = "windows";
+
+    private Map<String, Double> prices = new HashMap<>();
+    private Set<String> loadedTypes = new HashSet<>();
+    private long lastRefresh = -1;
+
+    /**
+     * Reload prices if they are stale or don't cover instance types of fleet.
+     *
+     * @param ec2       client
+     * @param instances described fleet instances
+     * @param now       current time in msec
+     * @return <code>true</code> if prices were reloaded
+     */
+    public boolean refreshIfNeeded(final AmazonEC2 ec2, final Collection<Instance> instances, final long now) {
+        final Set<String> types = new HashSet<>();
+        for (final Instance instance : instances) {
+            if (isSpot(instance) && instance.getInstanceType() != null) types.add(instance.getInstanceType());
+        }
+
+        synchronized (this) {
+            if (types.isEmpty()) return false;
+            if (lastRefresh >= 0 && now - lastRefresh < REFRESH_MSEC && loadedTypes.containsAll(types)) return false;
+        }
+
+        // don't hold lock during call to EC2, in worst case two updates load the same prices
+        final Map<String, Double> loaded = Registry.getEc2Api().describeSpotPrices(ec2, types);
+
+        synchronized (this) {
+            prices = loaded;
+            loadedTypes = types;
+            lastRefresh = now;
+        }
+        return true;
+    }
+
+    /**
+     * @param instance instance
+     * @return hourly price or <code>null</code> if instance is not spot or price is unknown
+     */
+    @Nullable
+    public synchronized Double getHourlyPrice(final Instance instance) {
+        if (!isSpot(instance) || instance.getPlacement() == null) return null;
+        return prices.get(key(instance.getPlacement().getAvailabilityZone(), instance.getInstanceType(),
+                WINDOWS.equalsIgnoreCase(instance.getPlatform()) ? WINDOWS : LINUX));
+    }
+
+    static String key(final String availabilityZone, final String instanceType, final String platform) {
+        return availabilityZone + "/" + instanceType + "/" + platform;
+    }
+
+    private static boolean isSpot(final Instance instance) {
+        return InstanceLifecycleType.Spot.toString().equals(instance.getInstanceLifecycle());
+    }
+
+}
@@ -0,0 +1,109 @@
+package com.amazon.jenkins.ec2fleet;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Relation between EC2 Spot Fleet capacity units, instances and Jenkins executors.
+ * <p>
+ * Fleet target capacity is set in units, instance of type with weight <code>w</code> provides
+ * <code>w</code> units. Each instance becomes one node with <code>numExecutors</code> executors or
+ * <code>numExecutors * w</code> when <code>scaleExecutorsByWeight</code> is enabled, see
+ * {@link EC2FleetCloud}. Model takes average over launched instance types when known, otherwise
+ * assumes equal mix of all weighted types, so {@link EC2FleetCloud#provision(hudson.model.Label, int)}
+ * requests whole instances which cover demand and plans nodes with executors which they will really have.
+ * <p>
+ * Without weights one unit is one instance with <code>numExecutors</code> executors.
+ */
+@SuppressWarnings("WeakerAccess")
+@Immutable
+class WeightedCapacityModel {
+
+    private final double unitsPerInstance;
+    private final double executorsPerInstance;
+
+    private WeightedCapacityModel(final double unitsPerInstance, final double executorsPerInstance) {
+        this.unitsPerInstance = unitsPerInstance;
+        this.executorsPerInstance = executorsPerInstance;
+    }
+
+    /**
+     * @param numExecutors           executors per node, <code>0</code> is treated as one
+     * @param scaleExecutorsByWeight see {@link EC2FleetCloud#isScaleExecutorsByWeight()}
+     * @param weights                instance type weights of fleet
+     * @param launchedTypes          instance types of launched fleet instances, could be empty
+     * @return model
+     */
+    public static WeightedCapacityModel of(final int numExecutors, final boolean scaleExecutorsByWeight,
+                                           @Nonnull final Map<String, Double> weights,
+                                           @Nonnull final Collection<String> launchedTypes) {
+        final int numExecutors1 = numExecutors == 0 ? 1 : numExecutors;
+
+        double units = 0;
+        double executors = 0;
+        int instances = 0;
+        // observed mix is better, otherwise we don't know what fleet will launch
+        for (final String type : launchedTypes.isEmpty() ? weights.keySet() : launchedTypes) {
+            final Double weight = weights.get(type);
+            units += weight == null ? 1 : weight;
+            executors += getExecutors(numExecutors1, scaleExecutorsByWeight, weight);
+            instances++;
+        }
+
+        if (instances == 0 || units <= 0) return new WeightedCapacityModel(1, numExecutors1);
+        return new WeightedCapacityModel(units / instances, executors / instances);
+    }
+
+    /**
+     * Same calculation as used for new node
+     */
+    public static int getExecutors(final int numExecutors, final boolean scaleExecutorsByWeight, final Double weight) {
+        if (scaleExecutorsByWeight && weight != null) return (int) Math.max(Math.round(numExecutors * weight), 1);
+        return numExecutors;
+    }
+
+    /**
+     * @param executors required executors
+     * @return amount of instances to get at least required executors
+     */
+    public int getInstancesFor(final int executors) {
+        if (executors < 1) return 0;
+        return (int) Math.ceil(executors / executorsPerInstance - 1e-9);
+    }
+
+    /**
+     * @param instances instances
+     * @return capacity units for them
+     */
+    public int getUnitsFor(final int instances) {
+        return (int) Math.ceil(instances * unitsPerInstance - 1e-9);
+    }
+
+    /**
+     * @param units capacity units
+     * @return amount of instances fleet will launch for them, at least one for positive units
+     */
+    public int getInstancesForUnits(final int units) {
+        if (units < 1) return 0;
+        return (int) Math.ceil(units / unitsPerInstance - 1e-9);
+    }
+
+    /**
+     * @return expected executors of one new node
+     */
+    public int getExecutorsPerInstance() {
+        return (int) Math.max(1, Math.round(executorsPerInstance));
+    }
+
+    public double getUnitsPerInstance() {
+        return unitsPerInstance;
+    }
+
+    @Override
+    public String toString() {
+        return "units per instance " + unitsPerInstance + ", executors per instance " + executorsPerInstance;
+    }
+
+}
@@ -84,7 +84,7 @@ public class AutoResubmitIntegrationTest extends IntegrationTest {
                 null, "fId", "momo", null, new LocalComputerConnector(j), false, false,
                 0, 0, 10, 1, false, false,
                 false, 0, 0, false,
-                10, false);
+                10, false, null, null, null, null, null, null, null, false);
         j.jenkins.clouds.add(cloud);
 
         List<QueueTaskFuture> rs = getQueueTaskFutures(1);
@@ -121,7 +121,7 @@ public class AutoResubmitIntegrationTest extends IntegrationTest {
                 null, "fId", "momo", null, new LocalComputerConnector(j), false, false,
                 0, 0, 10, 1, false, false,
                 false, 0, 0, false,
-                10, false);
+                10, false, null, null, null, null, null, null, null, false);
         j.jenkins.clouds.add(cloud);
 
         List<QueueTaskFuture> rs = new ArrayList<>();
@@ -177,7 +177,7 @@ public class AutoResubmitIntegrationTest extends IntegrationTest {
         EC2FleetCloud cloud = new EC2FleetCloud(null, null, "credId", null, "region",
                 null, "fId", "momo", null, new LocalComputerConnector(j), false, false,
                 0, 0, 10, 1, false, false,
-                true, 0, 0, false, 10, false);
+                true, 0, 0, false, 10, false, null, null, null, null, null, null, null, false);
         j.jenkins.clouds.add(cloud);
 
         List<QueueTaskFuture> rs = getQueueTaskFutures(1);
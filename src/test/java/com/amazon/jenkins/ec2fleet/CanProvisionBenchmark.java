@@ -0,0 +1,118 @@
+package com.amazon.jenkins.ec2fleet;
+
+import hudson.model.Label;
+import hudson.model.labels.LabelAtom;
+import hudson.model.labels.LabelExpression;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringTokenizer;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One provision round of {@link hudson.slaves.NodeProvisioner}: each label is checked against each cloud,
+ * 50 clouds and 500 distinct labels. Compare {@link LabelMatcher} used by
+ * {@link EC2FleetCloud#canProvision(Label)} with parse of cloud label on each call which was used before.
+ * <p>
+ * Parse is done same way as {@link Label#parse(String)}, but with local atom cache instead of
+ * {@link jenkins.model.Jenkins#getLabelAtom(String)} to run without Jenkins.
+ * <p>
+ * Run with main method or by JMH runner from IDE, it's not part of regular test run.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CanProvisionBenchmark {
+
+    private static final int CLOUDS = 50;
+    private static final int LABELS = 500;
+
+    private final Map<String, LabelAtom> atoms = new HashMap<>();
+    private final List<String> cloudLabelStrings = new ArrayList<>();
+    private final List<LabelMatcher> matchers = new ArrayList<>();
+    private final List<Label> labels = new ArrayList<>();
+
+    @Setup
+    public void setup() {
+        for (int c = 0; c < CLOUDS; c++) {
+            final String labelString = "linux fleet-" + c + " java-" + (c % 5) + " size-" + (c % 3);
+            cloudLabelStrings.add(labelString);
+            matchers.add(new LabelMatcher(parse(labelString)));
+        }
+
+        for (int l = 0; l < LABELS; l++) {
+            if (l % 2 == 0) {
+                labels.add(atom("fleet-" + (l % CLOUDS)));
+            } else {
+                labels.add(new LabelExpression.And(atom("java-" + (l % 7)), atom("size-" + (l % 3))));
+            }
+        }
+    }
+
+    @Benchmark
+    public void cached(final Blackhole blackhole) {
+        for (final Label label : labels) {
+            for (final LabelMatcher matcher : matchers) {
+                blackhole.consume(matcher.matches(label));
+            }
+        }
+    }
+
+    @Benchmark
+    public void parseEachTime(final Blackhole blackhole) {
+        for (final Label label : labels) {
+            for (final String labelString : cloudLabelStrings) {
+                blackhole.consume(parse(labelString).containsAll(label.listAtoms()));
+                // log message was built on each call
+                blackhole.consume("CanProvision called on fleet: \"" + labelString + "\" wanting: \""
+                        + label.getName() + "\".");
+            }
+        }
+    }
+
+    private Set<LabelAtom> parse(final String labelString) {
+        final Set<LabelAtom> result = new TreeSet<>();
+        final StringTokenizer tokenizer = new StringTokenizer(labelString);
+        while (tokenizer.hasMoreTokens()) result.add(atom(tokenizer.nextToken()));
+        return result;
+    }
+
+    private LabelAtom atom(final String name) {
+        LabelAtom atom = atoms.get(name);
+        if (atom == null) {
+            atom = new LabelAtom(name);
+            atoms.put(name, atom);
+        }
+        return atom;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CanProvisionBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+}
@@ -123,6 +123,38 @@ public class CloudNannyTest {
                 cloud1.getFleet(), stats1.getState(), cloud1.getLabelString(), stats1.getNumActive(), stats1.getNumDesired())));
     }
 
+    @Test
+    public void shouldUpdateWidgetsWithScaleOutLimiterStateIfLimited() throws Exception {
+        final ScaleOutLimiter limiter = new ScaleOutLimiter();
+        limiter.acquire(4, 10, 10, 0);
+        limiter.defer("", 3);
+        when(cloud1.getScaleOutUnitsPerMinute()).thenReturn(10);
+        when(cloud1.getScaleOutLimiter()).thenReturn(limiter);
+        clouds.add(cloud1);
+
+        widgets.add(widget1);
+
+        getMockCloudNannyInstance().doRun();
+
+        verify(widget1).setStatusList(ImmutableList.of(new EC2FleetStatusInfo(
+                cloud1.getFleet(), stats1.getState(), cloud1.getLabelString(), stats1.getNumActive(), stats1.getNumDesired(),
+                6, 3)));
+    }
+
+    @Test
+    public void shouldUpdateWidgetsWithHourlyBurnIfKnown() throws Exception {
+        when(cloud1.getHourlyBurn()).thenReturn(0.25);
+        clouds.add(cloud1);
+
+        widgets.add(widget1);
+
+        getMockCloudNannyInstance().doRun();
+
+        verify(widget1).setStatusList(ImmutableList.of(new EC2FleetStatusInfo(
+                cloud1.getFleet(), stats1.getState(), cloud1.getLabelString(), stats1.getNumActive(), stats1.getNumDesired(),
+                -1, 0, 0.25)));
+    }
+
     @Test
     public void shouldUpdateCloudCollectResultAndUpdateAllEC2FleetWidgets() throws Exception {
         clouds.add(cloud1);
@@ -0,0 +1,87 @@
+package com.amazon.jenkins.ec2fleet;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class DemandForecasterTest {
+
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+
+    private final DemandForecaster forecaster = new DemandForecaster();
+
+    @Test
+    public void forecast_shouldReturnZeroForUnknownLabel() {
+        assertEquals(0, forecaster.forecast("a", 0, MINUTE));
+    }
+
+    @Test
+    public void forecast_shouldReturnLevelIfNoSeasonalData() {
+        forecaster.observe("a", 4, 0);
+
+        assertEquals(4, forecaster.forecast("a", 0, 3 * MINUTE + DemandForecaster.SLOT_MSEC));
+    }
+
+    @Test
+    public void forecast_shouldPredictSameTimeOfPreviousDay() {
+        // quiet day with wave at 10:00
+        for (long time = 0; time < DAY; time += MINUTE) {
+            final boolean wave = time >= TimeUnit.HOURS.toMillis(10) && time < TimeUnit.HOURS.toMillis(10) + 10 * MINUTE;
+            forecaster.observe("a", wave ? 20 : 0, time);
+        }
+
+        // next day at 9:57 forecast for 3 minutes ahead
+        final long now = DAY + TimeUnit.HOURS.toMillis(10) - 3 * MINUTE;
+        forecaster.observe("a", 0, now);
+
+        assertEquals(20, forecaster.forecast("a", now, 3 * MINUTE));
+        assertEquals(0, forecaster.forecast("a", now, 0));
+    }
+
+    @Test
+    public void forecast_shouldKeepLabelsSeparately() {
+        forecaster.observe("a", 4, 0);
+        forecaster.observe("b", 10, 0);
+
+        assertEquals(4, forecaster.forecast("a", 0, DemandForecaster.SLOT_MSEC));
+        assertEquals(10, forecaster.forecast("b", 0, DemandForecaster.SLOT_MSEC));
+    }
+
+    @Test
+    public void observe_shouldCheckForecastWhenTargetSlotCome() {
+        forecaster.observe("a", 4, 0);
+        forecaster.forecast("a", 0, DemandForecaster.SLOT_MSEC);
+
+        forecaster.observe("a", 10, DemandForecaster.SLOT_MSEC);
+
+        assertEquals(1, forecaster.getErrorCount());
+        assertEquals(6, forecaster.getMeanAbsoluteError(), 0.001);
+        assertEquals(6, forecaster.getBias(), 0.001);
+    }
+
+    @Test
+    public void observe_shouldNotCheckForecastForAlreadyObservedSlot() {
+        forecaster.observe("a", 4, 0);
+        forecaster.forecast("a", 0, MINUTE);
+
+        forecaster.observe("a", 10, 2 * MINUTE);
+        forecaster.observe("a", 10, DAY);
+
+        assertEquals(0, forecaster.getErrorCount());
+    }
+
+    @Test
+    public void observe_shouldDropLeastRecentlyUsedLabelWhenLimitReached() {
+        for (int i = 0; i < DemandForecaster.MAX_LABELS + 10; i++) {
+            forecaster.observe("label" + i, 1, 0);
+        }
+
+        assertEquals(DemandForecaster.MAX_LABELS, forecaster.getLabelCount());
+        assertEquals(0, forecaster.forecast("label0", 0, 0));
+        assertEquals(1, forecaster.forecast("label" + (DemandForecaster.MAX_LABELS + 9), 0, 0));
+    }
+
+}
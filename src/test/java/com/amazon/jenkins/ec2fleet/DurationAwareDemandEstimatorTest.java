@@ -0,0 +1,51 @@
+package com.amazon.jenkins.ec2fleet;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class DurationAwareDemandEstimatorTest {
+
+    private static final long HORIZON = 180000;
+
+    @Test
+    public void estimate_shouldReturnZeroForEmptyQueue() {
+        assertEquals(0, DurationAwareDemandEstimator.estimate(new long[0], 0, new long[]{1000}, HORIZON));
+    }
+
+    @Test
+    public void estimate_shouldBeQueueMinusAvailableIfNoDurations() {
+        assertEquals(3, DurationAwareDemandEstimator.estimate(
+                new long[]{-1, -1, -1, -1, -1}, 2, new long[]{-1, -1}, HORIZON));
+    }
+
+    @Test
+    public void estimate_shouldNotBeNegativeIfMoreExecutorsThanTasks() {
+        assertEquals(0, DurationAwareDemandEstimator.estimate(new long[]{-1}, 10, new long[0], HORIZON));
+    }
+
+    @Test
+    public void estimate_shouldReuseExecutorForShortTasks() {
+        assertEquals(0, DurationAwareDemandEstimator.estimate(
+                new long[]{20000, 20000, 20000, 20000}, 1, new long[0], HORIZON));
+    }
+
+    @Test
+    public void estimate_shouldCountTasksWhichStartAfterHorizon() {
+        // executor frees at 60, 120, 180 then horizon passed
+        assertEquals(2, DurationAwareDemandEstimator.estimate(
+                new long[]{60000, 60000, 60000, 60000, 60000}, 1, new long[0], HORIZON));
+    }
+
+    @Test
+    public void estimate_shouldUseBusyExecutorsWhichFreeWithinHorizon() {
+        assertEquals(1, DurationAwareDemandEstimator.estimate(
+                new long[]{3600000, 3600000}, 0, new long[]{1000, HORIZON + 1, -1}, HORIZON));
+    }
+
+    @Test
+    public void estimate_shouldNotReuseExecutorAfterTaskWithUnknownDuration() {
+        assertEquals(1, DurationAwareDemandEstimator.estimate(new long[]{-1, 1000}, 1, new long[0], HORIZON));
+    }
+
+}
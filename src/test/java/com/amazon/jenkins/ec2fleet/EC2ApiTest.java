@@ -4,10 +4,13 @@ import com.amazonaws.services.ec2.AmazonEC2;
 import com.amazonaws.services.ec2.model.AmazonEC2Exception;
 import com.amazonaws.services.ec2.model.DescribeInstancesRequest;
 import com.amazonaws.services.ec2.model.DescribeInstancesResult;
+import com.amazonaws.services.ec2.model.DescribeSpotPriceHistoryRequest;
+import com.amazonaws.services.ec2.model.DescribeSpotPriceHistoryResult;
 import com.amazonaws.services.ec2.model.Instance;
 import com.amazonaws.services.ec2.model.InstanceState;
 import com.amazonaws.services.ec2.model.InstanceStateName;
 import com.amazonaws.services.ec2.model.Reservation;
+import com.amazonaws.services.ec2.model.SpotPrice;
 import com.google.common.collect.ImmutableMap;
 import org.junit.Assert;
 import org.junit.Test;
@@ -17,6 +20,7 @@ import org.mockito.junit.MockitoJUnitRunner;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -311,4 +315,34 @@ public class EC2ApiTest {
                 new EC2Api().getEndpoint("cn-north-1", null));
     }
 
+    @Test
+    public void describeSpotPrices_shouldReturnEmptyResultAndNoCallIfNoInstanceTypes() {
+        Assert.assertEquals(Collections.<String, Double>emptyMap(),
+                new EC2Api().describeSpotPrices(amazonEC2, Collections.<String>emptySet()));
+        verifyZeroInteractions(amazonEC2);
+    }
+
+    @Test
+    public void describeSpotPrices_shouldKeepLatestPriceByZoneTypeAndPlatformForAllPages() {
+        // given
+        when(amazonEC2.describeSpotPriceHistory(any(DescribeSpotPriceHistoryRequest.class)))
+                .thenReturn(new DescribeSpotPriceHistoryResult().withNextToken("t").withSpotPriceHistory(
+                        new SpotPrice().withAvailabilityZone("us-east-1a").withInstanceType("m5.large")
+                                .withProductDescription("Linux/UNIX").withSpotPrice("0.05").withTimestamp(new Date(2)),
+                        new SpotPrice().withAvailabilityZone("us-east-1a").withInstanceType("m5.large")
+                                .withProductDescription("Linux/UNIX").withSpotPrice("0.04").withTimestamp(new Date(1))))
+                .thenReturn(new DescribeSpotPriceHistoryResult().withNextToken("").withSpotPriceHistory(
+                        new SpotPrice().withAvailabilityZone("us-east-1a").withInstanceType("m5.large")
+                                .withProductDescription("Windows").withSpotPrice("0.1").withTimestamp(new Date(1))));
+
+        // when
+        Map<String, Double> prices = new EC2Api().describeSpotPrices(amazonEC2, Collections.singleton("m5.large"));
+
+        // then
+        Assert.assertEquals(ImmutableMap.of(
+                "us-east-1a/m5.large/linux", 0.05,
+                "us-east-1a/m5.large/windows", 0.1), prices);
+        verify(amazonEC2, times(2)).describeSpotPriceHistory(any(DescribeSpotPriceHistoryRequest.class));
+    }
+
 }
@@ -1,5 +1,7 @@
 package com.amazon.jenkins.ec2fleet;
 
+import com.amazonaws.services.ec2.model.Instance;
+import com.amazonaws.services.ec2.model.Placement;
 import hudson.model.Action;
 import hudson.model.Actionable;
 import hudson.model.Executor;
@@ -20,8 +22,8 @@ import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
 import java.util.Arrays;
-import java.util.Collections;
 
+import static org.junit.Assert.assertEquals;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
@@ -112,12 +114,21 @@ public class EC2FleetAutoResubmitComputerLauncherTest {
         when(computer.isOffline()).thenReturn(true);
 
         when(computer.getCloud()).thenReturn(cloud);
+
+        // clean up wave of previous test
+        ResubmitCoordinator.takeWave();
+    }
+
+    private static void resubmitWave() {
+        final ResubmitCoordinator.Wave wave = ResubmitCoordinator.takeWave();
+        if (wave != null) ResubmitCoordinator.schedule(wave);
     }
 
     @Test
     public void afterDisconnect_should_do_nothing_if_task_finished_without_cause() {
         new EC2FleetAutoResubmitComputerLauncher(baseComputerLauncher)
                 .afterDisconnect(computer, taskListener);
+        resubmitWave();
         verifyZeroInteractions(queue);
     }
 
@@ -126,6 +137,7 @@ public class EC2FleetAutoResubmitComputerLauncherTest {
         when(computer.isOffline()).thenReturn(true);
         new EC2FleetAutoResubmitComputerLauncher(baseComputerLauncher)
                 .afterDisconnect(computer, taskListener);
+        resubmitWave();
         verifyZeroInteractions(queue);
     }
 
@@ -135,6 +147,7 @@ public class EC2FleetAutoResubmitComputerLauncherTest {
         when(computer.getOfflineCause()).thenReturn(new OfflineCause.ChannelTermination(null));
         new EC2FleetAutoResubmitComputerLauncher(baseComputerLauncher)
                 .afterDisconnect(computer, taskListener);
+        resubmitWave();
         verifyZeroInteractions(queue);
     }
 
@@ -144,7 +157,8 @@ public class EC2FleetAutoResubmitComputerLauncherTest {
         when(computer.getOfflineCause()).thenReturn(new OfflineCause.ChannelTermination(null));
         new EC2FleetAutoResubmitComputerLauncher(baseComputerLauncher)
                 .afterDisconnect(computer, taskListener);
-        verify(queue).schedule2(eq(task1), anyInt(), eq(Collections.<Action>emptyList()));
+        resubmitWave();
+        verify(queue).schedule2(eq(task1), anyInt(), eq(Arrays.<Action>asList(new ResubmittedAction())));
         verifyZeroInteractions(queue);
     }
 
@@ -155,6 +169,7 @@ public class EC2FleetAutoResubmitComputerLauncherTest {
         when(computer.getOfflineCause()).thenReturn(new OfflineCause.ChannelTermination(null));
         new EC2FleetAutoResubmitComputerLauncher(baseComputerLauncher)
                 .afterDisconnect(computer, taskListener);
+        resubmitWave();
         verifyZeroInteractions(queue);
     }
 
@@ -163,8 +178,9 @@ public class EC2FleetAutoResubmitComputerLauncherTest {
         when(computer.getOfflineCause()).thenReturn(new OfflineCause.ChannelTermination(null));
         new EC2FleetAutoResubmitComputerLauncher(baseComputerLauncher)
                 .afterDisconnect(computer, taskListener);
-        verify(queue).schedule2(eq(task1), anyInt(), eq(Collections.<Action>emptyList()));
-        verify(queue).schedule2(eq(task2), anyInt(), eq(Collections.<Action>emptyList()));
+        resubmitWave();
+        verify(queue).schedule2(eq(task1), anyInt(), eq(Arrays.<Action>asList(new ResubmittedAction())));
+        verify(queue).schedule2(eq(task2), anyInt(), eq(Arrays.<Action>asList(new ResubmittedAction())));
         verifyZeroInteractions(queue);
     }
 
@@ -173,6 +189,7 @@ public class EC2FleetAutoResubmitComputerLauncherTest {
         when(computer.getOfflineCause()).thenReturn(new OfflineCause.ChannelTermination(null));
         new EC2FleetAutoResubmitComputerLauncher(baseComputerLauncher)
                 .afterDisconnect(computer, taskListener);
+        resubmitWave();
         verify(executor1).interrupt(Result.ABORTED, new EC2TerminationCause("i-12"));
         verify(executor2).interrupt(Result.ABORTED, new EC2TerminationCause("i-12"));
     }
@@ -184,8 +201,49 @@ public class EC2FleetAutoResubmitComputerLauncherTest {
         when(computer.getOfflineCause()).thenReturn(new OfflineCause.ChannelTermination(null));
         new EC2FleetAutoResubmitComputerLauncher(baseComputerLauncher)
                 .afterDisconnect(computer, taskListener);
-        verify(queue).schedule2(eq(task1), anyInt(), eq(Arrays.asList(action1)));
+        resubmitWave();
+        verify(queue).schedule2(eq(task1), anyInt(), eq(Arrays.asList(action1, new ResubmittedAction())));
+        verifyZeroInteractions(queue);
+    }
+
+    @Test
+    public void taskCompleted_should_resubmit_the_same_task_once_without_quiet_period() {
+        when(subTask2.getOwnerTask()).thenReturn(task1);
+        when(executor1.getElapsedTime()).thenReturn(1000L);
+        when(executor2.getElapsedTime()).thenReturn(2000L);
+        when(computer.getOfflineCause()).thenReturn(new OfflineCause.ChannelTermination(null));
+        new EC2FleetAutoResubmitComputerLauncher(baseComputerLauncher)
+                .afterDisconnect(computer, taskListener);
+
+        final ResubmitCoordinator.Wave wave = ResubmitCoordinator.takeWave();
+        ResubmitCoordinator.schedule(wave);
+
+        verify(queue).schedule2(eq(task1), eq(0), eq(Arrays.<Action>asList(new ResubmittedAction())));
         verifyZeroInteractions(queue);
+        assertEquals(2, wave.getAbortedTasks());
+        assertEquals(1, wave.getResubmittedTasks());
+        assertEquals(3000L, wave.getLostComputeMsec());
+    }
+
+    @Test
+    public void taskCompleted_should_record_wasted_time_by_instance_type_and_zone() {
+        final InterruptionStatistics statistics = new InterruptionStatistics();
+        when(cloud.getInterruptionStatistics()).thenReturn(statistics);
+        when(computer.getNode()).thenReturn(fleetNode);
+        when(fleetNode.getNodeName()).thenReturn("i-12");
+        when(cloud.getDescribedInstance("i-12")).thenReturn(new Instance().withInstanceType("m5.large")
+                .withPlacement(new Placement().withAvailabilityZone("us-east-1a")));
+        when(executor1.getElapsedTime()).thenReturn(1000L);
+        when(executor2.getElapsedTime()).thenReturn(2000L);
+        when(computer.getOfflineCause()).thenReturn(new OfflineCause.ChannelTermination(null));
+
+        new EC2FleetAutoResubmitComputerLauncher(baseComputerLauncher)
+                .afterDisconnect(computer, taskListener);
+        resubmitWave();
+
+        verify(executor1).interrupt(Result.ABORTED, new EC2TerminationCause("i-12", "m5.large", "us-east-1a", 1000L));
+        assertEquals(2, statistics.getByType().get("m5.large").getAbortedRuns());
+        assertEquals(3000L / 3600000.0, statistics.getByZone().get("us-east-1a").getWastedExecutorHours(), 0);
     }
 
 }
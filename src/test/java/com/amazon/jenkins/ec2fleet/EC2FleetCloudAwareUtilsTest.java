@@ -1,8 +1,6 @@
 package com.amazon.jenkins.ec2fleet;
 
-import hudson.model.Computer;
 import hudson.model.LabelFinder;
-import hudson.model.Node;
 import jenkins.model.Jenkins;
 import org.junit.Before;
 import org.junit.Test;
@@ -12,15 +10,12 @@ import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
-import java.util.Arrays;
-import java.util.Collections;
-
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
-@SuppressWarnings("ArraysAsListWithZeroOrOneArgument")
 @RunWith(PowerMockRunner.class)
 @PrepareForTest({Jenkins.class, LabelFinder.class})
 public class EC2FleetCloudAwareUtilsTest {
@@ -56,9 +51,6 @@ public class EC2FleetCloudAwareUtilsTest {
 
         when(cloud.getOldId()).thenReturn("cloud");
         when(otherCloud.getOldId()).thenReturn("other");
-
-        when(jenkins.getNodes()).thenReturn(Collections.<Node>emptyList());
-        when(jenkins.getComputers()).thenReturn(new Computer[0]);
     }
 
     @Test
@@ -68,9 +60,8 @@ public class EC2FleetCloudAwareUtilsTest {
 
     @Test
     public void reassign_nothing_if_computers_belong_to_diff_cloud_id() {
-        when(jenkins.getNodes()).thenReturn(Collections.<Node>emptyList());
         when(computer.getCloud()).thenReturn(otherCloud);
-        when(jenkins.getComputers()).thenReturn(new Computer[]{computer});
+        EC2FleetCloudAwareUtils.register(computer);
 
         EC2FleetCloudAwareUtils.reassign("cloud", cloud);
 
@@ -80,7 +71,17 @@ public class EC2FleetCloudAwareUtilsTest {
     @Test
     public void reassign_nothing_if_computer_cloud_is_null() {
         when(computer.getCloud()).thenReturn(null);
-        when(jenkins.getComputers()).thenReturn(new Computer[]{computer});
+        EC2FleetCloudAwareUtils.register(computer);
+
+        EC2FleetCloudAwareUtils.reassign("cloud", cloud);
+
+        verify(computer, times(0)).setCloud(any(EC2FleetCloud.class));
+    }
+
+    @Test
+    public void reassign_nothing_if_computer_moved_to_other_cloud_after_register() {
+        EC2FleetCloudAwareUtils.register(computer);
+        when(computer.getCloud()).thenReturn(otherCloud);
 
         EC2FleetCloudAwareUtils.reassign("cloud", cloud);
 
@@ -89,7 +90,7 @@ public class EC2FleetCloudAwareUtilsTest {
 
     @Test
     public void reassign_if_computer_belong_to_old_cloud() {
-        when(jenkins.getComputers()).thenReturn(new Computer[]{computer});
+        EC2FleetCloudAwareUtils.register(computer);
 
         EC2FleetCloudAwareUtils.reassign("cloud", cloud);
 
@@ -98,8 +99,7 @@ public class EC2FleetCloudAwareUtilsTest {
 
     @Test
     public void reassign_if_node_belong_to_same_cloud() {
-        when(computer.getCloud()).thenReturn(cloud);
-        when(jenkins.getNodes()).thenReturn(Arrays.asList((Node) node));
+        EC2FleetCloudAwareUtils.register(node);
 
         EC2FleetCloudAwareUtils.reassign("cloud", cloud);
 
@@ -108,13 +108,31 @@ public class EC2FleetCloudAwareUtilsTest {
 
     @Test
     public void reassign_nothing_if_node_belong_to_other_cloud_id() {
-        when(computer.getCloud()).thenReturn(cloud);
         when(node.getCloud()).thenReturn(otherCloud);
-        when(jenkins.getNodes()).thenReturn(Arrays.asList((Node) node));
+        EC2FleetCloudAwareUtils.register(node);
 
         EC2FleetCloudAwareUtils.reassign("cloud", cloud);
 
         verify(node, times(0)).setCloud(cloud);
     }
 
+    @Test
+    public void reassign_only_once() {
+        EC2FleetCloudAwareUtils.register(node);
+
+        EC2FleetCloudAwareUtils.reassign("cloud", cloud);
+        EC2FleetCloudAwareUtils.reassign("cloud", cloud);
+
+        verify(node, times(1)).setCloud(cloud);
+    }
+
+    @Test
+    public void reassign_does_not_visit_all_jenkins_nodes_and_computers() {
+        EC2FleetCloudAwareUtils.register(node);
+
+        EC2FleetCloudAwareUtils.reassign("cloud", cloud);
+
+        verifyZeroInteractions(jenkins);
+    }
+
 }
@@ -16,9 +16,13 @@ import com.amazonaws.services.ec2.model.SpotFleetRequestConfigData;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import hudson.ExtensionList;
+import hudson.model.Action;
+import hudson.model.Computer;
 import hudson.model.LabelFinder;
 import hudson.model.Node;
+import hudson.model.Queue;
 import hudson.model.labels.LabelAtom;
+import hudson.model.labels.LabelExpression;
 import hudson.slaves.ComputerConnector;
 import hudson.slaves.NodeProvisioner;
 import hudson.util.ListBoxModel;
@@ -35,22 +39,31 @@ import org.mockito.Mock;
 import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
+import org.powermock.reflect.Whitebox;
 
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.nullable;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 @SuppressWarnings("ArraysAsListWithZeroOrOneArgument")
@@ -132,7 +145,7 @@ public class EC2FleetCloudTest {
                 "", "", "", null, null, false,
                 false, 0, 0, 10, 1, false,
                 false, false, 0, 0, false,
-                10, false);
+                10, false, null, null, null, null, null, null, null, false);
 
         fleetCloud.setStats(new FleetStateStats("", 10, "active",
                 Collections.<String>emptySet(), Collections.<String, Double>emptyMap()));
@@ -158,7 +171,7 @@ public class EC2FleetCloudTest {
                 "", "", "", null, null, false,
                 false, 0, 0, 9, 1, false,
                 false, false, 0, 0, false,
-                10, false);
+                10, false, null, null, null, null, null, null, null, false);
 
         fleetCloud.setStats(new FleetStateStats("", 10, "active",
                 Collections.<String>emptySet(), Collections.<String, Double>emptyMap()));
@@ -184,7 +197,7 @@ public class EC2FleetCloudTest {
                 "", "", "", null, null, false,
                 false, 0, 0, 10, 1, false,
                 false, false, 0, 0, false,
-                10, false);
+                10, false, null, null, null, null, null, null, null, false);
 
         fleetCloud.setStats(new FleetStateStats("", 5, "active",
                 Collections.<String>emptySet(), Collections.<String, Double>emptyMap()));
@@ -210,7 +223,7 @@ public class EC2FleetCloudTest {
                 "", "", "", null, null, false,
                 false, 0, 0, 10, 1, false,
                 false, false, 0, 0, false,
-                10, false);
+                10, false, null, null, null, null, null, null, null, false);
 
         fleetCloud.setStats(new FleetStateStats("", 5, "active",
                 Collections.<String>emptySet(), Collections.<String, Double>emptyMap()));
@@ -236,7 +249,7 @@ public class EC2FleetCloudTest {
                 "", "", "", null, null, false,
                 false, 0, 0, 10, 1, false,
                 false, false, 0, 0, false,
-                10, false);
+                10, false, null, null, null, null, null, null, null, false);
 
         fleetCloud.setStats(new FleetStateStats("", 5, "active",
                 Collections.<String>emptySet(), Collections.<String, Double>emptyMap()));
@@ -253,6 +266,65 @@ public class EC2FleetCloudTest {
         assertEquals(5, fleetCloud.getToAdd());
     }
 
+    @Test
+    public void provision_shouldPlanWholeWeightedInstances() {
+        EC2FleetCloud fleetCloud = new EC2FleetCloud(null, null, "credId", null, "region",
+                "", "", "", null, null, false,
+                false, 0, 0, 100, 1, false,
+                false, false, 0, 0, true,
+                10, false, null, null, null, null, null, null, null, false);
+
+        fleetCloud.setStats(new FleetStateStats("", 0, "active",
+                Collections.<String>emptySet(), ImmutableMap.of("m5.4xlarge", 4.0)));
+
+        Collection<NodeProvisioner.PlannedNode> r = fleetCloud.provision(null, 10);
+
+        assertEquals(3, r.size());
+        for (final NodeProvisioner.PlannedNode plannedNode : r) {
+            assertEquals(4, plannedNode.numExecutors);
+        }
+        assertEquals(12, fleetCloud.getToAdd());
+    }
+
+    @Test
+    public void provision_shouldLimitScaleOutAndDeferRest() {
+        EC2FleetCloud fleetCloud = new EC2FleetCloud(null, null, "credId", null, "region",
+                "", "", "", null, null, false,
+                false, 0, 0, 100, 1, false,
+                false, false, 0, 0, false,
+                10, false, null, 2, 3, null, null, null, null, false);
+
+        fleetCloud.setStats(new FleetStateStats("", 0, "active",
+                Collections.<String>emptySet(), Collections.<String, Double>emptyMap()));
+
+        assertEquals(3, fleetCloud.provision(null, 10).size());
+        assertEquals(0, fleetCloud.provision(null, 7).size());
+
+        assertEquals(3, fleetCloud.getToAdd());
+        assertEquals(7, fleetCloud.getScaleOutLimiter().getDeferredUnits());
+        assertEquals(ProvisioningTrace.Reason.RATE_LIMITED,
+                fleetCloud.getProvisioningTrace().getEntries().get(0).getReason());
+    }
+
+    @Test
+    public void provision_shouldNotProvisionForLabelCoveredBySpareOfOtherLabel() {
+        EC2FleetCloud fleetCloud = new EC2FleetCloud(null, null, "credId", null, "region",
+                "", "", "linux docker", null, null, false,
+                false, 0, 0, 100, 4, false,
+                false, false, 0, 0, false,
+                10, false, null, null, null, null, null, null, null, false);
+
+        fleetCloud.setStats(new FleetStateStats("", 0, "active",
+                Collections.<String>emptySet(), Collections.<String, Double>emptyMap()));
+
+        assertEquals(1, fleetCloud.provision(new LabelAtom("linux"), 1).size());
+        assertEquals(0, fleetCloud.provision(new LabelExpression.And(new LabelAtom("linux"), new LabelAtom("docker")), 3).size());
+        assertEquals(1, fleetCloud.provision(new LabelAtom("docker"), 1).size());
+
+        assertEquals(2, fleetCloud.getToAdd());
+        assertEquals(3, fleetCloud.getLabelDemandLedger().getCoveredExecutors());
+    }
+
     @Test
     public void provision_shouldProvisionNoneIfNotYetUpdated() {
         // given
@@ -266,7 +338,7 @@ public class EC2FleetCloudTest {
                 "", "", "", null, null, false,
                 false, 0, 0, 1, 1, false,
                 false, false, 0, 0, false,
-                10, false);
+                10, false, null, null, null, null, null, null, null, false);
 
         // when
         Collection<NodeProvisioner.PlannedNode> r = fleetCloud.provision(null, 1);
@@ -289,7 +361,7 @@ public class EC2FleetCloudTest {
                 "", "", "", null, null, false,
                 false, 0, 0, 1, 1, false,
                 false, false, 0, 0, false,
-                10, false);
+                10, false, null, null, null, null, null, null, null, false);
 
         // when
         boolean r = fleetCloud.scheduleToTerminate("z");
@@ -311,7 +383,7 @@ public class EC2FleetCloudTest {
                 "", "", "", null, null, false,
                 false, 0, 1, 1, 1, false,
                 false, false, 0, 0, false,
-                10, false);
+                10, false, null, null, null, null, null, null, null, false);
 
         fleetCloud.setStats(new FleetStateStats("", 0, "active",
                 Collections.<String>emptySet(), Collections.<String, Double>emptyMap()));
@@ -336,7 +408,7 @@ public class EC2FleetCloudTest {
                 "", "", "", null, null, false,
                 false, 0, 1, 1, 1, false,
                 false, false, 0, 0, false,
-                10, false);
+                10, false, null, null, null, null, null, null, null, false);
 
         fleetCloud.setStats(new FleetStateStats("", 1, "active",
                 Collections.<String>emptySet(), Collections.<String, Double>emptyMap()));
@@ -361,7 +433,7 @@ public class EC2FleetCloudTest {
                 "", "", "", null, null, false,
                 false, 0, 1, 1, 1, false,
                 false, false, 0, 0, false,
-                10, false);
+                10, false, null, null, null, null, null, null, null, false);
 
         fleetCloud.setStats(new FleetStateStats("", 2, "active",
                 Collections.<String>emptySet(), Collections.<String, Double>emptyMap()));
@@ -374,6 +446,299 @@ public class EC2FleetCloudTest {
         assertEquals(ImmutableSet.of("z"), fleetCloud.getInstanceIdsToTerminate());
     }
 
+    @Test
+    public void scheduleToTerminateBatch_shouldAcceptNoMoreThanMin() {
+        EC2FleetCloud fleetCloud = new EC2FleetCloud(null, null, "credId", null, "region",
+                "", "", "", null, null, false,
+                false, 0, 1, 5, 1, false,
+                false, false, 0, 0, false,
+                10, false, null, null, null, null, null, null, null, false);
+
+        fleetCloud.setStats(new FleetStateStats("", 3, "active",
+                Collections.<String>emptySet(), Collections.<String, Double>emptyMap()));
+
+        Set<String> r = fleetCloud.scheduleToTerminate(Arrays.asList("z1", "z2", "z3"));
+
+        assertEquals(ImmutableSet.of("z1", "z2"), r);
+        assertEquals(ImmutableSet.of("z1", "z2"), fleetCloud.getInstanceIdsToTerminate());
+    }
+
+    @Test
+    public void scheduleToTerminateBatch_shouldAcceptAlreadyScheduled() {
+        EC2FleetCloud fleetCloud = new EC2FleetCloud(null, null, "credId", null, "region",
+                "", "", "", null, null, false,
+                false, 0, 1, 5, 1, false,
+                false, false, 0, 0, false,
+                10, false, null, null, null, null, null, null, null, false);
+
+        fleetCloud.setStats(new FleetStateStats("", 2, "active",
+                Collections.<String>emptySet(), Collections.<String, Double>emptyMap()));
+        fleetCloud.scheduleToTerminate("z1");
+
+        Set<String> r = fleetCloud.scheduleToTerminate(Arrays.asList("z1", "z2"));
+
+        assertEquals(ImmutableSet.of("z1"), r);
+        assertEquals(ImmutableSet.of("z1"), fleetCloud.getInstanceIdsToTerminate());
+    }
+
+    @Test
+    public void scheduleToTerminateBatch_shouldNotRemoveIfStatsNotUpdated() {
+        EC2FleetCloud fleetCloud = new EC2FleetCloud(null, null, "credId", null, "region",
+                "", "", "", null, null, false,
+                false, 0, 0, 5, 1, false,
+                false, false, 0, 0, false,
+                10, false, null, null, null, null, null, null, null, false);
+
+        assertEquals(Collections.<String>emptySet(), fleetCloud.scheduleToTerminate(Arrays.asList("z1")));
+    }
+
+    @Test
+    public void scheduleToTerminate_shouldRejectDuringCooldownAfterScaleOut() {
+        EC2FleetCloud fleetCloud = new EC2FleetCloud(null, null, "credId", null, "region",
+                "", "", "", null, null, false,
+                false, 0, 0, 10, 1, false,
+                false, false, 0, 0, false,
+                10, false, null, null, null, null, 300, null, null, false);
+        fleetCloud.setStats(new FleetStateStats("", 2, "active",
+                Collections.<String>emptySet(), Collections.<String, Double>emptyMap()));
+
+        fleetCloud.provision(null, 1);
+
+        assertFalse(fleetCloud.scheduleToTerminate("z"));
+        assertEquals(Collections.<String>emptySet(), fleetCloud.scheduleToTerminate(Arrays.asList("z")));
+        assertEquals(2, fleetCloud.getRejectedTerminations());
+    }
+
+    @Test
+    public void scheduleToTerminate_shouldKeepIdleExecutorsNeededByPendingDemand() {
+        EC2FleetCloud fleetCloud = new EC2FleetCloud(null, null, "credId", null, "region",
+                "", "", "", null, null, false,
+                false, 0, 0, 10, 1, false,
+                false, false, 0, 0, false,
+                10, false, null, null, null, null, null, null, null, true);
+        fleetCloud.setStats(new FleetStateStats("", 3, "active",
+                Collections.<String>emptySet(), Collections.<String, Double>emptyMap()));
+        Whitebox.setInternalState(fleetCloud, "idleExecutors", 3);
+        Whitebox.setInternalState(fleetCloud, "pendingDemand", 2);
+
+        assertTrue(fleetCloud.scheduleToTerminate("z1"));
+        assertFalse(fleetCloud.scheduleToTerminate("z2"));
+        assertEquals(ImmutableSet.of("z1"), fleetCloud.getInstanceIdsToTerminate());
+        assertEquals(1, fleetCloud.getRejectedTerminations());
+    }
+
+    @Test
+    public void scheduleToTerminate_shouldIgnorePendingDemandIfKeepIdleForDemandDisabled() {
+        EC2FleetCloud fleetCloud = new EC2FleetCloud(null, null, "credId", null, "region",
+                "", "", "", null, null, false,
+                false, 0, 0, 10, 1, false,
+                false, false, 0, 0, false,
+                10, false, null, null, null, null, 300, null, null, false);
+        fleetCloud.setStats(new FleetStateStats("", 2, "active",
+                Collections.<String>emptySet(), Collections.<String, Double>emptyMap()));
+        Whitebox.setInternalState(fleetCloud, "pendingDemand", 2);
+
+        assertTrue(fleetCloud.scheduleToTerminate("z"));
+    }
+
+    @Test
+    public void update_shouldFindPendingDemandOncePerUpdate() {
+        when(ec2Api.connect(any(String.class), any(String.class), anyString())).thenReturn(amazonEC2);
+
+        PowerMockito.when(FleetStateStats.readClusterState(any(AmazonEC2.class), anyString(), anyString()))
+                .thenReturn(new FleetStateStats("fleetId", 2, "active",
+                        Collections.<String>emptySet(), Collections.<String, Double>emptyMap()));
+
+        EC2FleetCloud fleetCloud = spy(new EC2FleetCloud(null, null, "credId", null, "region",
+                "", "fleetId", "", null, null, false,
+                false, 0, 0, 10, 1,
+                false, false, false, 0,
+                0, false, 10, false, null, null, null, null, null, null, null, true));
+        doReturn(2).when(fleetCloud).getPendingDemand(anyLong());
+
+        fleetCloud.update();
+        assertFalse(fleetCloud.scheduleToTerminate("z1"));
+        assertFalse(fleetCloud.scheduleToTerminate("z2"));
+
+        verify(fleetCloud, times(1)).getPendingDemand(anyLong());
+    }
+
+    @Test
+    public void scheduleToTerminate_shouldNotTerminateInstanceYoungerThanMinLifetime() {
+        EC2FleetCloud fleetCloud = new EC2FleetCloud(null, null, "credId", null, "region",
+                "", "", "", null, null, false,
+                false, 0, 0, 10, 1, false,
+                false, false, 0, 0, false,
+                10, false, null, null, null, null, null, 600, null, false);
+        fleetCloud.setStats(new FleetStateStats("", 3, "active",
+                Collections.<String>emptySet(), Collections.<String, Double>emptyMap()));
+        final long now = System.currentTimeMillis();
+        Whitebox.setInternalState(fleetCloud, "describedInstances", ImmutableMap.of(
+                "young", new Instance().withLaunchTime(new Date(now)),
+                "old", new Instance().withLaunchTime(new Date(now - TimeUnit.MINUTES.toMillis(11)))));
+
+        assertFalse(fleetCloud.scheduleToTerminate("young"));
+        assertEquals(ImmutableSet.of("old"), fleetCloud.scheduleToTerminate(Arrays.asList("young", "old")));
+        assertEquals(2, fleetCloud.getRejectedTerminations());
+    }
+
+    @Test
+    public void scheduleToTerminate_shouldCountWeightOfInstanceTypeForMinSize() {
+        EC2FleetCloud fleetCloud = new EC2FleetCloud(null, null, "credId", null, "region",
+                "", "", "", null, null, false,
+                false, 0, 2, 10, 1, false,
+                false, false, 0, 0, false,
+                10, false, null, null, null, null, null, null, null, false);
+        fleetCloud.setStats(new FleetStateStats("", 6, "active",
+                Collections.<String>emptySet(), ImmutableMap.of("m5.xlarge", 4.0)));
+        Whitebox.setInternalState(fleetCloud, "describedInstances", ImmutableMap.of(
+                "big", new Instance().withInstanceType("m5.xlarge"),
+                "small", new Instance().withInstanceType("t3.small")));
+
+        assertTrue(fleetCloud.scheduleToTerminate("big"));
+        assertFalse(fleetCloud.scheduleToTerminate("small"));
+        assertEquals(ImmutableSet.of("big"), fleetCloud.getInstanceIdsToTerminate());
+    }
+
+    @Test
+    public void scheduleToTerminate_batchShouldNotGoBelowMinSizeInUnits() {
+        EC2FleetCloud fleetCloud = new EC2FleetCloud(null, null, "credId", null, "region",
+                "", "", "", null, null, false,
+                false, 0, 3, 10, 1, false,
+                false, false, 0, 0, false,
+                10, false, null, null, null, null, null, null, null, false);
+        fleetCloud.setStats(new FleetStateStats("", 6, "active",
+                Collections.<String>emptySet(), ImmutableMap.of("m5.xlarge", 4.0)));
+        Whitebox.setInternalState(fleetCloud, "describedInstances", ImmutableMap.of(
+                "big", new Instance().withInstanceType("m5.xlarge"),
+                "small1", new Instance().withInstanceType("t3.small"),
+                "small2", new Instance().withInstanceType("t3.small")));
+
+        assertEquals(ImmutableSet.of("small1", "small2"),
+                fleetCloud.scheduleToTerminate(Arrays.asList("big", "small1", "small2")));
+    }
+
+    @Test
+    public void scheduleToTerminate_shouldSumFractionalWeightsOfScheduledInstancesForMinSize() {
+        EC2FleetCloud fleetCloud = new EC2FleetCloud(null, null, "credId", null, "region",
+                "", "", "", null, null, false,
+                false, 0, 1, 10, 1, false,
+                false, false, 0, 0, false,
+                10, false, null, null, null, null, null, null, null, false);
+        fleetCloud.setStats(new FleetStateStats("", 2, "active",
+                Collections.<String>emptySet(), ImmutableMap.of("t3.nano", 0.5)));
+        Whitebox.setInternalState(fleetCloud, "describedInstances", ImmutableMap.of(
+                "a", new Instance().withInstanceType("t3.nano"),
+                "b", new Instance().withInstanceType("t3.nano"),
+                "c", new Instance().withInstanceType("t3.nano")));
+
+        // two instances with weight 0.5 are one unit of fulfilled capacity
+        assertEquals(ImmutableSet.of("a", "b"), fleetCloud.scheduleToTerminate(Arrays.asList("a", "b")));
+        assertFalse(fleetCloud.scheduleToTerminate("c"));
+    }
+
+    @Test
+    public void applyPendingChanges_shouldDecreaseTargetBySummedWeightOfTerminatedInstances() {
+        when(ec2Api.connect(any(String.class), any(String.class), anyString())).thenReturn(amazonEC2);
+
+        EC2FleetCloud fleetCloud = new EC2FleetCloud(null, null, "credId", null, "region",
+                "", "fleetId", "", null, null, false,
+                false, 0, 0, 10, 1,
+                false, false, false, 0,
+                0, false, 10, false, null, null, null, null, null, null, null, false);
+        fleetCloud.setStats(new FleetStateStats("fleetId", 3, "active",
+                ImmutableSet.of("a", "b", "c"), ImmutableMap.of("t3.nano", 0.5)));
+        Whitebox.setInternalState(fleetCloud, "describedInstances", ImmutableMap.of(
+                "a", new Instance().withInstanceType("t3.nano"),
+                "b", new Instance().withInstanceType("t3.nano"),
+                "c", new Instance().withInstanceType("t3.nano")));
+
+        fleetCloud.scheduleToTerminate(Arrays.asList("a", "b"));
+        fleetCloud.applyPendingChanges();
+
+        verify(amazonEC2).modifySpotFleetRequest(
+                new ModifySpotFleetRequestRequest()
+                        .withExcessCapacityTerminationPolicy("NoTermination")
+                        .withSpotFleetRequestId("fleetId")
+                        .withTargetCapacity(2));
+    }
+
+    @Test
+    public void scheduleToTerminate_batchShouldTerminateOldestFirstIfPolicyOldest() {
+        EC2FleetCloud fleetCloud = new EC2FleetCloud(null, null, "credId", null, "region",
+                "", "", "", null, null, false,
+                false, 0, 1, 10, 1, false,
+                false, false, 0, 0, false,
+                10, false, null, null, null, null, null, null, "OLDEST", false);
+        fleetCloud.setStats(new FleetStateStats("", 3, "active",
+                Collections.<String>emptySet(), Collections.<String, Double>emptyMap()));
+        final long now = System.currentTimeMillis();
+        Whitebox.setInternalState(fleetCloud, "describedInstances", ImmutableMap.of(
+                "new", new Instance().withLaunchTime(new Date(now)),
+                "old", new Instance().withLaunchTime(new Date(now - 100)),
+                "older", new Instance().withLaunchTime(new Date(now - 200))));
+
+        assertEquals(ScaleInPolicy.OLDEST, fleetCloud.getScaleInPolicy());
+        assertEquals(ImmutableSet.of("older", "old"),
+                fleetCloud.scheduleToTerminate(Arrays.asList("new", "old", "older")));
+    }
+
+    @Test
+    public void replaceInterrupted_shouldNotBlockScaleInByCooldownAndNotCountChurn() {
+        EC2FleetCloud fleetCloud = new EC2FleetCloud(null, null, "credId", null, "region",
+                "", "", "", null, null, false,
+                false, 0, 0, 10, 1, false,
+                false, false, 0, 0, false,
+                10, false, null, null, null, null, 300, null, null, false);
+        fleetCloud.setStats(new FleetStateStats("", 3, "active",
+                Collections.<String>emptySet(), Collections.<String, Double>emptyMap()));
+
+        assertTrue(fleetCloud.scheduleToTerminate("i-1"));
+        assertTrue(fleetCloud.replaceInterrupted("i-2"));
+
+        assertTrue(fleetCloud.scheduleToTerminate("i-3"));
+        assertEquals(0, fleetCloud.getRejectedTerminations());
+        assertEquals(0, fleetCloud.getChurnCount());
+    }
+
+    @Test
+    public void replaceInterrupted_shouldAddWeightOfInstanceOnceAndTerminateItWithoutMinSizeCheck() {
+        EC2FleetCloud fleetCloud = new EC2FleetCloud(null, null, "credId", null, "region",
+                "", "", "", null, null, false,
+                false, 0, 2, 10, 1, false,
+                false, false, 0, 0, false,
+                10, false, null, null, null, null, null, null, null, false);
+        fleetCloud.setStats(new FleetStateStats("", 2, "active",
+                Collections.<String>emptySet(), ImmutableMap.of("m5.xlarge", 2.0)));
+        Whitebox.setInternalState(fleetCloud, "describedInstances", ImmutableMap.of(
+                "i-1", new Instance().withInstanceType("m5.xlarge")));
+
+        assertTrue(fleetCloud.replaceInterrupted("i-1"));
+        assertFalse(fleetCloud.replaceInterrupted("i-1"));
+        assertEquals(2, fleetCloud.getToAdd());
+
+        assertTrue(fleetCloud.terminateInterrupted("i-1"));
+        assertFalse(fleetCloud.terminateInterrupted("i-1"));
+        assertFalse(fleetCloud.terminateInterrupted("i-2"));
+        assertEquals(ImmutableSet.of("i-1"), fleetCloud.getInstanceIdsToTerminate());
+    }
+
+    @Test
+    public void provision_shouldCountChurnIfLaunchSoonAfterTermination() {
+        EC2FleetCloud fleetCloud = new EC2FleetCloud(null, null, "credId", null, "region",
+                "", "", "", null, null, false,
+                false, 0, 0, 10, 1, false,
+                false, false, 0, 0, false,
+                10, false, null, null, null, null, null, null, null, false);
+        fleetCloud.setStats(new FleetStateStats("", 2, "active",
+                Collections.<String>emptySet(), Collections.<String, Double>emptyMap()));
+
+        assertTrue(fleetCloud.scheduleToTerminate("z"));
+        fleetCloud.provision(null, 3);
+
+        assertEquals(1, fleetCloud.getChurnCount());
+    }
+
     @Test
     public void scheduleToTerminate_upToZeroNodes() {
         // given
@@ -387,7 +752,7 @@ public class EC2FleetCloudTest {
                 "", "", "", null, null, false,
                 false, 0, 0, 1, 1, false,
                 false, false, 0, 0, false,
-                10, false);
+                10, false, null, null, null, null, null, null, null, false);
 
         fleetCloud.setStats(new FleetStateStats("", 2, "active",
                 Collections.<String>emptySet(), Collections.<String, Double>emptyMap()));
@@ -415,7 +780,7 @@ public class EC2FleetCloudTest {
                 "", "", "", null, null, false,
                 false, 0, 1, 1, 1, false,
                 false, false, 0, 0, false,
-                10, false);
+                10, false, null, null, null, null, null, null, null, false);
 
         fleetCloud.setStats(new FleetStateStats("", 3, "active",
                 Collections.<String>emptySet(), Collections.<String, Double>emptyMap()));
@@ -445,7 +810,7 @@ public class EC2FleetCloudTest {
                 "", "fleetId", "", null, null, false,
                 false, 0, 0, 1, 1,
                 false, false, false, 0,
-                0, false, 10, false);
+                0, false, 10, false, null, null, null, null, null, null, null, false);
 
         // when
         FleetStateStats stats = fleetCloud.update();
@@ -456,6 +821,189 @@ public class EC2FleetCloudTest {
         assertEquals("fleetId", stats.getFleetId());
     }
 
+    @Test
+    public void update_shouldProvisionWarmPoolWhenNoIdleExecutors() {
+        // given
+        when(ec2Api.connect(any(String.class), any(String.class), anyString())).thenReturn(amazonEC2);
+
+        PowerMockito.when(FleetStateStats.readClusterState(any(AmazonEC2.class), anyString(), anyString()))
+                .thenReturn(new FleetStateStats("fleetId", 0, "active",
+                        Collections.<String>emptySet(), Collections.<String, Double>emptyMap()));
+
+        EC2FleetCloud fleetCloud = new EC2FleetCloud(null, null, "credId", null, "region",
+                "", "fleetId", "", null, null, false,
+                false, 0, 0, 10, 1,
+                false, false, false, 0,
+                0, false, 10, false, 2, null, null, null, null, null, null, false);
+
+        // when
+        fleetCloud.update();
+
+        // then
+        assertEquals(2, fleetCloud.getToAdd());
+    }
+
+    @Test
+    public void update_shouldNotProvisionWarmPoolMoreThenMax() {
+        // given
+        when(ec2Api.connect(any(String.class), any(String.class), anyString())).thenReturn(amazonEC2);
+
+        PowerMockito.when(FleetStateStats.readClusterState(any(AmazonEC2.class), anyString(), anyString()))
+                .thenReturn(new FleetStateStats("fleetId", 0, "active",
+                        Collections.<String>emptySet(), Collections.<String, Double>emptyMap()));
+
+        EC2FleetCloud fleetCloud = new EC2FleetCloud(null, null, "credId", null, "region",
+                "", "fleetId", "", null, null, false,
+                false, 0, 0, 1, 1,
+                false, false, false, 0,
+                0, false, 10, false, 5, null, null, null, null, null, null, false);
+
+        // when
+        fleetCloud.update();
+
+        // then
+        assertEquals(1, fleetCloud.getToAdd());
+    }
+
+    @Test
+    public void update_shouldNotProvisionWarmPoolWhenCapacityIsComing() {
+        // given
+        when(ec2Api.connect(any(String.class), any(String.class), anyString())).thenReturn(amazonEC2);
+
+        PowerMockito.when(FleetStateStats.readClusterState(any(AmazonEC2.class), anyString(), anyString()))
+                .thenReturn(new FleetStateStats("fleetId", 2, "active",
+                        Collections.<String>emptySet(), Collections.<String, Double>emptyMap()));
+
+        EC2FleetCloud fleetCloud = new EC2FleetCloud(null, null, "credId", null, "region",
+                "", "fleetId", "", null, null, false,
+                false, 0, 0, 10, 1,
+                false, false, false, 0,
+                0, false, 10, false, 2, null, null, null, null, null, null, false);
+
+        // when
+        fleetCloud.update();
+
+        // then
+        assertEquals(0, fleetCloud.getToAdd());
+    }
+
+    @Test
+    public void scheduleToTerminate_shouldNotTerminateWarmPool() {
+        EC2FleetCloud fleetCloud = new EC2FleetCloud(null, null, "credId", null, "region",
+                "", "fleetId", "", null, null, false,
+                false, 0, 0, 10, 1,
+                false, false, false, 0,
+                0, false, 10, false, 1, null, null, null, null, null, null, false);
+
+        fleetCloud.setStats(new FleetStateStats("fleetId", 2, "active",
+                ImmutableSet.of("i-0", "i-1"), Collections.<String, Double>emptyMap()));
+
+        assertFalse(fleetCloud.scheduleToTerminate("i-0"));
+        assertEquals(Collections.emptySet(), fleetCloud.getInstanceIdsToTerminate());
+    }
+
+    @Test
+    public void getResubmitWaves_shouldReturnOnlyWavesWhichLostNodesOfCloud() {
+        EC2FleetCloud fleetCloud = new EC2FleetCloud(null, null, "credId", null, "region",
+                "", "fleetId", "", null, null, false,
+                false, 0, 0, 10, 1,
+                false, false, false, 0,
+                0, false, 10, false, null, null, null, null, null, null, null, false);
+        ResubmitCoordinator.takeWave();
+        ResubmitCoordinator.submit(fleetCloud.name, "i-0", mock(Queue.Task.class), Collections.<Action>emptyList(), 1000);
+        final ResubmitCoordinator.Wave wave = ResubmitCoordinator.takeWave();
+        ResubmitCoordinator.submit("other", "i-1", mock(Queue.Task.class), Collections.<Action>emptyList(), 1000);
+        ResubmitCoordinator.takeWave();
+
+        assertEquals(Collections.singletonList(wave), fleetCloud.getResubmitWaves());
+    }
+
+    @Test
+    public void update_shouldCountExecutorsOfWeightedInstancesForWarmPool() throws IOException {
+        when(ec2Api.connect(any(String.class), any(String.class), anyString())).thenReturn(amazonEC2);
+
+        final Instance instance = new Instance()
+                .withPublicIpAddress("p-ip")
+                .withInstanceType("big")
+                .withInstanceId("i-0");
+        when(ec2Api.describeInstances(any(AmazonEC2.class), any(Set.class))).thenReturn(
+                ImmutableMap.of("i-0", instance));
+
+        PowerMockito.when(FleetStateStats.readClusterState(any(AmazonEC2.class), anyString(), anyString()))
+                .thenReturn(new FleetStateStats("fleetId", 4, "active",
+                        ImmutableSet.of("i-0"), ImmutableMap.of("big", 4.0)));
+
+        mockNodeCreatingPart();
+
+        EC2FleetCloud fleetCloud = new EC2FleetCloud(null, null, "credId", null, "region",
+                "", "fleetId", "", null, PowerMockito.mock(ComputerConnector.class), false,
+                false, 0, 0, 10, 2,
+                false, false, false, 0,
+                0, false, 10, false, 4, null, null, null, null, null, null, false);
+
+        fleetCloud.update();
+
+        // instance of 4 units with 2 executors is launched, one more is needed for 4 executors
+        assertEquals(4, fleetCloud.getToAdd());
+    }
+
+    @Test
+    public void scheduleToTerminate_shouldCountExecutorsOfWeightedInstanceForWarmPool() {
+        EC2FleetCloud fleetCloud = new EC2FleetCloud(null, null, "credId", null, "region",
+                "", "fleetId", "", null, null, false,
+                false, 0, 0, 10, 1,
+                false, false, false, 0,
+                0, true, 10, false, 2, null, null, null, null, null, null, false);
+        fleetCloud.setStats(new FleetStateStats("fleetId", 5, "active",
+                ImmutableSet.of("big", "small"), ImmutableMap.of("big", 4.0)));
+        Whitebox.setInternalState(fleetCloud, "describedInstances", ImmutableMap.of(
+                "big", new Instance().withInstanceType("big"),
+                "small", new Instance().withInstanceType("small")));
+        Whitebox.setInternalState(fleetCloud, "idleExecutors", 5);
+
+        // node of big instance has 4 executors, only 1 would stay idle
+        assertFalse(fleetCloud.scheduleToTerminate("big"));
+        assertTrue(fleetCloud.scheduleToTerminate("small"));
+    }
+
+    @Test
+    public void scheduleToTerminate_shouldCountExecutorsOfWeightedInstanceForPendingDemand() {
+        EC2FleetCloud fleetCloud = new EC2FleetCloud(null, null, "credId", null, "region",
+                "", "fleetId", "", null, null, false,
+                false, 0, 0, 10, 1,
+                false, false, false, 0,
+                0, true, 10, false, null, null, null, null, null, null, null, true);
+        fleetCloud.setStats(new FleetStateStats("fleetId", 5, "active",
+                ImmutableSet.of("big", "small"), ImmutableMap.of("big", 4.0)));
+        Whitebox.setInternalState(fleetCloud, "describedInstances", ImmutableMap.of(
+                "big", new Instance().withInstanceType("big"),
+                "small", new Instance().withInstanceType("small")));
+        Whitebox.setInternalState(fleetCloud, "idleExecutors", 5);
+        Whitebox.setInternalState(fleetCloud, "pendingDemand", 2);
+
+        assertFalse(fleetCloud.scheduleToTerminate("big"));
+        assertTrue(fleetCloud.scheduleToTerminate("small"));
+        assertEquals(4, (int) Whitebox.getInternalState(fleetCloud, "idleExecutors"));
+    }
+
+    @Test
+    public void recordTaskAccepted_shouldCountWarmPoolHitRate() {
+        EC2FleetCloud fleetCloud = new EC2FleetCloud(null, null, "credId", null, "region",
+                "", "fleetId", "", null, null, false,
+                false, 0, 0, 10, 1,
+                false, false, false, 0,
+                0, false, 10, false, 1, null, null, null, null, null, null, false);
+
+        fleetCloud.recordTaskAccepted(true);
+        fleetCloud.recordTaskAccepted(true);
+        fleetCloud.recordTaskAccepted(true);
+        fleetCloud.recordTaskAccepted(false);
+
+        assertEquals(3, fleetCloud.getWarmPoolHits());
+        assertEquals(1, fleetCloud.getWarmPoolMisses());
+        assertEquals(0.75, fleetCloud.getWarmPoolHitRate(), 0.001);
+    }
+
     @Test
     public void update_shouldIncreaseTargetCapacityWhenProvisioned() {
         // given
@@ -469,7 +1017,7 @@ public class EC2FleetCloudTest {
                 "", "fleetId", "", null, null, false,
                 false, 0, 0, 10, 1,
                 false, false, false, 0,
-                0, false, 10, false);
+                0, false, 10, false, null, null, null, null, null, null, null, false);
 
         fleetCloud.setStats(new FleetStateStats("", 0, "active",
                 Collections.<String>emptySet(), Collections.<String, Double>emptyMap()));
@@ -500,7 +1048,7 @@ public class EC2FleetCloudTest {
                 "", "fleetId", "", null, null, false,
                 false, 0, 0, 10, 1,
                 false, false, false, 0,
-                0, false, 10, false);
+                0, false, 10, false, null, null, null, null, null, null, null, false);
 
         fleetCloud.setStats(new FleetStateStats("", 5, "active",
                 Collections.<String>emptySet(), Collections.<String, Double>emptyMap()));
@@ -534,7 +1082,7 @@ public class EC2FleetCloudTest {
                 "", "fleetId", "", null, null, false,
                 false, 0, 0, 10, 1,
                 false, false, false, 0,
-                0, false, 10, false);
+                0, false, 10, false, null, null, null, null, null, null, null, false);
 
         fleetCloud.setStats(new FleetStateStats("", 5, "active",
                 Collections.<String>emptySet(), Collections.<String, Double>emptyMap()));
@@ -569,7 +1117,7 @@ public class EC2FleetCloudTest {
                 "", "fleetId", "", null, null, false,
                 false, 0, 0, 10, 1,
                 false, false, false, 0,
-                0, false, 10, false);
+                0, false, 10, false, null, null, null, null, null, null, null, false);
 
         fleetCloud.setStats(new FleetStateStats("", 5, "active",
                 Collections.<String>emptySet(), Collections.<String, Double>emptyMap()));
@@ -580,14 +1128,81 @@ public class EC2FleetCloudTest {
         // when
         fleetCloud.update();
 
+        // then target capacity is the same, so no reason to modify
+        verify(amazonEC2, never()).modifySpotFleetRequest(any(ModifySpotFleetRequestRequest.class));
+        verify(ec2Api).terminateInstances(amazonEC2, ImmutableSet.of("i-0", "i-1", "i-2", "i-3", "i-4"));
+        assertEquals(0, fleetCloud.getInstanceIdsToTerminate().size());
+        assertEquals(0, fleetCloud.getToAdd());
+        assertEquals(1, fleetCloud.getCapacityChangesSkipped());
+    }
+
+    @Test
+    public void update_shouldHoldTerminationAndProvisionWhenFleetModifying() {
+        // given
+        when(ec2Api.connect(any(String.class), any(String.class), anyString())).thenReturn(amazonEC2);
+
+        PowerMockito.when(FleetStateStats.readClusterState(any(AmazonEC2.class), anyString(), anyString()))
+                .thenReturn(new FleetStateStats("fleetId", 5, "modifying",
+                        Collections.<String>emptySet(), Collections.<String, Double>emptyMap()));
+
+        EC2FleetCloud fleetCloud = new EC2FleetCloud(null, null, "credId", null, "region",
+                "", "fleetId", "", null, null, false,
+                false, 0, 0, 10, 1,
+                false, false, false, 0,
+                0, false, 10, false, null, null, null, null, null, null, null, false);
+
+        fleetCloud.setStats(new FleetStateStats("fleetId", 5, "modifying",
+                Collections.<String>emptySet(), Collections.<String, Double>emptyMap()));
+
+        fleetCloud.provision(null, 2);
+        fleetCloud.scheduleToTerminate("i-1");
+
+        // when
+        fleetCloud.update();
+
+        // then
+        verify(amazonEC2, never()).modifySpotFleetRequest(any(ModifySpotFleetRequestRequest.class));
+        verify(ec2Api, never()).terminateInstances(any(AmazonEC2.class), any(Set.class));
+        assertEquals(ImmutableSet.of("i-1"), fleetCloud.getInstanceIdsToTerminate());
+        assertEquals(2, fleetCloud.getToAdd());
+        assertEquals(1, fleetCloud.getCapacityChangesHeld());
+        assertEquals(0, fleetCloud.getCapacityChangesApplied());
+    }
+
+    @Test
+    public void update_shouldApplyLatestTargetCapacityWhenFleetFinishModifying() {
+        // given
+        when(ec2Api.connect(any(String.class), any(String.class), anyString())).thenReturn(amazonEC2);
+
+        PowerMockito.when(FleetStateStats.readClusterState(any(AmazonEC2.class), anyString(), anyString()))
+                .thenReturn(new FleetStateStats("fleetId", 5, "active",
+                        Collections.<String>emptySet(), Collections.<String, Double>emptyMap()));
+
+        EC2FleetCloud fleetCloud = new EC2FleetCloud(null, null, "credId", null, "region",
+                "", "fleetId", "", null, null, false,
+                false, 0, 0, 10, 1,
+                false, false, false, 0,
+                0, false, 10, false, null, null, null, null, null, null, null, false);
+
+        fleetCloud.setStats(new FleetStateStats("fleetId", 5, "modifying",
+                Collections.<String>emptySet(), Collections.<String, Double>emptyMap()));
+        fleetCloud.provision(null, 2);
+        // hold as fleet is modifying
+        fleetCloud.update();
+        fleetCloud.provision(null, 1);
+
+        // when
+        fleetCloud.update();
+
         // then
         verify(amazonEC2).modifySpotFleetRequest(
                 new ModifySpotFleetRequestRequest()
                         .withExcessCapacityTerminationPolicy("NoTermination")
                         .withSpotFleetRequestId("fleetId")
-                        .withTargetCapacity(5));
-        assertEquals(0, fleetCloud.getInstanceIdsToTerminate().size());
+                        .withTargetCapacity(8));
         assertEquals(0, fleetCloud.getToAdd());
+        assertEquals(1, fleetCloud.getCapacityChangesHeld());
+        assertEquals(1, fleetCloud.getCapacityChangesApplied());
     }
 
     @Test
@@ -603,7 +1218,7 @@ public class EC2FleetCloudTest {
                 "", "fleetId", "", null, null, false,
                 false, 0, 0, 10, 1,
                 false, false, false, 0,
-                0, false, 10, false);
+                0, false, 10, false, null, null, null, null, null, null, null, false);
 
         fleetCloud.setStats(new FleetStateStats("", 4, "active",
                 Collections.<String>emptySet(), Collections.<String, Double>emptyMap()));
@@ -624,6 +1239,95 @@ public class EC2FleetCloudTest {
         verify(ec2Api).terminateInstances(amazonEC2, ImmutableSet.<String>of("i-1", "i-2"));
     }
 
+    @Test
+    public void applyPendingChanges_shouldTerminateAndDecreaseLocalTargetCapacity() {
+        // given
+        when(ec2Api.connect(any(String.class), any(String.class), anyString())).thenReturn(amazonEC2);
+
+        EC2FleetCloud fleetCloud = new EC2FleetCloud(null, null, "credId", null, "region",
+                "", "fleetId", "", null, null, false,
+                false, 0, 0, 10, 1,
+                false, false, false, 0,
+                0, false, 10, false, null, null, null, null, null, null, null, false);
+
+        fleetCloud.setStats(new FleetStateStats("fleetId", 4, "active",
+                ImmutableSet.of("i-1", "i-2", "i-3", "i-4"), Collections.<String, Double>emptyMap()));
+
+        fleetCloud.scheduleToTerminate("i-1");
+        fleetCloud.scheduleToTerminate("i-2");
+
+        // when
+        fleetCloud.applyPendingChanges();
+
+        // then
+        verify(amazonEC2).modifySpotFleetRequest(
+                new ModifySpotFleetRequestRequest()
+                        .withExcessCapacityTerminationPolicy("NoTermination")
+                        .withSpotFleetRequestId("fleetId")
+                        .withTargetCapacity(2));
+        verify(ec2Api).terminateInstances(amazonEC2, ImmutableSet.<String>of("i-1", "i-2"));
+        assertEquals(0, fleetCloud.getInstanceIdsToTerminate().size());
+        assertEquals(2, fleetCloud.getStats().getNumDesired());
+    }
+
+    @Test
+    public void applyPendingChanges_shouldDoNothingIfNoChanges() {
+        // given
+        when(ec2Api.connect(any(String.class), any(String.class), anyString())).thenReturn(amazonEC2);
+
+        EC2FleetCloud fleetCloud = new EC2FleetCloud(null, null, "credId", null, "region",
+                "", "fleetId", "", null, null, false,
+                false, 0, 0, 10, 1,
+                false, false, false, 0,
+                0, false, 10, false, null, null, null, null, null, null, null, false);
+
+        fleetCloud.setStats(new FleetStateStats("fleetId", 4, "active",
+                Collections.<String>emptySet(), Collections.<String, Double>emptyMap()));
+
+        // when
+        fleetCloud.applyPendingChanges();
+
+        // then
+        verifyZeroInteractions(amazonEC2);
+    }
+
+    @Test
+    public void update_shouldNotAddNodeForTerminatingInstance() throws IOException {
+        // given
+        when(ec2Api.connect(any(String.class), any(String.class), anyString())).thenReturn(amazonEC2);
+
+        final Instance instance = new Instance()
+                .withPublicIpAddress("p-ip")
+                .withInstanceId("i-0");
+
+        when(ec2Api.describeInstances(any(AmazonEC2.class), any(Set.class))).thenReturn(
+                ImmutableMap.of("i-0", instance));
+
+        PowerMockito.when(FleetStateStats.readClusterState(any(AmazonEC2.class), anyString(), anyString()))
+                .thenReturn(new FleetStateStats("fleetId", 0, "active",
+                        ImmutableSet.of("i-0"), Collections.<String, Double>emptyMap()));
+
+        mockNodeCreatingPart();
+
+        EC2FleetCloud fleetCloud = new EC2FleetCloud(null, null, "credId", null, "region",
+                "", "fleetId", "", null, PowerMockito.mock(ComputerConnector.class), false,
+                false, 0, 0, 1, 1,
+                false, false, false,
+                0, 0, false, 10, false, null, null, null, null, null, null, null, false);
+
+        fleetCloud.setStats(new FleetStateStats("fleetId", 1, "active",
+                ImmutableSet.of("i-0"), Collections.<String, Double>emptyMap()));
+        fleetCloud.scheduleToTerminate("i-0");
+        fleetCloud.applyPendingChanges();
+
+        // when
+        fleetCloud.update();
+
+        // then
+        verify(jenkins, times(0)).addNode(any(Node.class));
+        verify(ec2Api, times(2)).terminateInstances(amazonEC2, ImmutableSet.of("i-0"));
+    }
+
     @Test
     public void update_shouldAddNodeIfAnyNewDescribed() throws IOException {
         // given
@@ -646,7 +1350,7 @@ public class EC2FleetCloudTest {
                 "", "fleetId", "", null, PowerMockito.mock(ComputerConnector.class), false,
                 false, 0, 0, 1, 1,
                 false, false, false,
-                0, 0, false, 10, false);
+                0, 0, false, 10, false, null, null, null, null, null, null, null, false);
 
         ArgumentCaptor<Node> nodeCaptor = ArgumentCaptor.forClass(Node.class);
         doNothing().when(jenkins).addNode(nodeCaptor.capture());
@@ -686,7 +1390,7 @@ public class EC2FleetCloudTest {
                 "", "fleetId", "", null, PowerMockito.mock(ComputerConnector.class), false,
                 false, 0, 0, 1, 1, false,
                 true, false,
-                0, 0, false, 10, false);
+                0, 0, false, 10, false, null, null, null, null, null, null, null, false);
 
         ArgumentCaptor<Node> nodeCaptor = ArgumentCaptor.forClass(Node.class);
         doNothing().when(jenkins).addNode(nodeCaptor.capture());
@@ -729,7 +1433,7 @@ public class EC2FleetCloudTest {
                 "", "fleetId", "", null, PowerMockito.mock(ComputerConnector.class), false,
                 false, 0, 0, 1, 1, false,
                 true, false,
-                0, 0, false, 10, false);
+                0, 0, false, 10, false, null, null, null, null, null, null, null, false);
 
         ArgumentCaptor<Node> nodeCaptor = ArgumentCaptor.forClass(Node.class);
         doNothing().when(jenkins).addNode(nodeCaptor.capture());
@@ -768,7 +1472,7 @@ public class EC2FleetCloudTest {
                 "", "fleetId", "", null, PowerMockito.mock(ComputerConnector.class), false,
                 false, 0, 0, 1, 1, false,
                 true, false,
-                0, 0, true, 10, false);
+                0, 0, true, 10, false, null, null, null, null, null, null, null, false);
 
         ArgumentCaptor<Node> nodeCaptor = ArgumentCaptor.forClass(Node.class);
         doNothing().when(jenkins).addNode(nodeCaptor.capture());
@@ -807,7 +1511,7 @@ public class EC2FleetCloudTest {
                 "", "fleetId", "", null, PowerMockito.mock(ComputerConnector.class), false,
                 false, 0, 0, 1, 1, false,
                 true, false,
-                0, 0, true, 10, false);
+                0, 0, true, 10, false, null, null, null, null, null, null, null, false);
 
         ArgumentCaptor<Node> nodeCaptor = ArgumentCaptor.forClass(Node.class);
         doNothing().when(jenkins).addNode(nodeCaptor.capture());
@@ -846,7 +1550,7 @@ public class EC2FleetCloudTest {
                 "", "fleetId", "", null, PowerMockito.mock(ComputerConnector.class), false,
                 false, 0, 0, 1, 1, false,
                 true, false,
-                0, 0, true, 10, false);
+                0, 0, true, 10, false, null, null, null, null, null, null, null, false);
 
         ArgumentCaptor<Node> nodeCaptor = ArgumentCaptor.forClass(Node.class);
         doNothing().when(jenkins).addNode(nodeCaptor.capture());
@@ -859,6 +1563,43 @@ public class EC2FleetCloudTest {
         assertEquals(1, actualFleetNode.getNumExecutors());
     }
 
+    @Test
+    public void update_shouldCountLaunchOnceWhenNodeIsAddedAfterIpAssigned() throws IOException {
+        when(ec2Api.connect(any(String.class), any(String.class), anyString())).thenReturn(amazonEC2);
+
+        final String instanceType = "t";
+        final String instanceId = "i-0";
+        final Instance instance = new Instance()
+                .withInstanceType(instanceType)
+                .withInstanceId(instanceId);
+
+        when(ec2Api.describeInstances(any(AmazonEC2.class), any(Set.class))).thenReturn(
+                ImmutableMap.of(instanceId, instance));
+
+        PowerMockito.when(FleetStateStats.readClusterState(any(AmazonEC2.class), anyString(), anyString()))
+                .thenReturn(new FleetStateStats("fleetId", 1, "active",
+                        ImmutableSet.of(instanceId), Collections.<String, Double>emptyMap()));
+
+        mockNodeCreatingPart();
+
+        EC2FleetCloud fleetCloud = new EC2FleetCloud(null, null, "credId", null, "region",
+                "", "fleetId", "", null, PowerMockito.mock(ComputerConnector.class), false,
+                false, 0, 0, 1, 1, false,
+                true, false,
+                0, 0, false, 10, false, null, null, null, null, null, null, null, false);
+
+        // public ip is not assigned yet, node is not added
+        fleetCloud.update();
+        verify(jenkins, never()).addNode(any(Node.class));
+        assertEquals(Collections.emptyMap(), fleetCloud.getInterruptionStatistics().getByType());
+
+        instance.setPublicIpAddress("p-ip");
+        fleetCloud.update();
+
+        verify(jenkins, times(1)).addNode(any(Node.class));
+        assertEquals(1, fleetCloud.getInterruptionStatistics().getByType().get(instanceType).getLaunched());
+    }
+
     @Test
     public void update_shouldAddNodeWithRoundToLowScaledNumExecutors_whenWeightPresentAndEnabled1() throws IOException {
         // given
@@ -885,7 +1626,7 @@ public class EC2FleetCloudTest {
                 "", "fleetId", "", null, PowerMockito.mock(ComputerConnector.class), false,
                 false, 0, 0, 1, 1, false,
                 true, false,
-                0, 0, true, 10, false);
+                0, 0, true, 10, false, null, null, null, null, null, null, null, false);
 
         ArgumentCaptor<Node> nodeCaptor = ArgumentCaptor.forClass(Node.class);
         doNothing().when(jenkins).addNode(nodeCaptor.capture());
@@ -924,7 +1665,7 @@ public class EC2FleetCloudTest {
                 "", "fleetId", "", null, PowerMockito.mock(ComputerConnector.class), false,
                 false, 0, 0, 1, 1, false,
                 true, false,
-                0, 0, true, 10, false);
+                0, 0, true, 10, false, null, null, null, null, null, null, null, false);
 
         ArgumentCaptor<Node> nodeCaptor = ArgumentCaptor.forClass(Node.class);
         doNothing().when(jenkins).addNode(nodeCaptor.capture());
@@ -1172,7 +1913,7 @@ public class EC2FleetCloudTest {
                 null, null, null, false,
                 false, null, null, null,
                 null, false, false, false
-                , 0, 0, false, 10, false);
+                , 0, 0, false, 10, false, null, null, null, null, null, null, null, false);
         assertEquals(ec2FleetCloud.getDisplayName(), EC2FleetCloud.FLEET_CLOUD_ID);
     }
 
@@ -1184,7 +1925,7 @@ public class EC2FleetCloudTest {
                 false, null, null, null,
                 null, false, false, false
                 , 0, 0, false,
-                10, false);
+                10, false, null, null, null, null, null, null, null, false);
         assertEquals(ec2FleetCloud.getDisplayName(), "CloudName");
     }
 
@@ -1196,7 +1937,7 @@ public class EC2FleetCloudTest {
                 false, null, null, null,
                 null, false, false, false
                 , 0, 0, false,
-                10, false);
+                10, false, null, null, null, null, null, null, null, false);
         Assert.assertNull(ec2FleetCloud.getAwsCredentialsId());
     }
 
@@ -1208,7 +1949,7 @@ public class EC2FleetCloudTest {
                 false, null, null, null,
                 null, false, false, false
                 , 0, 0, false,
-                10, false);
+                10, false, null, null, null, null, null, null, null, false);
         assertEquals("Opa", ec2FleetCloud.getAwsCredentialsId());
     }
 
@@ -1220,7 +1961,7 @@ public class EC2FleetCloudTest {
                 false, null, null, null,
                 null, false, false, false
                 , 0, 0, false,
-                10, false);
+                10, false, null, null, null, null, null, null, null, false);
         assertEquals("Opa", ec2FleetCloud.getAwsCredentialsId());
     }
 
@@ -1232,7 +1973,7 @@ public class EC2FleetCloudTest {
                 false, null, null, null,
                 null, false, false, false
                 , 0, 0, false,
-                10, false);
+                10, false, null, null, null, null, null, null, null, false);
         assertEquals("A", ec2FleetCloud.getAwsCredentialsId());
     }
 
@@ -1246,10 +1987,67 @@ public class EC2FleetCloudTest {
                 false, null, null, null,
                 null, false, false, false
                 , 0, 0, false,
-                45, false);
+                45, false, null, null, null, null, null, null, null, false);
         assertEquals(45, ec2FleetCloud.getCloudStatusIntervalSec());
     }
 
+    @Test
+    public void constructor_shouldTransferStateFromOldCloudOfSameFleet() {
+        final EC2FleetCloud oldCloud = new EC2FleetCloud(null, null, "credId", null, "region",
+                "", "fleetId", "", null, null, false,
+                false, 0, 0, 10, 1, false,
+                false, false, 0, 0, false,
+                10, false, null, null, null, null, null, null, null, false);
+        final FleetStateStats stats = new FleetStateStats("fleetId", 5, "active",
+                ImmutableSet.of("i-0", "i-1"), Collections.<String, Double>emptyMap());
+        oldCloud.setStats(stats);
+        oldCloud.getInstanceIdsToTerminate().add("i-1");
+        mockOldClouds(oldCloud);
+
+        final EC2FleetCloud fleetCloud = new EC2FleetCloud(null, oldCloud.getOldId(), "credId", null, "region",
+                "", "fleetId", "", null, null, false,
+                false, 0, 0, 10, 1, false,
+                false, false, 0, 0, false,
+                10, false, null, null, null, null, null, null, null, false);
+
+        assertEquals(stats, fleetCloud.getStats());
+        assertEquals(ImmutableSet.of("i-1"), fleetCloud.getInstanceIdsToTerminate());
+        assertEquals(Collections.emptySet(), oldCloud.getInstanceIdsToTerminate());
+    }
+
+    @Test
+    public void constructor_shouldNotTransferStateFromOldCloudOfOtherFleet() {
+        final EC2FleetCloud oldCloud = new EC2FleetCloud(null, null, "credId", null, "region",
+                "", "fleetId", "", null, null, false,
+                false, 0, 0, 10, 1, false,
+                false, false, 0, 0, false,
+                10, false, null, null, null, null, null, null, null, false);
+        oldCloud.setStats(new FleetStateStats("fleetId", 5, "active",
+                ImmutableSet.of("i-0", "i-1"), Collections.<String, Double>emptyMap()));
+        oldCloud.getInstanceIdsToTerminate().add("i-1");
+        mockOldClouds(oldCloud);
+
+        final EC2FleetCloud fleetCloud = new EC2FleetCloud(null, oldCloud.getOldId(), "credId", null, "region",
+                "", "otherFleetId", "", null, null, false,
+                false, 0, 0, 10, 1, false,
+                false, false, 0, 0, false,
+                10, false, null, null, null, null, null, null, null, false);
+
+        assertEquals(null, fleetCloud.getStats());
+        assertEquals(Collections.emptySet(), fleetCloud.getInstanceIdsToTerminate());
+        assertEquals(ImmutableSet.of("i-1"), oldCloud.getInstanceIdsToTerminate());
+    }
+
+    private void mockOldClouds(final EC2FleetCloud... clouds) {
+        final Jenkins.CloudList cloudList = new Jenkins.CloudList(jenkins);
+        cloudList.addAll(Arrays.asList(clouds));
+        Whitebox.setInternalState(jenkins, "clouds", cloudList);
+
+        PowerMockito.when(Jenkins.getActiveInstance()).thenReturn(jenkins);
+        when(jenkins.getComputers()).thenReturn(new Computer[0]);
+        when(jenkins.getNodes()).thenReturn(Collections.<Node>emptyList());
+    }
+
     private void mockNodeCreatingPart() {
         when(jenkins.getNodesObject()).thenReturn(mock(Nodes.class));
 
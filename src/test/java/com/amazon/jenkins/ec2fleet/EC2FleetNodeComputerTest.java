@@ -60,4 +60,14 @@ public class EC2FleetNodeComputerTest {
         Assert.assertEquals("a n", computer.getDisplayName());
     }
 
+    @Test
+    public void isAcceptingTasks_should_be_false_when_draining_even_if_accepting_restored() {
+        EC2FleetNodeComputer computer = new EC2FleetNodeComputer(slave, "a", cloud);
+        computer.drain(100);
+        computer.setAcceptingTasks(true);
+
+        Assert.assertTrue(computer.isDraining());
+        Assert.assertFalse(computer.isAcceptingTasks());
+    }
+
 }
@@ -135,4 +135,21 @@ public class EC2FleetOnlineCheckerTest {
         verify(computer, times(1)).isOnline();
     }
 
+    @Test
+    public void shouldFinishWithNodeWhenConnectedWithoutWaitForNextCheck() throws Exception {
+        PowerMockito.when(computer.isOnline()).thenReturn(false);
+        PowerMockito.when(computer.getNode()).thenReturn(node);
+
+        EC2FleetOnlineChecker.start(node, future, TimeUnit.MINUTES.toMillis(10), TimeUnit.MINUTES.toMillis(5));
+        new EC2FleetOnlineListener().onOnline(computer, null);
+
+        Assert.assertSame(node, future.get(5, TimeUnit.SECONDS));
+        Assert.assertFalse(EC2FleetOnlineChecker.resolve("i-1"));
+    }
+
+    @Test
+    public void resolveShouldDoNothingIfNodeIsNotWaited() {
+        Assert.assertFalse(EC2FleetOnlineChecker.resolve("unknown"));
+    }
+
 }
@@ -0,0 +1,42 @@
+package com.amazon.jenkins.ec2fleet;
+
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+public class FleetCapacityCoordinatorTest {
+
+    @Test
+    public void decide_applyWhenTargetChanged() {
+        FleetCapacityCoordinator coordinator = new FleetCapacityCoordinator();
+
+        assertEquals(FleetCapacityCoordinator.Action.APPLY, coordinator.decide(stats(5, "active"), 6));
+        assertEquals(1, coordinator.getApplied());
+    }
+
+    @Test
+    public void decide_skipWhenTargetIsSame() {
+        FleetCapacityCoordinator coordinator = new FleetCapacityCoordinator();
+
+        assertEquals(FleetCapacityCoordinator.Action.SKIP, coordinator.decide(stats(5, "active"), 5));
+        assertEquals(1, coordinator.getSkipped());
+        assertEquals(0, coordinator.getApplied());
+    }
+
+    @Test
+    public void decide_holdWhenFleetModifying() {
+        FleetCapacityCoordinator coordinator = new FleetCapacityCoordinator();
+
+        assertEquals(FleetCapacityCoordinator.Action.HOLD, coordinator.decide(stats(5, "modifying"), 6));
+        assertEquals(FleetCapacityCoordinator.Action.HOLD, coordinator.decide(stats(5, "modifying"), 5));
+        assertEquals(2, coordinator.getHeld());
+    }
+
+    private static FleetStateStats stats(final int numDesired, final String state) {
+        return new FleetStateStats("fleetId", numDesired, state,
+                Collections.<String>emptySet(), Collections.<String, Double>emptyMap());
+    }
+
+}
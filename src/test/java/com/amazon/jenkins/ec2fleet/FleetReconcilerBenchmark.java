@@ -0,0 +1,113 @@
+package com.amazon.jenkins.ec2fleet;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare allocation of {@link FleetReconciler} with set based reconcile which was used by
+ * {@link EC2FleetCloud#update()} before. Look at <code>gc.alloc.rate.norm</code> in result.
+ * <p>
+ * Run with main method or by JMH runner from IDE, it's not part of regular test run.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FleetReconcilerBenchmark {
+
+    @Param({"100", "1000", "5000"})
+    public int fleetSize;
+
+    private Set<String> fleetInstances;
+    private Set<String> describedInstances;
+    private List<String> jenkinsNodes;
+    private FleetReconciler reconciler;
+
+    @Setup
+    public void setup() {
+        fleetInstances = new HashSet<>();
+        describedInstances = new HashSet<>();
+        jenkinsNodes = new ArrayList<>();
+        for (int i = 0; i < fleetSize; i++) {
+            final String instanceId = "i-" + i;
+            fleetInstances.add(instanceId);
+            // few instances are not running
+            if (i % 50 != 0) describedInstances.add(instanceId);
+            // few instances are not nodes yet
+            if (i % 20 != 0) jenkinsNodes.add(instanceId);
+        }
+        reconciler = new FleetReconciler();
+    }
+
+    @Benchmark
+    public void reconciler(final Blackhole blackhole) {
+        reconciler.begin();
+        for (final String instanceId : fleetInstances) reconciler.markFleet(instanceId);
+        for (final String instanceId : describedInstances) reconciler.markDescribed(instanceId);
+        for (final String nodeName : jenkinsNodes) reconciler.markJenkins(nodeName);
+        reconciler.finish();
+
+        blackhole.consume(reconciler.getNewInstances());
+        blackhole.consume(reconciler.getNodesToRemove());
+        blackhole.consume(reconciler.getNodesToKeep());
+        blackhole.consume(reconciler.getSummary());
+    }
+
+    @Benchmark
+    public void sets(final Blackhole blackhole) {
+        final Set<String> fleet = new HashSet<>(fleetInstances);
+        final Map<String, String> described = new HashMap<>();
+        for (final String instanceId : describedInstances) described.put(instanceId, instanceId);
+
+        final Set<String> jenkinsInstances = new HashSet<>(jenkinsNodes);
+
+        final Set<String> jenkinsNodesWithInstance = new HashSet<>(jenkinsInstances);
+        jenkinsNodesWithInstance.removeAll(fleet);
+
+        final Set<String> terminatedFleetInstances = new HashSet<>(fleet);
+        terminatedFleetInstances.removeAll(described.keySet());
+
+        final Map<String, String> newFleetInstances = new HashMap<>(described);
+        for (final String instanceId : jenkinsInstances) newFleetInstances.remove(instanceId);
+
+        final List<String> jenkinsNodesToRemove = new ArrayList<>();
+        jenkinsNodesToRemove.addAll(terminatedFleetInstances);
+        jenkinsNodesToRemove.addAll(jenkinsNodesWithInstance);
+
+        blackhole.consume(newFleetInstances);
+        blackhole.consume(jenkinsNodesToRemove);
+        blackhole.consume("fleet instances: " + fleet + " jenkins nodes " + jenkinsInstances);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FleetReconcilerBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+}
@@ -0,0 +1,111 @@
+package com.amazon.jenkins.ec2fleet;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+@SuppressWarnings("ArraysAsListWithZeroOrOneArgument")
+public class FleetReconcilerTest {
+
+    private final FleetReconciler reconciler = new FleetReconciler();
+
+    @Test
+    public void finish_emptyIfNothingMarked() {
+        reconciler.begin();
+        reconciler.finish();
+
+        assertEquals(Collections.emptyList(), reconciler.getNewInstances());
+        assertEquals(Collections.emptyList(), reconciler.getNodesToRemove());
+        assertEquals(Collections.emptyList(), reconciler.getNodesToKeep());
+        assertEquals(Collections.emptyList(), reconciler.getTerminatingRunning());
+    }
+
+    @Test
+    public void finish_describedInstanceWithoutNodeIsNew() {
+        reconciler.begin();
+        reconciler.markFleet("i-1");
+        reconciler.markDescribed("i-1");
+        reconciler.finish();
+
+        assertEquals(Arrays.asList("i-1"), reconciler.getNewInstances());
+    }
+
+    @Test
+    public void finish_notDescribedFleetInstanceIsNotNew() {
+        reconciler.begin();
+        reconciler.markFleet("i-1");
+        reconciler.finish();
+
+        assertEquals(Collections.emptyList(), reconciler.getNewInstances());
+    }
+
+    @Test
+    public void finish_nodeWithRunningInstanceIsKept() {
+        reconciler.begin();
+        reconciler.markFleet("i-1");
+        reconciler.markDescribed("i-1");
+        reconciler.markJenkins("i-1");
+        reconciler.finish();
+
+        assertEquals(Arrays.asList("i-1"), reconciler.getNodesToKeep());
+        assertEquals(Collections.emptyList(), reconciler.getNewInstances());
+        assertEquals(Collections.emptyList(), reconciler.getNodesToRemove());
+    }
+
+    @Test
+    public void finish_nodeWithoutFleetInstanceOrTerminatedIsRemoved() {
+        reconciler.begin();
+        reconciler.markJenkins("i-1");
+        reconciler.markFleet("i-2");
+        reconciler.markJenkins("i-2");
+        reconciler.finish();
+
+        assertEquals(2, reconciler.getNodesToRemove().size());
+        assertEquals(Collections.emptyList(), reconciler.getNodesToKeep());
+    }
+
+    @Test
+    public void finish_terminatingInstanceIsNotNewButReportedIfRunning() {
+        reconciler.begin();
+        reconciler.markFleet("i-1");
+        reconciler.markDescribed("i-1");
+        reconciler.markTerminating("i-1");
+        reconciler.finish();
+
+        assertEquals(Collections.emptyList(), reconciler.getNewInstances());
+        assertEquals(Arrays.asList("i-1"), reconciler.getTerminatingRunning());
+    }
+
+    @Test
+    public void begin_resetPreviousResult() {
+        reconciler.begin();
+        reconciler.markFleet("i-1");
+        reconciler.markDescribed("i-1");
+        reconciler.finish();
+
+        reconciler.begin();
+        reconciler.markFleet("i-1");
+        reconciler.markDescribed("i-1");
+        reconciler.markJenkins("i-1");
+        reconciler.finish();
+
+        assertEquals(Collections.emptyList(), reconciler.getNewInstances());
+        assertEquals(Arrays.asList("i-1"), reconciler.getNodesToKeep());
+    }
+
+    @Test
+    public void getSummary_returnCounts() {
+        reconciler.begin();
+        reconciler.markFleet("i-1");
+        reconciler.markDescribed("i-1");
+        reconciler.markJenkins("i-2");
+        reconciler.finish();
+
+        assertEquals("fleet 1, described 1, jenkins 1, new 1, remove 1, keep 0, terminating running 0",
+                reconciler.getSummary());
+    }
+
+}
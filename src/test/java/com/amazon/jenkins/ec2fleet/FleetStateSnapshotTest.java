@@ -0,0 +1,112 @@
+package com.amazon.jenkins.ec2fleet;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import jenkins.model.Jenkins;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.when;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({Jenkins.class})
+public class FleetStateSnapshotTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Mock
+    private Jenkins jenkins;
+
+    @Before
+    public void before() {
+        PowerMockito.mockStatic(Jenkins.class);
+        PowerMockito.when(Jenkins.getInstance()).thenReturn(jenkins);
+        when(jenkins.getRootDir()).thenReturn(temporaryFolder.getRoot());
+    }
+
+    @Test
+    public void load_shouldReturnSavedState() {
+        new FleetStateSnapshot(1000, "cloud", new FleetStateStats("f1", 5, "active",
+                ImmutableSet.of("i-0", "i-1"), ImmutableMap.of("t2.small", 2.0)),
+                ImmutableSet.of("i-1")).save();
+
+        final FleetStateSnapshot snapshot = FleetStateSnapshot.load("cloud", "f1", 2000);
+
+        assertEquals(1000, snapshot.getTimestamp());
+        assertEquals(ImmutableSet.of("i-1"), snapshot.getInstanceIdsToTerminate());
+        final FleetStateStats stats = snapshot.getStats();
+        assertEquals("f1", stats.getFleetId());
+        assertEquals(5, stats.getNumDesired());
+        assertEquals("active", stats.getState());
+        assertEquals(ImmutableSet.of("i-0", "i-1"), stats.getInstances());
+        assertEquals(ImmutableMap.of("t2.small", 2.0), stats.getInstanceTypeWeights());
+    }
+
+    @Test
+    public void load_shouldReturnNullIfNothingSaved() {
+        assertNull(FleetStateSnapshot.load("cloud", "f1", 0));
+    }
+
+    @Test
+    public void load_shouldReturnNullIfNoFleet() {
+        assertNull(FleetStateSnapshot.load("cloud", null, 0));
+    }
+
+    @Test
+    public void load_shouldReturnNullForTooOldSnapshot() {
+        new FleetStateSnapshot(0, "cloud", new FleetStateStats("f1", 5, "active",
+                Collections.<String>emptySet(), Collections.<String, Double>emptyMap()),
+                Collections.<String>emptySet()).save();
+
+        assertNull(FleetStateSnapshot.load("cloud", "f1", TimeUnit.HOURS.toMillis(2)));
+    }
+
+    @Test
+    public void load_shouldReturnNullForCorruptedFile() throws Exception {
+        final File dir = temporaryFolder.newFolder("ec2-fleet");
+        Files.write(new File(dir, "cloud_f1.xml").toPath(), "not xml".getBytes("UTF-8"));
+
+        assertNull(FleetStateSnapshot.load("cloud", "f1", 0));
+    }
+
+    @Test
+    public void save_shouldSkipIfNoJenkinsRootDir() {
+        when(jenkins.getRootDir()).thenReturn(null);
+
+        new FleetStateSnapshot(0, "cloud", new FleetStateStats("f1", 5, "active",
+                Collections.<String>emptySet(), Collections.<String, Double>emptyMap()),
+                Collections.<String>emptySet()).save();
+
+        assertNull(FleetStateSnapshot.load("cloud", "f1", 0));
+    }
+
+    @Test
+    public void load_shouldNotReturnStateOfOtherCloudWithSameFleet() {
+        new FleetStateSnapshot(1000, "linux cloud", new FleetStateStats("f1", 5, "active",
+                ImmutableSet.of("i-0", "i-1"), Collections.<String, Double>emptyMap()),
+                ImmutableSet.of("i-0")).save();
+        new FleetStateSnapshot(1000, "docker/cloud", new FleetStateStats("f1", 5, "active",
+                ImmutableSet.of("i-0", "i-1"), Collections.<String, Double>emptyMap()),
+                ImmutableSet.of("i-1")).save();
+
+        assertEquals(ImmutableSet.of("i-0"), FleetStateSnapshot.load("linux cloud", "f1", 2000).getInstanceIdsToTerminate());
+        assertEquals(ImmutableSet.of("i-1"), FleetStateSnapshot.load("docker/cloud", "f1", 2000).getInstanceIdsToTerminate());
+        assertNull(FleetStateSnapshot.load("other", "f1", 2000));
+    }
+
+}
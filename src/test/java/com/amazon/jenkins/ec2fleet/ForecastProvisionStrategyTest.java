@@ -0,0 +1,114 @@
+package com.amazon.jenkins.ec2fleet;
+
+import hudson.model.Label;
+import hudson.model.LoadStatistics;
+import hudson.slaves.Cloud;
+import hudson.slaves.NodeProvisioner;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({NodeProvisioner.StrategyState.class})
+public class ForecastProvisionStrategyTest {
+
+    @Mock
+    private NodeProvisioner.StrategyState state;
+
+    @Mock
+    private LoadStatistics.LoadStatisticsSnapshot snapshot;
+
+    @Mock
+    private Label label;
+
+    private ForecastProvisionStrategy strategy;
+
+    private List<Cloud> clouds = new ArrayList<>();
+
+    @Before
+    public void before() {
+        strategy = spy(new ForecastProvisionStrategy());
+        when(strategy.getClouds()).thenReturn(clouds);
+        when(strategy.isEnabled()).thenReturn(true);
+        when(state.getSnapshot()).thenReturn(snapshot);
+        when(state.getLabel()).thenReturn(label);
+        when(label.getExpression()).thenReturn("label");
+    }
+
+    @Test
+    public void givenDisabled_shouldDoNothing() {
+        when(strategy.isEnabled()).thenReturn(false);
+        final EC2FleetCloud ec2FleetCloud = mock(EC2FleetCloud.class);
+        clouds.add(ec2FleetCloud);
+
+        Assert.assertEquals(
+                NodeProvisioner.StrategyDecision.CONSULT_REMAINING_STRATEGIES,
+                strategy.apply(state));
+
+        verify(ec2FleetCloud, never()).canProvision(any(Label.class));
+        Assert.assertEquals(0, strategy.getForecaster().getLabelCount());
+    }
+
+    @Test
+    public void givenPredictedDemandCoveredByAvailable_shouldDoNotScale() {
+        final EC2FleetCloud ec2FleetCloud = mockCloud();
+        when(snapshot.getQueueLength()).thenReturn(5);
+        when(snapshot.getAvailableExecutors()).thenReturn(5);
+
+        Assert.assertEquals(
+                NodeProvisioner.StrategyDecision.CONSULT_REMAINING_STRATEGIES,
+                strategy.apply(state));
+
+        verify(ec2FleetCloud, never()).provision(any(Label.class), anyInt());
+    }
+
+    @Test
+    public void givenPredictedDemand_shouldProvisionAndConsultRemaining() {
+        final EC2FleetCloud ec2FleetCloud = mockCloud();
+        when(snapshot.getQueueLength()).thenReturn(5);
+        when(snapshot.getAvailableExecutors()).thenReturn(2);
+
+        Assert.assertEquals(
+                NodeProvisioner.StrategyDecision.CONSULT_REMAINING_STRATEGIES,
+                strategy.apply(state));
+
+        verify(ec2FleetCloud, times(1)).provision(label, 3);
+        Assert.assertEquals(1, strategy.getForecaster().getLabelCount());
+    }
+
+    @Test
+    public void givenCloudWhichCannotProvision_shouldDoNotScale() {
+        final EC2FleetCloud ec2FleetCloud = mockCloud();
+        when(ec2FleetCloud.canProvision(any(Label.class))).thenReturn(false);
+        when(snapshot.getQueueLength()).thenReturn(5);
+
+        strategy.apply(state);
+
+        verify(ec2FleetCloud, never()).provision(any(Label.class), anyInt());
+    }
+
+    private EC2FleetCloud mockCloud() {
+        final EC2FleetCloud ec2FleetCloud = mock(EC2FleetCloud.class);
+        when(ec2FleetCloud.canProvision(any(Label.class))).thenReturn(true);
+        when(ec2FleetCloud.getProvisionLatency()).thenReturn(new LatencyHistogram());
+        clouds.add(ec2FleetCloud);
+        return ec2FleetCloud;
+    }
+
+}
@@ -1,6 +1,9 @@
 package com.amazon.jenkins.ec2fleet;
 
+import com.google.common.collect.ImmutableSet;
+import hudson.model.Computer;
 import hudson.slaves.SlaveComputer;
+import jenkins.model.Jenkins;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -8,11 +11,16 @@ import org.mockito.Mock;
 import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
+import org.powermock.reflect.Whitebox;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -20,7 +28,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(PowerMockRunner.class)
-@PrepareForTest(SlaveComputer.class)
+@PrepareForTest({SlaveComputer.class, Jenkins.class})
 public class IdleRetentionStrategyTest {
 
     @Mock
@@ -34,6 +42,8 @@ public class IdleRetentionStrategyTest {
 
     @Before
     public void before() {
+        // drop idle computers found by check in previous test
+        Whitebox.setInternalState(IdleRetentionStrategy.class, "candidatesTime", -1L);
         when(cloud.getIdleMinutes()).thenReturn(10);
         PowerMockito.when(slaveComputer.getIdleStartMilliseconds()).thenReturn(System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(11));
         when(slaveComputer.getNode()).thenReturn(slave);
@@ -139,4 +149,112 @@ public class IdleRetentionStrategyTest {
 
     // todo we do nothing if computer doesn't have node
 
+    @Test
+    public void if_idle_sweeper_enabled_should_not_terminate_and_not_lock_computer() {
+        System.setProperty(IdleSweeper.class.getName() + ".enabled", "true");
+        try {
+            new IdleRetentionStrategy().check(slaveComputer);
+        } finally {
+            System.clearProperty(IdleSweeper.class.getName() + ".enabled");
+        }
+
+        verify(cloud, never()).scheduleToTerminate(anyString());
+        verify(slaveComputer, never()).setAcceptingTasks(false);
+    }
+
+    @Test
+    public void if_idle_seconds_configured_should_terminate_node_idle_more_seconds() {
+        when(cloud.getIdleSeconds()).thenReturn(30);
+        when(slaveComputer.getIdleStartMilliseconds()).thenReturn(System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(31));
+
+        new IdleRetentionStrategy().check(slaveComputer);
+
+        verify(cloud, times(1)).scheduleToTerminate("n-a");
+    }
+
+    @Test
+    public void if_idle_seconds_configured_should_ignore_idle_minutes() {
+        when(cloud.getIdleSeconds()).thenReturn(3600);
+
+        new IdleRetentionStrategy().check(slaveComputer);
+
+        verify(cloud, never()).scheduleToTerminate(anyString());
+    }
+
+    @Test
+    public void if_scale_in_policy_configured_should_pass_all_idle_nodes_of_cloud_to_it() {
+        final EC2FleetNodeComputer otherComputer = mockOtherIdleComputer();
+        when(cloud.getScaleInPolicy()).thenReturn(ScaleInPolicy.OLDEST);
+        when(cloud.scheduleToTerminate(anyCollection())).thenReturn(ImmutableSet.of("n-b"));
+        mockComputers(otherComputer, slaveComputer);
+
+        new IdleRetentionStrategy().check(slaveComputer);
+
+        verify(cloud).scheduleToTerminate(Arrays.asList("n-b", "n-a"));
+        verify(cloud, never()).scheduleToTerminate(anyString());
+        verify(slaveComputer).setAcceptingTasks(true);
+        verify(otherComputer, never()).setAcceptingTasks(true);
+    }
+
+    @Test
+    public void if_scale_in_policy_configured_should_scan_computers_once_for_checks_of_all_nodes() {
+        final EC2FleetNodeComputer otherComputer = mockOtherIdleComputer();
+        when(cloud.getScaleInPolicy()).thenReturn(ScaleInPolicy.OLDEST);
+        when(cloud.scheduleToTerminate(anyCollection())).thenReturn(Collections.<String>emptySet());
+        final Jenkins jenkins = mockComputers(otherComputer, slaveComputer);
+
+        new IdleRetentionStrategy().check(slaveComputer);
+        new IdleRetentionStrategy().check(otherComputer);
+
+        verify(jenkins, times(1)).getComputers();
+        verify(cloud).scheduleToTerminate(Arrays.asList("n-b", "n-a"));
+        verify(cloud).scheduleToTerminate(Arrays.asList("n-a", "n-b"));
+    }
+
+    @Test
+    public void if_scale_in_policy_configured_should_not_pass_node_which_became_busy_after_scan() {
+        final EC2FleetNodeComputer otherComputer = mockOtherIdleComputer();
+        when(cloud.getScaleInPolicy()).thenReturn(ScaleInPolicy.OLDEST);
+        when(cloud.scheduleToTerminate(anyCollection())).thenReturn(Collections.<String>emptySet());
+        mockComputers(otherComputer, slaveComputer);
+
+        new IdleRetentionStrategy().check(slaveComputer);
+        PowerMockito.when(slaveComputer.isIdle()).thenReturn(false);
+        new IdleRetentionStrategy().check(otherComputer);
+
+        verify(cloud).scheduleToTerminate(Collections.singletonList("n-b"));
+    }
+
+    @Test
+    public void if_scale_in_policy_configured_should_not_terminate_node_idle_less_time() {
+        when(slaveComputer.getIdleStartMilliseconds()).thenReturn(System.currentTimeMillis());
+        when(cloud.getScaleInPolicy()).thenReturn(ScaleInPolicy.OLDEST);
+        final Jenkins jenkins = mockComputers(slaveComputer);
+
+        assertFalse(IdleRetentionStrategy.terminateByPolicy(cloud, slaveComputer, System.currentTimeMillis()));
+
+        verify(cloud, never()).scheduleToTerminate(anyCollection());
+        verify(jenkins, never()).getComputers();
+    }
+
+    private EC2FleetNodeComputer mockOtherIdleComputer() {
+        final EC2FleetNodeComputer otherComputer = PowerMockito.mock(EC2FleetNodeComputer.class);
+        final EC2FleetNode otherSlave = PowerMockito.mock(EC2FleetNode.class);
+        PowerMockito.when(otherComputer.getIdleStartMilliseconds()).thenReturn(System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(20));
+        PowerMockito.when(otherComputer.isIdle()).thenReturn(true);
+        when(otherComputer.getNode()).thenReturn(otherSlave);
+        when(otherComputer.getCloud()).thenReturn(cloud);
+        when(otherComputer.isAcceptingTasks()).thenReturn(true);
+        when(otherSlave.getNodeName()).thenReturn("n-b");
+        return otherComputer;
+    }
+
+    private static Jenkins mockComputers(final Computer... computers) {
+        final Jenkins jenkins = PowerMockito.mock(Jenkins.class);
+        PowerMockito.mockStatic(Jenkins.class);
+        PowerMockito.when(Jenkins.getInstance()).thenReturn(jenkins);
+        PowerMockito.when(jenkins.getComputers()).thenReturn(computers);
+        return jenkins;
+    }
+
 }
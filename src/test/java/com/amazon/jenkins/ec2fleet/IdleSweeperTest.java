@@ -0,0 +1,137 @@
+package com.amazon.jenkins.ec2fleet;
+
+import com.google.common.collect.ImmutableSet;
+import hudson.model.Computer;
+import hudson.slaves.SlaveComputer;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest(SlaveComputer.class)
+public class IdleSweeperTest {
+
+    private static final long NOW = TimeUnit.HOURS.toMillis(1);
+
+    @Mock
+    private EC2FleetCloud cloud;
+
+    @Mock
+    private EC2FleetNodeComputer computer1;
+
+    @Mock
+    private EC2FleetNodeComputer computer2;
+
+    @Mock
+    private EC2FleetNode node1;
+
+    @Mock
+    private EC2FleetNode node2;
+
+    private final IdleSweeper sweeper = new IdleSweeper();
+
+    @Before
+    public void before() {
+        when(cloud.getIdleMinutes()).thenReturn(10);
+        mockComputer(computer1, node1, "i-1", NOW - TimeUnit.MINUTES.toMillis(11));
+        mockComputer(computer2, node2, "i-2", NOW - TimeUnit.MINUTES.toMillis(11));
+    }
+
+    private void mockComputer(final EC2FleetNodeComputer computer, final EC2FleetNode node,
+                              final String instanceId, final long idleStart) {
+        PowerMockito.when(computer.getIdleStartMilliseconds()).thenReturn(idleStart);
+        PowerMockito.when(computer.isIdle()).thenReturn(true);
+        when(computer.getNode()).thenReturn(node);
+        when(computer.getCloud()).thenReturn(cloud);
+        when(computer.isAcceptingTasks()).thenReturn(true);
+        when(node.getNodeName()).thenReturn(instanceId);
+    }
+
+    @Test
+    public void sweep_shouldDoNothingIfNoComputers() {
+        assertEquals(0, sweeper.sweep(Collections.<Computer>emptyList(), NOW));
+    }
+
+    @Test
+    public void sweep_shouldIgnoreNotFleetComputers() {
+        final Computer computer = mock(Computer.class);
+
+        assertEquals(0, sweeper.sweep(Collections.singletonList(computer), NOW));
+        verify(cloud, never()).scheduleToTerminate(anyCollection());
+    }
+
+    @Test
+    public void sweep_shouldScheduleAllIdleComputersOfCloudInOneBatch() {
+        when(cloud.scheduleToTerminate(anyCollection())).thenReturn(ImmutableSet.of("i-1", "i-2"));
+
+        assertEquals(2, sweeper.sweep(Arrays.<Computer>asList(computer1, computer2), NOW));
+
+        verify(cloud).scheduleToTerminate(Arrays.asList("i-1", "i-2"));
+        verify(computer1).setAcceptingTasks(false);
+        verify(computer2).setAcceptingTasks(false);
+        verify(computer1, never()).setAcceptingTasks(true);
+        verify(computer2, never()).setAcceptingTasks(true);
+    }
+
+    @Test
+    public void sweep_shouldSkipNotIdleLongEnough() {
+        PowerMockito.when(computer2.getIdleStartMilliseconds()).thenReturn(NOW - TimeUnit.MINUTES.toMillis(5));
+        when(cloud.scheduleToTerminate(anyCollection())).thenReturn(ImmutableSet.of("i-1"));
+
+        assertEquals(1, sweeper.sweep(Arrays.<Computer>asList(computer1, computer2), NOW));
+
+        verify(cloud).scheduleToTerminate(Collections.singletonList("i-1"));
+        verify(computer2, never()).setAcceptingTasks(anyBoolean());
+    }
+
+    @Test
+    public void sweep_shouldSkipBusy() {
+        PowerMockito.when(computer1.isIdle()).thenReturn(false);
+        PowerMockito.when(computer2.isIdle()).thenReturn(false);
+
+        assertEquals(0, sweeper.sweep(Arrays.<Computer>asList(computer1, computer2), NOW));
+
+        verify(cloud, never()).scheduleToTerminate(anyCollection());
+    }
+
+    @Test
+    public void sweep_shouldRestoreAcceptingTasksOfNotScheduled() {
+        when(cloud.scheduleToTerminate(anyCollection())).thenReturn(ImmutableSet.of("i-2"));
+
+        assertEquals(1, sweeper.sweep(Arrays.<Computer>asList(computer1, computer2), NOW));
+
+        verify(computer1).setAcceptingTasks(true);
+        verify(computer2, never()).setAcceptingTasks(true);
+    }
+
+    @Test
+    public void sweep_shouldRestoreAcceptingTasksIfCloudFailed() {
+        when(cloud.scheduleToTerminate(anyCollection())).thenThrow(new IllegalStateException("test"));
+
+        try {
+            sweeper.sweep(Arrays.<Computer>asList(computer1, computer2), NOW);
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        verify(computer1).setAcceptingTasks(true);
+        verify(computer2).setAcceptingTasks(true);
+    }
+
+}
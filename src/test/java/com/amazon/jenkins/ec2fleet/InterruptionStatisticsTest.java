@@ -0,0 +1,79 @@
+package com.amazon.jenkins.ec2fleet;
+
+import com.google.common.collect.ImmutableMap;
+import net.sf.json.JSONObject;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class InterruptionStatisticsTest {
+
+    private final InterruptionStatistics statistics = new InterruptionStatistics();
+
+    @Test
+    public void shouldAggregateByTypeAndZone() {
+        statistics.recordLaunched("m5.large", "us-east-1a");
+        statistics.recordLaunched("m5.large", "us-east-1b");
+        statistics.recordInterrupted("m5.large", "us-east-1a");
+        statistics.recordAborted("m5.large", "us-east-1a", TimeUnit.MINUTES.toMillis(30));
+        statistics.recordAborted("m5.large", "us-east-1a", TimeUnit.MINUTES.toMillis(60));
+        statistics.recordResubmitResult("m5.large", "us-east-1a", true);
+        statistics.recordResubmitResult("m5.large", "us-east-1a", false);
+
+        final InterruptionStatistics.Entry type = statistics.getByType().get("m5.large");
+        assertEquals(2, type.getLaunched());
+        assertEquals(1, type.getInterrupted());
+        assertEquals(0.5, type.getInterruptionRate(), 0);
+        assertEquals(2, type.getAbortedRuns());
+        assertEquals(1.5, type.getWastedExecutorHours(), 0.0001);
+        assertEquals(1, type.getResubmitSucceeded());
+        assertEquals(1, type.getResubmitFailed());
+
+        assertEquals(Arrays.asList("us-east-1a", "us-east-1b"),
+                Arrays.asList(statistics.getByZone().keySet().toArray()));
+        assertEquals(1, statistics.getByZone().get("us-east-1a").getInterrupted());
+        assertEquals(0, statistics.getByZone().get("us-east-1b").getInterrupted());
+    }
+
+    @Test
+    public void shouldCountUnknownTypeSeparatelyAndNotReportItAsInterruptedType() {
+        statistics.recordInterrupted(null, null);
+        statistics.recordInterrupted("c5.large", null);
+
+        assertEquals(1, statistics.getByType().get(InterruptionStatistics.UNKNOWN).getInterrupted());
+        assertEquals(ImmutableMap.of("c5.large", 1), statistics.getInterruptedByType());
+    }
+
+    @Test
+    public void getInterruptionRate_shouldBeZeroIfNothingLaunched() {
+        statistics.recordInterrupted("c5.large", null);
+
+        assertEquals(0, statistics.getByType().get("c5.large").getInterruptionRate(), 0);
+    }
+
+    @Test
+    public void transferFrom_shouldCopyAllEntries() {
+        final InterruptionStatistics old = new InterruptionStatistics();
+        old.recordLaunched("c5.large", "us-east-1a");
+
+        statistics.transferFrom(old);
+        old.recordLaunched("c5.large", "us-east-1a");
+
+        assertEquals(1, statistics.getByType().get("c5.large").getLaunched());
+        assertEquals(1, statistics.getByZone().get("us-east-1a").getLaunched());
+    }
+
+    @Test
+    public void toJson_shouldContainTypesAndZones() {
+        statistics.recordLaunched("c5.large", "us-east-1a");
+
+        final JSONObject json = statistics.toJson();
+
+        assertEquals(1, json.getJSONObject("byInstanceType").getJSONObject("c5.large").getInt("launched"));
+        assertEquals(1, json.getJSONObject("byAvailabilityZone").getJSONObject("us-east-1a").getInt("launched"));
+    }
+
+}
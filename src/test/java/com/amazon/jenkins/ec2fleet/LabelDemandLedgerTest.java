@@ -0,0 +1,74 @@
+package com.amazon.jenkins.ec2fleet;
+
+import com.google.common.util.concurrent.SettableFuture;
+import hudson.model.Node;
+import hudson.slaves.NodeProvisioner;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+
+public class LabelDemandLedgerTest {
+
+    private final LabelDemandLedger ledger = new LabelDemandLedger();
+
+    @Test
+    public void claim_shouldReturnDemandIfNothingPlanned() {
+        assertEquals(5, ledger.claim("linux", 5, 0));
+        assertEquals(0, ledger.getCoveredExecutors());
+    }
+
+    @Test
+    public void claim_shouldReduceDemandBySpareOfOtherLabel() {
+        ledger.recordPlanned("linux", 1, plannedNode(4), 0);
+
+        assertEquals(0, ledger.claim("linux&&docker", 2, 0));
+        assertEquals(1, ledger.claim("docker", 2, 0));
+        assertEquals(3, ledger.getCoveredExecutors());
+    }
+
+    @Test
+    public void claim_shouldNotReturnOwnSpare() {
+        ledger.recordPlanned("linux", 1, plannedNode(4), 0);
+
+        assertEquals(2, ledger.claim("linux", 2, 0));
+    }
+
+    @Test
+    public void recordPlanned_shouldIgnoreIfNoSpare() {
+        ledger.recordPlanned("linux", 4, plannedNode(4), 0);
+
+        assertEquals(2, ledger.claim("docker", 2, 0));
+        assertEquals(0, ledger.getSpareExecutors());
+    }
+
+    @Test
+    public void claim_shouldCoverDemandAgainInNextRoundWhilePlannedNodeIsPending() {
+        ledger.recordPlanned("linux", 1, plannedNode(4), 0);
+        assertEquals(0, ledger.claim("docker", 2, 0));
+
+        // node provisioner of docker doesn't know about spare and requests the same demand again
+        assertEquals(0, ledger.claim("docker", 2, LabelDemandLedger.ROUND_MSEC + 1));
+        assertEquals(3, ledger.getSpareExecutors());
+    }
+
+    @Test
+    public void claim_shouldForgetSpareWhenPlannedNodeIsDone() {
+        final List<NodeProvisioner.PlannedNode> plannedNodes = plannedNode(4);
+        ledger.recordPlanned("linux", 1, plannedNodes, 0);
+
+        ((SettableFuture<Node>) plannedNodes.get(0).future).set(mock(Node.class));
+
+        assertEquals(2, ledger.claim("docker", 2, 0));
+        assertEquals(0, ledger.getSpareExecutors());
+    }
+
+    private static List<NodeProvisioner.PlannedNode> plannedNode(final int executors) {
+        return Collections.singletonList(new NodeProvisioner.PlannedNode(
+                "node", SettableFuture.<Node>create(), executors));
+    }
+
+}
@@ -0,0 +1,103 @@
+package com.amazon.jenkins.ec2fleet;
+
+import com.amazonaws.services.ec2.model.InstanceStateName;
+import hudson.Functions;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.queue.QueueTaskFuture;
+import hudson.slaves.ComputerConnector;
+import hudson.tasks.BatchFile;
+import hudson.tasks.Shell;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Over provision when several label expressions are served by one fleet, see {@link LabelDemandLedger}.
+ * <p>
+ * Each node has 4 executors, tasks are scheduled one per label in turn, so without ledger
+ * each label plans own node for each task. Output shows max target capacity against ideal one
+ * and executors which were not provisioned as they were covered by other label.
+ */
+@Ignore
+public class LabelDemandPerformanceTest extends IntegrationTest {
+
+    private static final String[] LABELS = {"linux", "linux&&docker", "docker"};
+
+    @BeforeClass
+    public static void beforeClass() {
+        System.setProperty("jenkins.test.timeout", "720");
+    }
+
+    @Test
+    public void labelsLoadTasks12() throws Exception {
+        test(12);
+    }
+
+    @Test
+    public void labelsLoadTasks48() throws Exception {
+        test(48);
+    }
+
+    private void test(final int maxTasks) throws IOException, InterruptedException {
+        final int executorsPerNode = 4;
+
+        mockEc2ApiToDescribeInstancesWhenModifiedWithDelay(InstanceStateName.Running, 500);
+
+        final ComputerConnector computerConnector = new LocalComputerConnector(j);
+        final EC2FleetCloud cloud = new EC2FleetCloud(null, null, "credId", null, "region",
+                null, "fId", "linux docker", null, computerConnector, false, false,
+                1, 0, 100, executorsPerNode, true, false,
+                false, 0, 0, false,
+                2, true, null, null, null, null, null, null, null, false);
+        j.jenkins.clouds.add(cloud);
+
+        tryUntil(new Runnable() {
+            @Override
+            public void run() {
+                Assert.assertNotNull(cloud.getStats());
+            }
+        });
+
+        System.out.println("start test");
+        final List<QueueTaskFuture<FreeStyleBuild>> tasks = new ArrayList<>();
+        int maxTargetCapacity = 0;
+        for (int i = 0; i < maxTasks; i++) {
+            tasks.add(schedule(LABELS[i % LABELS.length]));
+            j.jenkins.getLabel(LABELS[i % LABELS.length]).nodeProvisioner.suggestReviewNow();
+            Thread.sleep(500);
+            maxTargetCapacity = Math.max(maxTargetCapacity, cloud.getStats().getNumDesired() + cloud.getToAdd());
+        }
+
+        for (final QueueTaskFuture<FreeStyleBuild> task : tasks) {
+            try {
+                task.get();
+            } catch (InterruptedException | ExecutionException e) {
+                throw new RuntimeException(e);
+            }
+            maxTargetCapacity = Math.max(maxTargetCapacity, cloud.getStats().getNumDesired());
+        }
+
+        final int ideal = (maxTasks + executorsPerNode - 1) / executorsPerNode;
+        System.out.println(maxTasks + " tasks, max target capacity " + maxTargetCapacity + ", ideal " + ideal
+                + ", overshoot " + (maxTargetCapacity - ideal) + " nodes");
+        System.out.println("covered by other labels " + cloud.getLabelDemandLedger().getCoveredExecutors()
+                + " executors in all rounds");
+    }
+
+    private QueueTaskFuture<FreeStyleBuild> schedule(final String labelExpression) throws IOException {
+        final FreeStyleProject project = j.createFreeStyleProject();
+        project.setAssignedLabel(j.jenkins.getLabel(labelExpression));
+        project.getBuildersList().add(Functions.isWindows()
+                ? new BatchFile("Ping -n " + JOB_SLEEP_TIME + " 127.0.0.1 > nul")
+                : new Shell("sleep " + JOB_SLEEP_TIME));
+        return project.scheduleBuild2(0);
+    }
+
+}
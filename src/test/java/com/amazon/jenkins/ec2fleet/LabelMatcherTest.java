@@ -0,0 +1,54 @@
+package com.amazon.jenkins.ec2fleet;
+
+import com.google.common.collect.ImmutableSet;
+import hudson.model.Label;
+import hudson.model.labels.LabelAtom;
+import hudson.model.labels.LabelExpression;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class LabelMatcherTest {
+
+    private final LabelAtom linux = new LabelAtom("linux");
+    private final LabelAtom java = new LabelAtom("java");
+    private final LabelAtom windows = new LabelAtom("windows");
+
+    private final LabelMatcher matcher = new LabelMatcher(ImmutableSet.of(linux, java));
+
+    @Test
+    public void matches_shouldMatchAnyForNull() {
+        assertTrue(matcher.matches(null));
+    }
+
+    @Test
+    public void matches_shouldMatchAtom() {
+        assertTrue(matcher.matches(linux));
+        assertFalse(matcher.matches(windows));
+    }
+
+    @Test
+    public void matches_shouldMatchExpressionIfAllAtomsPresent() {
+        assertTrue(matcher.matches(new LabelExpression.And(linux, java)));
+        assertFalse(matcher.matches(new LabelExpression.And(linux, windows)));
+    }
+
+    @Test
+    public void matches_shouldListAtomsOnlyOnceForSameLabel() {
+        final Label label = mock(Label.class);
+        when(label.listAtoms()).thenReturn(Collections.singleton(linux));
+
+        assertTrue(matcher.matches(label));
+        assertTrue(matcher.matches(label));
+
+        verify(label, times(1)).listAtoms();
+    }
+
+}
@@ -0,0 +1,47 @@
+package com.amazon.jenkins.ec2fleet;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class LatencyHistogramTest {
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    @Test
+    public void returnZeroIfEmpty() {
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMean());
+        assertEquals(0, histogram.getPercentile(50));
+    }
+
+    @Test
+    public void record_countMeanAndMax() {
+        histogram.record(1000);
+        histogram.record(3000);
+
+        assertEquals(2, histogram.getCount());
+        assertEquals(2000, histogram.getMean());
+        assertEquals(3000, histogram.getMax());
+    }
+
+    @Test
+    public void getPercentile_returnBucketUpperBoundLimitedByMax() {
+        for (int i = 0; i < 9; i++) histogram.record(20000);
+        histogram.record(100000);
+
+        assertEquals(30000, histogram.getPercentile(50));
+        assertEquals(30000, histogram.getPercentile(90));
+        assertEquals(100000, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void record_valueOverLastBoundGoToLastBucket() {
+        histogram.record(3600 * 1000);
+
+        long[] counts = histogram.getCounts();
+        assertEquals(1, counts[counts.length - 1]);
+        assertEquals(3600 * 1000, histogram.getPercentile(50));
+    }
+
+}
@@ -58,7 +58,7 @@ public class NoDelayProvisionStrategyPerformanceTest extends IntegrationTest {
                 null, "fId", label, null, computerConnector, false, false,
                 1, 0, maxWorkers, 1, true, false,
                 false, 0, 0, false,
-                15, noDelay);
+                15, noDelay, null, null, null, null, null, null, null, false);
         j.jenkins.clouds.add(cloud);
 
         System.out.println("waiting cloud start");
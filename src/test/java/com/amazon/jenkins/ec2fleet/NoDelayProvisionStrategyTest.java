@@ -144,6 +144,46 @@ public class NoDelayProvisionStrategyTest {
         verify(ec2FleetCloud2, never()).provision(any(Label.class), anyInt());
     }
 
+    @Test
+    public void givenDurationAware_shouldProvisionOnlyForTasksWhichCannotStartWithinHorizon() {
+        when(snapshot.getQueueLength()).thenReturn(3);
+        when(state.getLabel()).thenReturn(label);
+        when(strategy.isDurationAware()).thenReturn(true);
+        // short task and two long, executor is free in one second
+        when(strategy.getQueuedDurations(label)).thenReturn(new long[]{10000, 3600000, 3600000});
+        when(strategy.getBusyRemaining(label)).thenReturn(new long[]{1000, -1});
+
+        final EC2FleetCloud ec2FleetCloud = mock(EC2FleetCloud.class);
+        clouds.add(ec2FleetCloud);
+        when(ec2FleetCloud.canProvision(any(Label.class))).thenReturn(true);
+        when(ec2FleetCloud.isNoDelayProvision()).thenReturn(true);
+
+        strategy.apply(state);
+
+        verify(ec2FleetCloud, times(1)).provision(label, 1);
+    }
+
+    @Test
+    public void givenDurationAwareAndTasksFinishWithinHorizon_shouldDoNotScale() {
+        when(snapshot.getQueueLength()).thenReturn(10);
+        when(state.getLabel()).thenReturn(label);
+        when(strategy.isDurationAware()).thenReturn(true);
+        final long[] durations = new long[10];
+        Arrays.fill(durations, 5000);
+        when(strategy.getQueuedDurations(label)).thenReturn(durations);
+        when(strategy.getBusyRemaining(label)).thenReturn(new long[]{1000});
+
+        final EC2FleetCloud ec2FleetCloud = mock(EC2FleetCloud.class);
+        clouds.add(ec2FleetCloud);
+        when(ec2FleetCloud.canProvision(any(Label.class))).thenReturn(true);
+        when(ec2FleetCloud.isNoDelayProvision()).thenReturn(true);
+
+        Assert.assertEquals(
+                NodeProvisioner.StrategyDecision.PROVISIONING_COMPLETED,
+                strategy.apply(state));
+        verify(ec2FleetCloud, never()).provision(any(Label.class), anyInt());
+    }
+
     @Test
     public void givenEC2CloudsWhenOneCanCoverCapacity_shouldDoScalingForFirstOnly() {
         when(snapshot.getQueueLength()).thenReturn(2);
@@ -194,4 +234,50 @@ public class NoDelayProvisionStrategyTest {
         verify(ec2FleetCloud2, times(1)).provision(label, 3);
     }
 
+    @Test
+    public void givenBlockedEC2Cloud_shouldScaleNextOne() {
+        when(snapshot.getQueueLength()).thenReturn(5);
+        when(state.getLabel()).thenReturn(label);
+
+        final EC2FleetCloud ec2FleetCloud1 = mock(EC2FleetCloud.class);
+        clouds.add(ec2FleetCloud1);
+        final EC2FleetCloud ec2FleetCloud2 = mock(EC2FleetCloud.class);
+        clouds.add(ec2FleetCloud2);
+        when(ec2FleetCloud1.canProvision(any(Label.class))).thenReturn(true);
+        when(ec2FleetCloud2.canProvision(any(Label.class))).thenReturn(true);
+        when(ec2FleetCloud1.isNoDelayProvision()).thenReturn(true);
+        when(ec2FleetCloud2.isNoDelayProvision()).thenReturn(true);
+        when(ec2FleetCloud1.isProvisionBlocked()).thenReturn(true);
+
+        strategy.apply(state);
+
+        verify(ec2FleetCloud1, never()).provision(any(Label.class), anyInt());
+        verify(ec2FleetCloud2, times(1)).provision(label, 5);
+    }
+
+    @Test
+    public void givenRoundRobinDistribution_shouldSplitDemandAndCarryUnprovided() {
+        when(strategy.getDistributionPolicy()).thenReturn(ProvisionDistributionPolicy.ROUND_ROBIN);
+        when(snapshot.getQueueLength()).thenReturn(4);
+        when(state.getLabel()).thenReturn(label);
+
+        final EC2FleetCloud ec2FleetCloud1 = mock(EC2FleetCloud.class);
+        clouds.add(ec2FleetCloud1);
+        final EC2FleetCloud ec2FleetCloud2 = mock(EC2FleetCloud.class);
+        clouds.add(ec2FleetCloud2);
+        when(ec2FleetCloud1.canProvision(any(Label.class))).thenReturn(true);
+        when(ec2FleetCloud2.canProvision(any(Label.class))).thenReturn(true);
+        when(ec2FleetCloud1.isNoDelayProvision()).thenReturn(true);
+        when(ec2FleetCloud2.isNoDelayProvision()).thenReturn(true);
+        when(ec2FleetCloud1.provision(any(Label.class), anyInt())).thenReturn(Arrays.asList(
+                mock(NodeProvisioner.PlannedNode.class)
+        ));
+
+        strategy.apply(state);
+
+        verify(ec2FleetCloud1, times(1)).provision(label, 2);
+        // one not provided by first cloud is carried to second
+        verify(ec2FleetCloud2, times(1)).provision(label, 3);
+    }
+
 }
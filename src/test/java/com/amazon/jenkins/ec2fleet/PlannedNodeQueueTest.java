@@ -0,0 +1,68 @@
+package com.amazon.jenkins.ec2fleet;
+
+import hudson.slaves.NodeProvisioner;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PlannedNodeQueueTest {
+
+    private final PlannedNodeQueue queue = new PlannedNodeQueue();
+
+    @Test
+    public void add_createUniqueNames() {
+        NodeProvisioner.PlannedNode n1 = queue.add("FleetNode", 1, 0);
+        NodeProvisioner.PlannedNode n2 = queue.add("FleetNode", 1, 0);
+
+        assertNotEquals(n1.displayName, n2.displayName);
+        assertEquals(2, queue.size());
+    }
+
+    @Test
+    public void poll_returnOldestFirst() {
+        NodeProvisioner.PlannedNode n1 = queue.add("FleetNode", 1, 0);
+        NodeProvisioner.PlannedNode n2 = queue.add("FleetNode", 1, 10);
+
+        assertSame(n1, queue.poll().getPlannedNode());
+        assertSame(n2, queue.poll().getPlannedNode());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void poll_skipCancelled() {
+        NodeProvisioner.PlannedNode n1 = queue.add("FleetNode", 1, 0);
+        NodeProvisioner.PlannedNode n2 = queue.add("FleetNode", 1, 10);
+        n1.future.cancel(false);
+
+        assertSame(n2, queue.poll().getPlannedNode());
+    }
+
+    @Test
+    public void expire_failOnlyOldEntries() throws InterruptedException {
+        NodeProvisioner.PlannedNode n1 = queue.add("FleetNode", 1, 0);
+        NodeProvisioner.PlannedNode n2 = queue.add("FleetNode", 1, 100);
+
+        List<PlannedNodeQueue.Entry> expired = queue.expire(150, 100);
+
+        assertEquals(1, expired.size());
+        assertSame(n1, expired.get(0).getPlannedNode());
+        assertTrue(n1.future.isDone());
+        try {
+            n1.future.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertEquals(IllegalStateException.class, e.getCause().getClass());
+        }
+        assertEquals(1, queue.size());
+        assertSame(n2, queue.poll().getPlannedNode());
+    }
+
+}
@@ -0,0 +1,122 @@
+package com.amazon.jenkins.ec2fleet;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ProvisionDistributorTest {
+
+    private final ProvisionDistributor distributor = new ProvisionDistributor();
+
+    private final EC2FleetCloud cloud1 = mock(EC2FleetCloud.class);
+    private final EC2FleetCloud cloud2 = mock(EC2FleetCloud.class);
+    private final EC2FleetCloud cloud3 = mock(EC2FleetCloud.class);
+
+    @Test
+    public void distribute_shouldReturnNothingForNoClouds() {
+        assertArrayEquals(new int[0], distributor.distribute(
+                ProvisionDistributionPolicy.ROUND_ROBIN, new ArrayList<EC2FleetCloud>(), 10));
+    }
+
+    @Test
+    public void first_shouldKeepOrderAndGiveAllDemandToEach() {
+        final List<EC2FleetCloud> clouds = clouds();
+
+        assertArrayEquals(new int[]{10, 10, 10}, distributor.distribute(ProvisionDistributionPolicy.FIRST, clouds, 10));
+        assertEquals(Arrays.asList(cloud1, cloud2, cloud3), clouds);
+    }
+
+    @Test
+    public void roundRobin_shouldSplitEquallyAndRotateFirstCloud() {
+        List<EC2FleetCloud> clouds = clouds();
+        assertArrayEquals(new int[]{4, 3, 3}, distributor.distribute(ProvisionDistributionPolicy.ROUND_ROBIN, clouds, 10));
+        assertEquals(Arrays.asList(cloud1, cloud2, cloud3), clouds);
+
+        clouds = clouds();
+        distributor.distribute(ProvisionDistributionPolicy.ROUND_ROBIN, clouds, 10);
+        assertEquals(Arrays.asList(cloud2, cloud3, cloud1), clouds);
+    }
+
+    @Test
+    public void headroom_shouldSplitProportionally() {
+        when(cloud1.getHeadroom()).thenReturn(10);
+        when(cloud2.getHeadroom()).thenReturn(30);
+        when(cloud3.getHeadroom()).thenReturn(0);
+        final List<EC2FleetCloud> clouds = clouds();
+
+        assertArrayEquals(new int[]{6, 2, 0}, distributor.distribute(ProvisionDistributionPolicy.HEADROOM, clouds, 8));
+        assertEquals(Arrays.asList(cloud2, cloud1, cloud3), clouds);
+    }
+
+    @Test
+    public void headroom_shouldSplitEquallyIfNoHeadroomKnown() {
+        assertArrayEquals(new int[]{1, 1, 1}, distributor.distribute(ProvisionDistributionPolicy.HEADROOM, clouds(), 3));
+    }
+
+    @Test
+    public void latency_shouldOrderByMeanLatency() {
+        final LatencyHistogram slow = new LatencyHistogram();
+        slow.record(300000);
+        final LatencyHistogram fast = new LatencyHistogram();
+        fast.record(60000);
+        when(cloud1.getProvisionLatency()).thenReturn(slow);
+        when(cloud2.getProvisionLatency()).thenReturn(fast);
+        when(cloud3.getProvisionLatency()).thenReturn(slow);
+        final List<EC2FleetCloud> clouds = clouds();
+
+        assertArrayEquals(new int[]{5, 5, 5}, distributor.distribute(ProvisionDistributionPolicy.LATENCY, clouds, 5));
+        assertEquals(Arrays.asList(cloud2, cloud1, cloud3), clouds);
+    }
+
+    @Test
+    public void latency_shouldPutCloudsWithoutLatencyLast() {
+        final LatencyHistogram slow = new LatencyHistogram();
+        slow.record(300000);
+        final LatencyHistogram fast = new LatencyHistogram();
+        fast.record(60000);
+        when(cloud1.getProvisionLatency()).thenReturn(new LatencyHistogram());
+        when(cloud2.getProvisionLatency()).thenReturn(slow);
+        when(cloud3.getProvisionLatency()).thenReturn(fast);
+        final List<EC2FleetCloud> clouds = clouds();
+
+        distributor.distribute(ProvisionDistributionPolicy.LATENCY, clouds, 5);
+        assertEquals(Arrays.asList(cloud3, cloud2, cloud1), clouds);
+    }
+
+    @Test
+    public void headroom_shouldReadHeadroomOncePerCloud() {
+        when(cloud1.getHeadroom()).thenReturn(10, 0);
+        when(cloud2.getHeadroom()).thenReturn(30, 0);
+        when(cloud3.getHeadroom()).thenReturn(0, 100);
+        final List<EC2FleetCloud> clouds = clouds();
+
+        assertArrayEquals(new int[]{6, 2, 0}, distributor.distribute(ProvisionDistributionPolicy.HEADROOM, clouds, 8));
+        assertEquals(Arrays.asList(cloud2, cloud1, cloud3), clouds);
+        verify(cloud1, times(1)).getHeadroom();
+    }
+
+    @Test
+    public void interruption_shouldOrderByInterruptionRate() {
+        when(cloud1.getInterruptionRate()).thenReturn(0.5);
+        when(cloud2.getInterruptionRate()).thenReturn(0.1);
+        when(cloud3.getInterruptionRate()).thenReturn(0.0);
+        final List<EC2FleetCloud> clouds = clouds();
+
+        distributor.distribute(ProvisionDistributionPolicy.INTERRUPTION, clouds, 5);
+        assertEquals(Arrays.asList(cloud3, cloud2, cloud1), clouds);
+    }
+
+    private List<EC2FleetCloud> clouds() {
+        return new ArrayList<>(Arrays.asList(cloud1, cloud2, cloud3));
+    }
+
+}
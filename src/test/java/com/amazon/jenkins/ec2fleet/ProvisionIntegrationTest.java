@@ -65,7 +65,7 @@ public class ProvisionIntegrationTest extends IntegrationTest {
                 null, "fId", "momo", null, computerConnector, false, false,
                 0, 0, 0, 1, false, false,
                 false, 0, 0, false,
-                2, false);
+                2, false, null, null, null, null, null, null, null, false);
         j.jenkins.clouds.add(cloud);
 
         EC2Api ec2Api = spy(EC2Api.class);
@@ -111,7 +111,7 @@ public class ProvisionIntegrationTest extends IntegrationTest {
                 null, "fId", "momo", null, computerConnector, false, false,
                 0, 0, 10, 1, false, false,
                 false, 0, 0, false,
-                2, false);
+                2, false, null, null, null, null, null, null, null, false);
         j.jenkins.clouds.add(cloud);
 
         List<QueueTaskFuture> rs = getQueueTaskFutures(1);
@@ -142,7 +142,7 @@ public class ProvisionIntegrationTest extends IntegrationTest {
                 null, "fId", "momo", null, computerConnector, false, false,
                 0, 0, 10, 1, false, false,
                 false, 300, 15, false,
-                2, false));
+                2, false, null, null, null, null, null, null, null, false));
 
         // provide init state
         cloud.setStats(new FleetStateStats("", 0, "active",
@@ -174,7 +174,7 @@ public class ProvisionIntegrationTest extends IntegrationTest {
                 null, "fId", "momo", null, computerConnector, false, false,
                 0, 0, 10, 1, false, false,
                 false, 0, 0, false,
-                10, false));
+                10, false, null, null, null, null, null, null, null, false));
         j.jenkins.clouds.add(cloud);
 
         mockEc2ApiToDescribeInstancesWhenModified(InstanceStateName.Running);
@@ -200,7 +200,7 @@ public class ProvisionIntegrationTest extends IntegrationTest {
                 null, "fId", "momo", null, computerConnector, false, false,
                 0, 0, 10, 1, false, false,
                 false, 0, 0, false,
-                10, false));
+                10, false, null, null, null, null, null, null, null, false));
 
         cloud.setStats(new FleetStateStats("", 0, "active",
                 Collections.<String>emptySet(), Collections.<String, Double>emptyMap()));
@@ -257,7 +257,7 @@ public class ProvisionIntegrationTest extends IntegrationTest {
                 null, "fId", "momo", null, computerConnector, false, false,
                 0, 0, 10, 1, true, false,
                 false, 0, 0, false,
-                2, false);
+                2, false, null, null, null, null, null, null, null, false);
         j.jenkins.clouds.add(cloud);
 
         mockEc2ApiToDescribeInstancesWhenModified(InstanceStateName.Pending);
@@ -289,7 +289,7 @@ public class ProvisionIntegrationTest extends IntegrationTest {
                 null, "fId", "momo", null, computerConnector, false, false,
                 1, 0, 5, 1, true, false,
                 false, 0, 0, false,
-                10, false);
+                10, false, null, null, null, null, null, null, null, false);
         j.jenkins.clouds.add(cloud);
 
         // wait while all nodes will be ok
@@ -43,7 +43,7 @@ public class ProvisionPerformanceTest extends IntegrationTest {
                 null, "fId", "momo", null, computerConnector, false, false,
                 1, 0, workers, 1, true, false,
                 false, 0, 0, false,
-                2, false);
+                2, false, null, null, null, null, null, null, null, false);
         j.jenkins.clouds.add(cloud);
 
         // updated plugin requires some init time to get first update
@@ -0,0 +1,83 @@
+package com.amazon.jenkins.ec2fleet;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class ProvisioningTraceTest {
+
+    private final ProvisioningTrace trace = new ProvisioningTrace();
+
+    @Test
+    public void getEntries_shouldReturnEmptyIfNothingRecorded() {
+        assertEquals(0, trace.getEntries().size());
+    }
+
+    @Test
+    public void getEntries_shouldReturnNewestFirstForAllLabels() {
+        trace.recordStrategy("a", 1, 2, 3, 4, 5, 6, ProvisioningTrace.Reason.STRATEGY);
+        trace.recordProvision("b", 3, 6, 7, 8, ProvisioningTrace.Reason.PROVISIONED);
+        trace.recordProvision("a", 2, 6, 10, 0, ProvisioningTrace.Reason.MAX_REACHED);
+
+        final List<ProvisioningTrace.Entry> entries = trace.getEntries();
+        assertEquals(3, entries.size());
+        assertEquals("b", entries.get(0).getLabel());
+        assertEquals(ProvisioningTrace.Reason.PROVISIONED, entries.get(0).getReason());
+        assertEquals(7, entries.get(0).getCap());
+        assertEquals(8, entries.get(0).getToProvision());
+        assertEquals(-1, entries.get(0).getAvailable());
+        assertEquals(ProvisioningTrace.Reason.MAX_REACHED, entries.get(1).getReason());
+        assertEquals(ProvisioningTrace.Reason.STRATEGY, entries.get(2).getReason());
+        assertEquals(2, entries.get(2).getAvailable());
+        assertEquals(3, entries.get(2).getConnecting());
+        assertEquals(4, entries.get(2).getPlanned());
+        assertEquals(5, entries.get(2).getQueueLength());
+        assertEquals(6, entries.get(2).getDemand());
+        assertEquals(-1, entries.get(2).getCap());
+    }
+
+    @Test
+    public void record_shouldKeepOnlyLastEntriesPerLabel() {
+        for (int i = 0; i < ProvisioningTrace.CAPACITY_PER_LABEL + 10; i++) {
+            trace.recordProvision("a", i, i, 0, 0, ProvisioningTrace.Reason.NOTHING_TO_PROVISION);
+        }
+
+        final List<ProvisioningTrace.Entry> entries = trace.getEntries();
+        assertEquals(ProvisioningTrace.CAPACITY_PER_LABEL, entries.size());
+        assertEquals(ProvisioningTrace.CAPACITY_PER_LABEL + 9, entries.get(0).getTime());
+        assertEquals(10, entries.get(entries.size() - 1).getTime());
+    }
+
+    @Test
+    public void record_shouldDropLeastRecentlyRecordedLabel() {
+        for (int i = 0; i < ProvisioningTrace.MAX_LABELS; i++) {
+            trace.recordProvision("label" + i, i, 1, 0, 1, ProvisioningTrace.Reason.PROVISIONED);
+        }
+        // touch first label, so second is the eldest
+        trace.recordProvision("label0", 100, 1, 0, 1, ProvisioningTrace.Reason.PROVISIONED);
+        trace.recordProvision("new", 101, 1, 0, 1, ProvisioningTrace.Reason.PROVISIONED);
+
+        boolean label0 = false;
+        for (final ProvisioningTrace.Entry entry : trace.getEntries()) {
+            if (entry.getLabel().equals("label1")) throw new AssertionError("label1 should be dropped");
+            if (entry.getLabel().equals("label0")) label0 = true;
+        }
+        assertEquals(true, label0);
+    }
+
+    @Test
+    public void writeCsv_shouldWriteHeaderAndEscapeLabel() throws IOException {
+        trace.recordProvision("a \"b\"", 5, 2, 1, 2, ProvisioningTrace.Reason.PROVISIONED);
+
+        final StringWriter writer = new StringWriter();
+        trace.writeCsv(writer);
+
+        assertEquals("time,label,reason,available,connecting,planned,queueLength,demand,cap,toProvision\n"
+                + "5,\"a \"\"b\"\"\",PROVISIONED,-1,-1,-1,-1,2,1,2\n", writer.toString());
+    }
+
+}
@@ -52,7 +52,7 @@ public class RealEc2ApiIntegrationTest {
                         null, null, null, false, false,
                         0, 0, 0, 0, false, false,
                         false, 0, 0, false,
-                        10, false);
+                        10, false, null, null, null, null, null, null, null, false);
                 j.jenkins.clouds.add(cloud);
 
                 // 10 sec refresh time so wait
@@ -85,7 +85,7 @@ public class RealEc2ApiIntegrationTest {
                 EC2FleetCloud cloud = new EC2FleetCloud(null, null, "credId", null, null, null, fleetId,
                         null, null, null, false, false,
                         0, 0, 0, 0, false, false,
-                        false, 0, 0, false, 10, false);
+                        false, 0, 0, false, 10, false, null, null, null, null, null, null, null, false);
                 j.jenkins.clouds.add(cloud);
 
                 final long start = System.currentTimeMillis();
@@ -0,0 +1,98 @@
+package com.amazon.jenkins.ec2fleet;
+
+import com.google.common.collect.ImmutableSet;
+import hudson.model.Action;
+import hudson.model.ParametersAction;
+import hudson.model.Queue;
+import hudson.model.StringParameterValue;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest(Queue.class)
+public class ResubmitCoordinatorTest {
+
+    private final Queue.Task task1 = mock(Queue.Task.class);
+    private final Queue.Task task2 = mock(Queue.Task.class);
+
+    @Before
+    public void before() {
+        ResubmitCoordinator.takeWave();
+    }
+
+    @Test
+    public void takeWave_shouldReturnNullIfNoLostTasks() {
+        assertNull(ResubmitCoordinator.takeWave());
+    }
+
+    @Test
+    public void submit_shouldCollectTasksOfAllNodesInOneWave() {
+        ResubmitCoordinator.submit("cloud1", "n1", task1, Collections.<Action>emptyList(), 100);
+        ResubmitCoordinator.submit("cloud2", "n2", task2, Collections.<Action>emptyList(), 200);
+        ResubmitCoordinator.submit("cloud2", "n2", task1, Collections.<Action>emptyList(), -1);
+
+        final ResubmitCoordinator.Wave wave = ResubmitCoordinator.takeWave();
+
+        assertEquals(Arrays.asList("n1", "n2"), wave.getNodes());
+        assertEquals(ImmutableSet.of("cloud1", "cloud2"), wave.getClouds());
+        assertEquals(3, wave.getAbortedTasks());
+        assertEquals(2, wave.getResubmittedTasks());
+        assertEquals(300, wave.getLostComputeMsec());
+        assertNull(ResubmitCoordinator.takeWave());
+    }
+
+    @Test
+    public void getWaves_shouldKeepOnlyLastWaves() {
+        for (int i = 0; i < ResubmitCoordinator.MAX_WAVES + 5; i++) {
+            ResubmitCoordinator.submit("cloud", "n" + i, task1, Collections.<Action>emptyList(), 0);
+            ResubmitCoordinator.takeWave();
+        }
+
+        assertEquals(ResubmitCoordinator.MAX_WAVES, ResubmitCoordinator.getWaves().size());
+        assertEquals(Collections.singletonList("n" + (ResubmitCoordinator.MAX_WAVES + 4)),
+                ResubmitCoordinator.getWaves().get(ResubmitCoordinator.MAX_WAVES - 1).getNodes());
+    }
+
+    @Test
+    public void submit_shouldResubmitRunsOfSameTaskWithDifferentParameters() {
+        final List<Action> actions1 = Collections.<Action>singletonList(
+                new ParametersAction(new StringParameterValue("p", "1")));
+        final List<Action> actions2 = Collections.<Action>singletonList(
+                new ParametersAction(new StringParameterValue("p", "2")));
+        ResubmitCoordinator.submit("cloud", "n1", task1, actions1, 100);
+        ResubmitCoordinator.submit("cloud", "n2", task1, actions2, 100);
+        ResubmitCoordinator.submit("cloud", "n2", task1, Collections.<Action>singletonList(
+                new ParametersAction(new StringParameterValue("p", "2"))), 100);
+
+        final ResubmitCoordinator.Wave wave = ResubmitCoordinator.takeWave();
+
+        assertEquals(3, wave.getAbortedTasks());
+        assertEquals(2, wave.getResubmittedTasks());
+
+        final Queue queue = mock(Queue.class);
+        PowerMockito.mockStatic(Queue.class);
+        PowerMockito.when(Queue.getInstance()).thenReturn(queue);
+
+        ResubmitCoordinator.schedule(wave);
+
+        verify(queue).schedule2(eq(task1), eq(0), eq(Arrays.asList(actions1.get(0), new ResubmittedAction())));
+        verify(queue).schedule2(eq(task1), eq(0), eq(Arrays.asList(actions2.get(0), new ResubmittedAction())));
+        verifyNoMoreInteractions(queue);
+    }
+
+}
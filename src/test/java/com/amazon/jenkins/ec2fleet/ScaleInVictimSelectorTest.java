@@ -0,0 +1,68 @@
+package com.amazon.jenkins.ec2fleet;
+
+import com.amazonaws.services.ec2.model.Instance;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class ScaleInVictimSelectorTest {
+
+    private static final List<String> IDS = Arrays.asList("i-1", "i-2", "i-3");
+
+    private static final Map<String, Instance> INSTANCES = ImmutableMap.of(
+            "i-1", new Instance().withInstanceType("t3.small").withLaunchTime(new Date(300)),
+            "i-2", new Instance().withInstanceType("m5.large").withLaunchTime(new Date(100)),
+            "i-3", new Instance().withInstanceType("c5.large").withLaunchTime(new Date(200)));
+
+    @Test
+    public void order_shouldKeepOrderForAny() {
+        assertEquals(IDS, ScaleInVictimSelector.order(IDS, ScaleInPolicy.ANY, INSTANCES,
+                Collections.<String, Integer>emptyMap(), Collections.<String, Double>emptyMap(),
+                Collections.<String, Integer>emptyMap()));
+    }
+
+    @Test
+    public void order_shouldPutOldestFirst() {
+        assertEquals(Arrays.asList("i-2", "i-3", "i-1"), ScaleInVictimSelector.order(IDS, ScaleInPolicy.OLDEST,
+                INSTANCES, Collections.<String, Integer>emptyMap(), Collections.<String, Double>emptyMap(),
+                Collections.<String, Integer>emptyMap()));
+    }
+
+    @Test
+    public void order_shouldPutUnknownLaunchTimeLast() {
+        assertEquals(Arrays.asList("i-2", "i-3", "i-1", "i-4"), ScaleInVictimSelector.order(
+                Arrays.asList("i-4", "i-1", "i-2", "i-3"), ScaleInPolicy.OLDEST,
+                INSTANCES, Collections.<String, Integer>emptyMap(), Collections.<String, Double>emptyMap(),
+                Collections.<String, Integer>emptyMap()));
+    }
+
+    @Test
+    public void order_shouldPutHighestCostPerExecutorFirst() {
+        assertEquals(Arrays.asList("i-3", "i-1", "i-2"), ScaleInVictimSelector.order(IDS,
+                ScaleInPolicy.HIGHEST_COST_PER_EXECUTOR, INSTANCES, Collections.<String, Integer>emptyMap(),
+                ImmutableMap.of("i-1", 0.2, "i-3", 0.1),
+                ImmutableMap.of("i-1", 4, "i-3", 1)));
+    }
+
+    @Test
+    public void order_shouldPutMostInterruptedTypeFirst() {
+        assertEquals(Arrays.asList("i-3", "i-2", "i-1"), ScaleInVictimSelector.order(IDS,
+                ScaleInPolicy.MOST_INTERRUPTED_TYPE, INSTANCES, ImmutableMap.of("c5.large", 3, "m5.large", 1),
+                Collections.<String, Double>emptyMap(), Collections.<String, Integer>emptyMap()));
+    }
+
+    @Test
+    public void parse_shouldReturnAnyForUnknown() {
+        assertEquals(ScaleInPolicy.ANY, ScaleInPolicy.parse(null));
+        assertEquals(ScaleInPolicy.ANY, ScaleInPolicy.parse("unknown"));
+        assertEquals(ScaleInPolicy.OLDEST, ScaleInPolicy.parse("oldest"));
+    }
+
+}
@@ -0,0 +1,85 @@
+package com.amazon.jenkins.ec2fleet;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+public class ScaleOutLimiterTest {
+
+    private final ScaleOutLimiter limiter = new ScaleOutLimiter();
+
+    @Test
+    public void acquire_shouldGrantAllIfUnlimited() {
+        assertEquals(100, limiter.acquire(100, 0, 0, 0));
+        assertEquals(-1, limiter.getTokens());
+    }
+
+    @Test
+    public void acquire_shouldGrantNothingForNoUnits() {
+        assertEquals(0, limiter.acquire(0, 10, 10, 0));
+    }
+
+    @Test
+    public void acquire_shouldStartWithFullBurst() {
+        assertEquals(20, limiter.acquire(100, 5, 20, 0));
+        assertEquals(0, limiter.acquire(100, 5, 20, 0));
+    }
+
+    @Test
+    public void acquire_shouldUseRateAsBurstIfNoBurst() {
+        assertEquals(5, limiter.acquire(100, 5, 0, 0));
+    }
+
+    @Test
+    public void acquire_shouldRefillByRate() {
+        limiter.acquire(100, 6, 6, 0);
+
+        assertEquals(3, limiter.acquire(100, 6, 6, 30000));
+        assertEquals(1, limiter.acquire(100, 6, 6, 40000));
+    }
+
+    @Test
+    public void acquire_shouldNotRefillAboveBurst() {
+        limiter.acquire(1, 6, 10, 0);
+
+        assertEquals(10, limiter.acquire(100, 6, 10, 3600000));
+    }
+
+    @Test
+    public void acquire_shouldNotGoBackInTime() {
+        limiter.acquire(10, 10, 10, 60000);
+
+        assertEquals(0, limiter.acquire(10, 10, 10, 0));
+        assertEquals(0, limiter.acquire(10, 10, 10, 60000));
+    }
+
+    @Test
+    public void takeDeferredLabels_shouldReturnNothingIfNotDeferred() {
+        assertEquals(Collections.emptyList(), limiter.takeDeferredLabels(10, 10, 0));
+    }
+
+    @Test
+    public void takeDeferredLabels_shouldWaitForRefill() {
+        limiter.acquire(10, 6, 6, 0);
+        limiter.defer("linux", 4);
+        limiter.defer("", 2);
+        assertEquals(4, limiter.getDeferredUnits());
+
+        assertEquals(Collections.emptyList(), limiter.takeDeferredLabels(6, 6, 5000));
+        assertEquals(Arrays.asList("linux", ""), limiter.takeDeferredLabels(6, 6, 10000));
+        assertEquals(0, limiter.getDeferredUnits());
+        assertEquals(Collections.emptyList(), limiter.takeDeferredLabels(6, 6, 60000));
+    }
+
+    @Test
+    public void takeDeferredLabels_shouldReturnImmediatelyIfLimitRemoved() {
+        limiter.acquire(10, 6, 6, 0);
+        limiter.defer("linux", 4);
+
+        assertEquals(Collections.singletonList("linux"), limiter.takeDeferredLabels(0, 0, 0));
+    }
+
+}
@@ -0,0 +1,116 @@
+package com.amazon.jenkins.ec2fleet;
+
+import hudson.model.Computer;
+import hudson.remoting.Future;
+import hudson.remoting.VirtualChannel;
+import hudson.slaves.SlaveComputer;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest(SlaveComputer.class)
+public class SpotInterruptionWatcherTest {
+
+    private static final long NOW = TimeUnit.HOURS.toMillis(1);
+
+    @Mock
+    private EC2FleetCloud cloud;
+
+    @Mock
+    private EC2FleetNodeComputer computer;
+
+    @Mock
+    private EC2FleetNode node;
+
+    @Mock
+    private VirtualChannel channel;
+
+    @Mock
+    private Future<String> future;
+
+    private final SpotInterruptionWatcher watcher = new SpotInterruptionWatcher();
+
+    @Before
+    public void before() throws Exception {
+        when(computer.getCloud()).thenReturn(cloud);
+        when(computer.getNode()).thenReturn(node);
+        when(computer.getChannel()).thenReturn(channel);
+        when(node.getNodeName()).thenReturn("i-1");
+        doReturn(future).when(channel).callAsync(any(SpotInterruptionCheck.class));
+    }
+
+    @Test
+    public void watch_shouldIgnoreNotFleetComputers() {
+        assertEquals(0, watcher.watch(Collections.singletonList(mock(Computer.class)), NOW));
+    }
+
+    @Test
+    public void watch_shouldDoNothingIfNoNotice() throws Exception {
+        when(future.get(anyLong(), any(TimeUnit.class))).thenReturn(null);
+
+        assertEquals(0, watcher.watch(Collections.<Computer>singletonList(computer), NOW));
+        verify(computer, never()).drain(anyLong());
+        verify(cloud, never()).replaceInterrupted(anyString());
+    }
+
+    @Test
+    public void watch_shouldDrainAndReplaceIfNotice() throws Exception {
+        when(future.get(anyLong(), any(TimeUnit.class)))
+                .thenReturn("{\"action\": \"terminate\", \"time\": \"1970-01-01T01:02:00Z\"}");
+
+        assertEquals(1, watcher.watch(Collections.<Computer>singletonList(computer), NOW));
+        verify(computer).drain(NOW + TimeUnit.MINUTES.toMillis(2));
+        verify(cloud).replaceInterrupted("i-1");
+    }
+
+    @Test
+    public void watch_shouldTerminateDrainingComputerIfIdle() {
+        when(computer.isDraining()).thenReturn(true);
+        when(computer.getInterruptionTime()).thenReturn(NOW + TimeUnit.MINUTES.toMillis(2));
+        PowerMockito.when(computer.isIdle()).thenReturn(true);
+
+        watcher.watch(Collections.<Computer>singletonList(computer), NOW);
+
+        verify(cloud).terminateInterrupted("i-1");
+    }
+
+    @Test
+    public void watch_shouldTerminateBusyDrainingComputerOnlyCloseToInterruption() {
+        when(computer.isDraining()).thenReturn(true);
+        when(computer.getInterruptionTime()).thenReturn(NOW + TimeUnit.MINUTES.toMillis(2));
+        PowerMockito.when(computer.isIdle()).thenReturn(false);
+
+        watcher.watch(Collections.<Computer>singletonList(computer), NOW);
+        verify(cloud, never()).terminateInterrupted(anyString());
+
+        watcher.watch(Collections.<Computer>singletonList(computer), NOW + TimeUnit.MINUTES.toMillis(2)
+                - SpotInterruptionWatcher.TERMINATE_BEFORE_MSEC);
+        verify(cloud).terminateInterrupted("i-1");
+    }
+
+    @Test
+    public void parseInterruptionTime_shouldUseTwoMinutesIfNoTime() {
+        assertEquals(NOW + TimeUnit.MINUTES.toMillis(2), SpotInterruptionWatcher.parseInterruptionTime("{}", NOW));
+        assertEquals(NOW + TimeUnit.MINUTES.toMillis(2), SpotInterruptionWatcher.parseInterruptionTime(
+                "{\"time\": \"bad\"}", NOW));
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.amazon.jenkins.ec2fleet;
+
+import com.amazonaws.services.ec2.AmazonEC2;
+import com.amazonaws.services.ec2.model.Instance;
+import com.amazonaws.services.ec2.model.InstanceLifecycleType;
+import com.amazonaws.services.ec2.model.Placement;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anySetOf;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SpotPriceCacheTest {
+
+    private final AmazonEC2 amazonEC2 = mock(AmazonEC2.class);
+    private final EC2Api ec2Api = mock(EC2Api.class);
+    private final SpotPriceCache cache = new SpotPriceCache();
+
+    private final Instance spot = new Instance().withInstanceType("m5.large")
+            .withInstanceLifecycle(InstanceLifecycleType.Spot)
+            .withPlacement(new Placement().withAvailabilityZone("us-east-1a"));
+
+    @Before
+    public void before() {
+        Registry.setEc2Api(ec2Api);
+        when(ec2Api.describeSpotPrices(any(AmazonEC2.class), anySetOf(String.class)))
+                .thenReturn(ImmutableMap.of("us-east-1a/m5.large/linux", 0.05));
+    }
+
+    @After
+    public void after() {
+        Registry.setEc2Api(new EC2Api());
+    }
+
+    @Test
+    public void refreshIfNeeded_shouldNotLoadIfNoSpotInstances() {
+        assertFalse(cache.refreshIfNeeded(amazonEC2,
+                Collections.singletonList(new Instance().withInstanceType("m5.large")), 0));
+        verify(ec2Api, times(0)).describeSpotPrices(any(AmazonEC2.class), anySetOf(String.class));
+    }
+
+    @Test
+    public void refreshIfNeeded_shouldLoadOnlyOncePerRefreshPeriod() {
+        assertTrue(cache.refreshIfNeeded(amazonEC2, Collections.singletonList(spot), 0));
+        assertFalse(cache.refreshIfNeeded(amazonEC2, Collections.singletonList(spot), SpotPriceCache.REFRESH_MSEC - 1));
+        assertTrue(cache.refreshIfNeeded(amazonEC2, Collections.singletonList(spot), SpotPriceCache.REFRESH_MSEC));
+    }
+
+    @Test
+    public void refreshIfNeeded_shouldLoadIfNewInstanceType() {
+        cache.refreshIfNeeded(amazonEC2, Collections.singletonList(spot), 0);
+
+        final Instance other = new Instance().withInstanceType("c5.large")
+                .withInstanceLifecycle(InstanceLifecycleType.Spot);
+        assertTrue(cache.refreshIfNeeded(amazonEC2, Arrays.asList(spot, other), 1));
+        verify(ec2Api).describeSpotPrices(amazonEC2, ImmutableSet.of("m5.large", "c5.large"));
+    }
+
+    @Test
+    public void getHourlyPrice_shouldReturnPriceOfSpotInstanceByZoneAndType() {
+        cache.refreshIfNeeded(amazonEC2, Collections.singletonList(spot), 0);
+
+        assertEquals(0.05, cache.getHourlyPrice(spot), 0);
+        assertNull(cache.getHourlyPrice(spot.clone().withPlatform("windows")));
+        assertNull(cache.getHourlyPrice(spot.clone().withInstanceLifecycle((String) null)));
+    }
+
+}
@@ -51,7 +51,7 @@ public class UiIntegrationTest {
                 null, null, null, false, false,
                 0, 0, 0, 0, false, false,
                 false, 0, 0, false,
-                10, false);
+                10, false, null, null, null, null, null, null, null, false);
         j.jenkins.clouds.add(cloud);
 
         HtmlPage page = j.createWebClient().goTo("configure");
@@ -65,7 +65,7 @@ public class UiIntegrationTest {
                 null, null, null, false, false,
                 0, 0, 0, 0, false, false,
                 false, 0, 0, false,
-                10, false);
+                10, false, null, null, null, null, null, null, null, false);
         j.jenkins.clouds.add(cloud);
 
         j.jenkins.addNode(new EC2FleetNode("node-name", "", "", 1,
@@ -83,7 +83,7 @@ public class UiIntegrationTest {
                 null, null, null, false, false,
                 0, 0, 0, 0, false, false,
                 false, 0, 0, false,
-                10, false);
+                10, false, null, null, null, null, null, null, null, false);
         j.jenkins.clouds.add(cloud);
 
         j.jenkins.addNode(new EC2FleetNode("mock", "", "", 1,
@@ -109,7 +109,7 @@ public class UiIntegrationTest {
                 null, null, null, false, false,
                 0, 0, 0, 0, false, false,
                 false, 0, 0, false,
-                10, false);
+                10, false, null, null, null, null, null, null, null, false);
         j.jenkins.clouds.add(cloud);
 
         HtmlPage page = j.createWebClient().goTo("configure");
@@ -123,14 +123,14 @@ public class UiIntegrationTest {
                 null, null, null, null, false, false,
                 0, 0, 0, 0, false, false,
                 false, 0, 0, false,
-                10, false);
+                10, false, null, null, null, null, null, null, null, false);
         j.jenkins.clouds.add(cloud1);
 
         Cloud cloud2 = new EC2FleetCloud("b", null, null, null, null, null,
                 null, null, null, null, false, false,
                 0, 0, 0, 0, false, false,
                 false, 0, 0, false,
-                10, false);
+                10, false, null, null, null, null, null, null, null, false);
         j.jenkins.clouds.add(cloud2);
 
         HtmlPage page = j.createWebClient().goTo("configure");
@@ -147,14 +147,14 @@ public class UiIntegrationTest {
                 null, null, null, null, false, false,
                 0, 0, 0, 0, false, false,
                 false, 0, 0, false,
-                10, false);
+                10, false, null, null, null, null, null, null, null, false);
         j.jenkins.clouds.add(cloud1);
 
         Cloud cloud2 = new EC2FleetCloud(null, null, null, null, null, null,
                 null, null, null, null, false, false,
                 0, 0, 0, 0, false, false,
                 false, 0, 0, false,
-                10, false);
+                10, false, null, null, null, null, null, null, null, false);
         j.jenkins.clouds.add(cloud2);
 
         HtmlPage page = j.createWebClient().goTo("configure");
@@ -171,14 +171,14 @@ public class UiIntegrationTest {
                 null, null, null, null, false, false,
                 0, 0, 0, 0, false, false,
                 false, 0, 0, false,
-                10, false);
+                10, false, null, null, null, null, null, null, null, false);
         j.jenkins.clouds.add(cloud1);
 
         EC2FleetCloud cloud2 = new EC2FleetCloud(null, null, null, null, null, null,
                 null, null, null, null, false, false,
                 0, 0, 0, 0, false, false,
                 false, 0, 0, false,
-                10, false);
+                10, false, null, null, null, null, null, null, null, false);
         j.jenkins.clouds.add(cloud2);
 
         HtmlPage page = j.createWebClient().goTo("configure");
@@ -198,14 +198,14 @@ public class UiIntegrationTest {
                 null, null, null, null, false, false,
                 0, 0, 0, 0, false, false,
                 false, 0, 0, false,
-                10, false);
+                10, false, null, null, null, null, null, null, null, false);
         j.jenkins.clouds.add(cloud1);
 
         EC2FleetCloud cloud2 = new EC2FleetCloud(null, null, null, null, null, null,
                 null, null, null, null, false, false,
                 0, 0, 0, 0, false, false,
                 false, 0, 0, false,
-                10, false);
+                10, false, null, null, null, null, null, null, null, false);
         j.jenkins.clouds.add(cloud2);
 
         assertSame(cloud1, j.jenkins.getCloud("FleetCloud"));
@@ -217,14 +217,14 @@ public class UiIntegrationTest {
                 null, null, null, null, false, false,
                 0, 0, 0, 0, false, false,
                 false, 0, 0, false,
-                10, false);
+                10, false, null, null, null, null, null, null, null, false);
         j.jenkins.clouds.add(cloud1);
 
         EC2FleetCloud cloud2 = new EC2FleetCloud("b", null, null, null, null, null,
                 null, null, null, null, false, false,
                 0, 0, 0, 0, false, false,
                 false, 0, 0, false,
-                10, false);
+                10, false, null, null, null, null, null, null, null, false);
         j.jenkins.clouds.add(cloud2);
 
         assertSame(cloud1, j.jenkins.getCloud("a"));
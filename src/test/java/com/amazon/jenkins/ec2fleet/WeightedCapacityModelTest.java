@@ -0,0 +1,83 @@
+package com.amazon.jenkins.ec2fleet;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+@SuppressWarnings("ArraysAsListWithZeroOrOneArgument")
+public class WeightedCapacityModelTest {
+
+    @Test
+    public void withoutWeights_oneUnitIsOneInstance() {
+        final WeightedCapacityModel model = WeightedCapacityModel.of(
+                2, false, Collections.<String, Double>emptyMap(), Collections.<String>emptyList());
+
+        assertEquals(3, model.getInstancesFor(5));
+        assertEquals(3, model.getUnitsFor(3));
+        assertEquals(3, model.getInstancesForUnits(3));
+        assertEquals(2, model.getExecutorsPerInstance());
+    }
+
+    @Test
+    public void zeroExecutors_treatedAsOne() {
+        final WeightedCapacityModel model = WeightedCapacityModel.of(
+                0, false, Collections.<String, Double>emptyMap(), Collections.<String>emptyList());
+
+        assertEquals(5, model.getInstancesFor(5));
+        assertEquals(1, model.getExecutorsPerInstance());
+    }
+
+    @Test
+    public void noWorkload_noInstances() {
+        final WeightedCapacityModel model = WeightedCapacityModel.of(
+                1, false, Collections.<String, Double>emptyMap(), Collections.<String>emptyList());
+
+        assertEquals(0, model.getInstancesFor(0));
+        assertEquals(0, model.getInstancesForUnits(0));
+    }
+
+    @Test
+    public void scaleByWeight_requestWholeWeightedInstances() {
+        final WeightedCapacityModel model = WeightedCapacityModel.of(
+                1, true, ImmutableMap.of("m5.4xlarge", 4.0), Collections.<String>emptyList());
+
+        assertEquals(3, model.getInstancesFor(10));
+        assertEquals(12, model.getUnitsFor(3));
+        assertEquals(2, model.getInstancesForUnits(5));
+        assertEquals(4, model.getExecutorsPerInstance());
+    }
+
+    @Test
+    public void withoutScaleByWeight_weightedInstanceHasNumExecutors() {
+        final WeightedCapacityModel model = WeightedCapacityModel.of(
+                2, false, ImmutableMap.of("m5.4xlarge", 4.0), Collections.<String>emptyList());
+
+        assertEquals(5, model.getInstancesFor(10));
+        assertEquals(20, model.getUnitsFor(5));
+        assertEquals(2, model.getExecutorsPerInstance());
+    }
+
+    @Test
+    public void observedMix_usedInsteadOfConfiguredTypes() {
+        final WeightedCapacityModel model = WeightedCapacityModel.of(
+                1, true, ImmutableMap.of("small", 1.0, "large", 4.0),
+                Arrays.asList("large", "large", "large", "small"));
+
+        assertEquals(3.25, model.getUnitsPerInstance(), 0.001);
+        assertEquals(3, model.getExecutorsPerInstance());
+    }
+
+    @Test
+    public void unknownLaunchedType_countedAsOneUnit() {
+        final WeightedCapacityModel model = WeightedCapacityModel.of(
+                1, true, ImmutableMap.of("large", 4.0), Arrays.asList("other"));
+
+        assertEquals(1, model.getUnitsPerInstance(), 0.001);
+        assertEquals(1, model.getExecutorsPerInstance());
+    }
+
+}